@@ -0,0 +1,195 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Compare benchmark results with baseline results.
+ *
+ * Results are JMH CSV result files (-rf csv). Benchmarks are matched by
+ * name and parameters, and a change is flagged when the score error
+ * intervals do not overlap.
+ */
+
+package morphozoic.bench;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+public class BenchmarkCompare
+{
+   // Benchmark result.
+   static class Result
+   {
+      String key;
+      String mode;
+      double score;
+      double error;
+      String unit;
+   }
+
+   // Load results, keyed by benchmark name and parameters.
+   static LinkedHashMap<String, Result> load(String filename) throws IOException
+   {
+      LinkedHashMap<String, Result> results = new LinkedHashMap<String, Result>();
+      BufferedReader reader = new BufferedReader(new FileReader(filename));
+
+      try
+      {
+         String[] header = null;
+         String   line;
+         while ((line = reader.readLine()) != null)
+         {
+            String[] fields = split(line);
+            if (header == null)
+            {
+               header = fields;
+               continue;
+            }
+            if (fields.length < 7)
+            {
+               continue;
+            }
+            Result result = new Result();
+            result.key = fields[0];
+            for (int i = 7; (i < fields.length) && (i < header.length); i++)
+            {
+               result.key += " " + header[i].replace("Param: ", "") + "=" + fields[i];
+            }
+            result.mode  = fields[1];
+            result.score = parse(fields[4]);
+            result.error = parse(fields[5]);
+            result.unit  = fields[6];
+            results.put(result.key, result);
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+      return(results);
+   }
+
+
+   // Split CSV line.
+   static String[] split(String line)
+   {
+      ArrayList<String> fields = new ArrayList<String>();
+      StringBuilder     field  = new StringBuilder();
+      boolean           quoted = false;
+
+      for (int i = 0; i < line.length(); i++)
+      {
+         char c = line.charAt(i);
+         if (c == '"')
+         {
+            quoted = !quoted;
+         }
+         else if ((c == ',') && !quoted)
+         {
+            fields.add(field.toString());
+            field.setLength(0);
+         }
+         else
+         {
+            field.append(c);
+         }
+      }
+      fields.add(field.toString());
+      return(fields.toArray(new String[fields.size()]));
+   }
+
+
+   // Parse number: missing values are zero.
+   static double parse(String s)
+   {
+      try
+      {
+         return(Double.parseDouble(s));
+      }
+      catch (NumberFormatException e)
+      {
+         return(0.0);
+      }
+   }
+
+
+   // Main.
+   public static void main(String[] args)
+   {
+      String usage = "Usage: java morphozoic.bench.BenchmarkCompare <baseline results CSV file> <results CSV file>";
+
+      if (args.length != 2)
+      {
+         System.err.println(usage);
+         System.exit(1);
+      }
+      LinkedHashMap<String, Result> baseline;
+      LinkedHashMap<String, Result> results;
+      try
+      {
+         baseline = load(args[0]);
+         results  = load(args[1]);
+      }
+      catch (IOException e)
+      {
+         System.err.println("Cannot load results: " + e.getMessage());
+         System.exit(1);
+         return;
+      }
+      int regressions = 0;
+      for (Result result : results.values())
+      {
+         Result base = baseline.get(result.key);
+         if (base == null)
+         {
+            System.out.println(result.key + ": " + result.score + " " + result.unit + " (no baseline)");
+            continue;
+         }
+         if (!base.unit.equals(result.unit))
+         {
+            System.out.println(result.key + ": units differ from baseline");
+            continue;
+         }
+
+         // Lower is better except for throughput.
+         double change = 0.0;
+         if (base.score > 0.0)
+         {
+            change = ((result.score - base.score) * 100.0) / base.score;
+         }
+         String flag = "";
+         if ((result.score - result.error) > (base.score + base.error))
+         {
+            if (result.mode.equals("thrpt"))
+            {
+               flag = " faster";
+            }
+            else
+            {
+               flag = " SLOWER";
+               regressions++;
+            }
+         }
+         else if ((result.score + result.error) < (base.score - base.error))
+         {
+            if (result.mode.equals("thrpt"))
+            {
+               flag = " SLOWER";
+               regressions++;
+            }
+            else
+            {
+               flag = " faster";
+            }
+         }
+         System.out.println(result.key + ": " + base.score + " -> " + result.score + " " + result.unit +
+                            " (" + String.format("%+.1f", change) + "%)" + flag);
+      }
+      System.out.println("Regressions: " + regressions);
+      if (regressions > 0)
+      {
+         System.exit(1);
+      }
+   }
+}
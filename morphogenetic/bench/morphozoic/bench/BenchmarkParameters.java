@@ -0,0 +1,78 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Benchmark parameter settings and random test organisms.
+ */
+
+package morphozoic.bench;
+
+import java.awt.Dimension;
+import java.util.Random;
+
+import morphozoic.Cell;
+import morphozoic.Organism;
+import morphozoic.Orientation;
+import morphozoic.Parameters;
+
+public class BenchmarkParameters
+{
+   // Random seed.
+   public static final int RANDOM_SEED = 4517;
+
+   // Set parameters.
+   // Organism dimensions are given as "<width>x<height>",
+   // neighborhoods as "<neighborhood dimension>x<number of neighborhoods>".
+   public static void set(String organismDimensions, String neighborhoods, int numCellTypes)
+   {
+      int[] d = parse(organismDimensions);
+
+      Parameters.ORGANISM_DIMENSIONS = new Dimension(d[0], d[1]);
+      d = parse(neighborhoods);
+      Parameters.NEIGHBORHOOD_DIMENSION = d[0];
+      Parameters.NUM_NEIGHBORHOODS      = d[1];
+      Parameters.NUM_CELL_TYPES         = numCellTypes;
+      Parameters.RANDOM_SEED            = RANDOM_SEED;
+   }
+
+
+   // Parse "<n>x<m>" pair.
+   static int[] parse(String pair)
+   {
+      String[] s = pair.split("x");
+
+      if (s.length != 2)
+      {
+         throw new IllegalArgumentException("Invalid dimensions " + pair);
+      }
+      return(new int[] { Integer.parseInt(s[0]), Integer.parseInt(s[1]) });
+   }
+
+
+   // Create organism with random cells: density is the probability of a non-empty cell.
+   public static Organism randomOrganism(Random randomizer, float density)
+   {
+      Organism organism = new Organism();
+
+      randomizeCells(organism, randomizer, density);
+      return(organism);
+   }
+
+
+   // Randomize organism cells.
+   public static void randomizeCells(Organism organism, Random randomizer, float density)
+   {
+      for (int x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+      {
+         for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
+         {
+            int type = Cell.EMPTY;
+            if (randomizer.nextFloat() < density)
+            {
+               type = randomizer.nextInt(Parameters.NUM_CELL_TYPES);
+            }
+            organism.cells[x][y] = new Cell(type, x, y,
+                                            Orientation.fromInt(randomizer.nextInt(8)), organism);
+         }
+      }
+   }
+}
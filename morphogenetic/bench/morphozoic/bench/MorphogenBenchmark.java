@@ -0,0 +1,157 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Morphogen and metamorph kernel benchmarks.
+ *
+ * Kernels run over a fixed sample of cells of a random organism,
+ * cycling through the sample with each invocation.
+ */
+
+package morphozoic.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import morphozoic.Cell;
+import morphozoic.Metamorph;
+import morphozoic.Morphogen;
+import morphozoic.Organism;
+import morphozoic.Parameters;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MorphogenBenchmark
+{
+   // Sample size: power of 2.
+   public static final int NUM_SAMPLES = 256;
+
+   // Organism dimensions: <width>x<height>.
+   @Param({ "50x50", "100x100" })
+   public String organismDimensions;
+
+   // Neighborhoods: <neighborhood dimension>x<number of neighborhoods>.
+   @Param({ "3x2", "3x3", "5x2" })
+   public String neighborhoods;
+
+   // Number of cell types.
+   @Param({ "1", "3", "8" })
+   public int numCellTypes;
+
+   // Organism and samples.
+   Organism organism;
+   Cell[]      cells;
+   Morphogen[] morphogens;
+   Metamorph[] metamorphs;
+   Metamorph.CellPropsList[][] cellPropsLists;
+   Random randomizer;
+   int    next;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      BenchmarkParameters.set(organismDimensions, neighborhoods, numCellTypes);
+      randomizer = new Random(BenchmarkParameters.RANDOM_SEED);
+      organism   = BenchmarkParameters.randomOrganism(randomizer, 0.5f);
+      cells      = new Cell[NUM_SAMPLES];
+      morphogens = new Morphogen[NUM_SAMPLES];
+      metamorphs = new Metamorph[NUM_SAMPLES];
+      for (int i = 0; i < NUM_SAMPLES; i++)
+      {
+         int x = randomizer.nextInt(Parameters.ORGANISM_DIMENSIONS.width);
+         int y = randomizer.nextInt(Parameters.ORGANISM_DIMENSIONS.height);
+         cells[i]      = organism.cells[x][y];
+         morphogens[i] = new Morphogen(cells[i]);
+         metamorphs[i] = new Metamorph(morphogens[i], cells[i]);
+      }
+      cellPropsLists = new Metamorph.CellPropsList[Parameters.ORGANISM_DIMENSIONS.width][Parameters.ORGANISM_DIMENSIONS.height];
+      next           = 0;
+   }
+
+
+   // Next sample index.
+   int next()
+   {
+      next = (next + 1) & (NUM_SAMPLES - 1);
+      return(next);
+   }
+
+
+   @Benchmark
+   public Morphogen construct()
+   {
+      return(new Morphogen(cells[next()]));
+   }
+
+
+   @Benchmark
+   public float compare()
+   {
+      int i = next();
+
+      return(morphogens[i].compare(morphogens[(i + 1) & (NUM_SAMPLES - 1)]));
+   }
+
+
+   @Benchmark
+   public int getHashCode()
+   {
+      return(morphogens[next()].getHashCode());
+   }
+
+
+   @Benchmark
+   public Cell[][] exec()
+   {
+      int i = next();
+
+      metamorphs[i].exec(cells[i]);
+      return(organism.cells);
+   }
+
+
+   // Add the cell properties of the maximum number of cell metamorphs
+   // around a cell, then execute the cell properties of the cell.
+   @Benchmark
+   public Cell addCellProps()
+   {
+      int  i    = next();
+      Cell cell = cells[i];
+
+      for (int j = 0; j < Parameters.MAX_CELL_METAMORPHS; j++)
+      {
+         metamorphs[(i + j) & (NUM_SAMPLES - 1)].addCellProps(cellPropsLists, cell.x, cell.y, (float)j);
+      }
+      Metamorph.exec(cell, cellPropsLists, randomizer);
+      int o = Parameters.METAMORPH_DIMENSION / 2;
+      for (int x = 0; x < Parameters.METAMORPH_DIMENSION; x++)
+      {
+         for (int y = 0; y < Parameters.METAMORPH_DIMENSION; y++)
+         {
+            Metamorph.CellPropsList cellProps =
+               cellPropsLists[Organism.wrapX(cell.x + x - o)][Organism.wrapY(cell.y + y - o)];
+            if (cellProps != null)
+            {
+               cellProps.clear();
+            }
+         }
+      }
+      return(cell);
+   }
+}
@@ -0,0 +1,129 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Organism update benchmarks: metamorph execution by each application.
+ *
+ * Applications that save metamorphs to a file generate them by running
+ * for a number of steps once per trial. Each iteration then starts a new
+ * organism executing the metamorphs, so that iterations measure the same
+ * span of the organism's development.
+ */
+
+package morphozoic.bench;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import morphozoic.Organism;
+import morphozoic.Parameters;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class OrganismBenchmark
+{
+   // Number of steps to generate metamorphs.
+   public static final int GEN_STEPS = 20;
+
+   // Application.
+   @Param({ "Gastrulation", "GameOfLife", "Celegans", "Pathfinder",
+            "TuringMorph", "ImageRepair", "CellRegeneration" })
+   public String application;
+
+   // Metamorph execution type.
+   @Param({ "SEARCH_TREE", "VECTOR_SEARCH_TREE" })
+   public String execType;
+
+   // Organism dimensions: <width>x<height>.
+   @Param({ "50x50" })
+   public String organismDimensions;
+
+   // Neighborhoods: <neighborhood dimension>x<number of neighborhoods>.
+   @Param({ "3x2" })
+   public String neighborhoods;
+
+   // Number of cell types.
+   @Param({ "3" })
+   public int numCellTypes;
+
+   // Organism constructor.
+   Constructor<?> constructor;
+
+   // Metamorph file (null=application generates metamorphs when constructed).
+   File metamorphFile;
+
+   // Executing organism.
+   Organism organism;
+
+   @Setup(Level.Trial)
+   public void setup() throws Exception
+   {
+      BenchmarkParameters.set(organismDimensions, neighborhoods, numCellTypes);
+      Parameters.METAMORPH_EXEC_TYPE = Parameters.METAMORPH_EXEC_OPTION.valueOf(execType);
+      constructor = Class.forName("morphozoic.applications." + application).
+                       getConstructor(String[].class, Integer.class);
+      metamorphFile = null;
+      if (!application.equals("ImageRepair") && !application.equals("CellRegeneration"))
+      {
+         metamorphFile = File.createTempFile("metamorphs", ".dat");
+         Organism gen = (Organism)constructor.newInstance(
+            new String[] { "-genMetamorphs", metamorphFile.getPath() }, 0);
+         for (int i = 0; i < GEN_STEPS; i++)
+         {
+            gen.update();
+         }
+         gen.writer.close();
+      }
+   }
+
+
+   @Setup(Level.Iteration)
+   public void start() throws Exception
+   {
+      if (metamorphFile != null)
+      {
+         organism = (Organism)constructor.newInstance(
+            new String[] { "-execMetamorphs", metamorphFile.getPath() }, 0);
+      }
+      else
+      {
+         organism = (Organism)constructor.newInstance(new String[0], 0);
+      }
+   }
+
+
+   @TearDown(Level.Trial)
+   public void cleanup()
+   {
+      if (metamorphFile != null)
+      {
+         metamorphFile.delete();
+      }
+   }
+
+
+   @Benchmark
+   public Organism update()
+   {
+      organism.update();
+      return(organism);
+   }
+}
@@ -0,0 +1,141 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Metamorph search tree benchmarks.
+ *
+ * The metamorph library is generated from random organisms, and queries
+ * from other random organisms, so most searches are not exact matches.
+ */
+
+package morphozoic.bench;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import morphozoic.Metamorph;
+import morphozoic.Morphogen;
+import morphozoic.Organism;
+import morphozoic.Parameters;
+import rdtree.RDtree;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RDtreeBenchmark
+{
+   // Number of queries: power of 2.
+   public static final int NUM_QUERIES = 1024;
+
+   // Metamorph library size.
+   @Param({ "1000", "10000", "100000" })
+   public int librarySize;
+
+   // Neighborhoods: <neighborhood dimension>x<number of neighborhoods>.
+   @Param({ "3x2" })
+   public String neighborhoods;
+
+   // Number of cell types.
+   @Param({ "3" })
+   public int numCellTypes;
+
+   // Library, queries and search tree.
+   ArrayList<Metamorph> library;
+   Metamorph[]          queries;
+   RDtree               tree;
+   RDtree.SearchContext searchContext;
+   int next;
+
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      BenchmarkParameters.set("50x50", neighborhoods, numCellTypes);
+      Random randomizer = new Random(BenchmarkParameters.RANDOM_SEED);
+      library = new ArrayList<Metamorph>();
+      addMetamorphs(library, librarySize, randomizer);
+      ArrayList<Metamorph> q = new ArrayList<Metamorph>();
+      addMetamorphs(q, NUM_QUERIES, randomizer);
+      queries = q.toArray(new Metamorph[NUM_QUERIES]);
+      tree    = new RDtree();
+      for (Metamorph m : library)
+      {
+         tree.insert(m);
+      }
+      tree.stats    = null;
+      searchContext = tree.newSearchContext();
+      next          = 0;
+   }
+
+
+   // Add metamorphs of random organism cells.
+   static void addMetamorphs(ArrayList<Metamorph> metamorphs, int n, Random randomizer)
+   {
+      Organism organism = BenchmarkParameters.randomOrganism(randomizer, 0.5f);
+
+      for (int i = 0; i < n; i++)
+      {
+         if ((i % 100) == 0)
+         {
+            BenchmarkParameters.randomizeCells(organism, randomizer, randomizer.nextFloat());
+         }
+         int x = randomizer.nextInt(Parameters.ORGANISM_DIMENSIONS.width);
+         int y = randomizer.nextInt(Parameters.ORGANISM_DIMENSIONS.height);
+         metamorphs.add(new Metamorph(new Morphogen(organism.cells[x][y]), organism.cells[x][y]));
+      }
+   }
+
+
+   // Build tree by inserting library.
+   @Benchmark
+   @OutputTimeUnit(TimeUnit.MILLISECONDS)
+   public RDtree insert()
+   {
+      RDtree t = new RDtree();
+
+      t.stats = null;
+      for (Metamorph m : library)
+      {
+         t.insert(m);
+      }
+      return(t);
+   }
+
+
+   // Build tree from library.
+   @Benchmark
+   @OutputTimeUnit(TimeUnit.MILLISECONDS)
+   public RDtree build()
+   {
+      RDtree t = new RDtree();
+
+      t.stats = null;
+      t.build(library, Metamorph.CANONICAL_ORDER);
+      return(t);
+   }
+
+
+   // Search for nearest metamorphs, as in metamorph execution.
+   @Benchmark
+   public int search()
+   {
+      next = (next + 1) & (NUM_QUERIES - 1);
+      return(tree.search(searchContext, queries[next], Parameters.MAX_CELL_METAMORPHS,
+                         librarySize, Parameters.MAX_MORPHOGEN_COMPARE_DISTANCE));
+   }
+}
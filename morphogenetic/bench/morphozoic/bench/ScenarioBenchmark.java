@@ -0,0 +1,562 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Scenario benchmark: end-to-end application runs.
+ *
+ * Each scenario runs an application with a fixed random seed, generating
+ * metamorphs and then executing them, at each organism size. Runs are
+ * appended to a CSV history file with their update rate, peak heap usage
+ * and final organism checksum. A run is checked against the latest
+ * history run of the same scenario, size, mode, seed and ticks: a
+ * different checksum is a mismatch, and an update rate below the
+ * regression threshold is a slowdown, if the reference run was long
+ * enough to time. The metamorph execution type is
+ * not part of the match, so alternative execution types are checked for
+ * identical output.
+ */
+
+package morphozoic.bench;
+
+import java.awt.Dimension;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Constructor;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import morphozoic.Cell;
+import morphozoic.Organism;
+import morphozoic.Parameters;
+import morphozoic.applications.Pathfinder;
+
+public class ScenarioBenchmark
+{
+   // Scenarios.
+   public static final String[] DEFAULT_SCENARIOS =
+   {
+      "Gastrulation", "GameOfLife", "TuringMorph", "ImageRepair", "CellRegeneration", "Pathfinder"
+   };
+   public static String[] SCENARIOS = DEFAULT_SCENARIOS;
+
+   // Sizes.
+   public static final String[] DEFAULT_SIZES = { "small", "medium", "large" };
+   public static String[] SIZES = DEFAULT_SIZES;
+
+   // Update ticks per run.
+   public static final int DEFAULT_TICKS = 10;
+   public static int       TICKS         = DEFAULT_TICKS;
+
+   // History file.
+   public static final String DEFAULT_HISTORY_FILE_NAME = "scenario_history.csv";
+   public static String       HISTORY_FILE_NAME         = DEFAULT_HISTORY_FILE_NAME;
+
+   // Regression threshold: fractional update rate decrease.
+   public static final float DEFAULT_REGRESSION_THRESHOLD = 0.2f;
+   public static float       REGRESSION_THRESHOLD         = DEFAULT_REGRESSION_THRESHOLD;
+
+   // Minimum timed milliseconds to check for regression.
+   public static final long MIN_REGRESSION_MS = 100;
+
+   // Metamorph work file.
+   public static final String WORK_FILE_NAME = "scenario_metamorphs.dat";
+
+   // History file header.
+   public static final String HEADER =
+      "date,scenario,size,width,height,mode,execType,randomSeed,ticks,setupMs,updateMs,ticksPerSec,peakHeapMB,checksum,status";
+
+   // Options.
+   public static final String OPTIONS =
+      "\n\t[-scenarios <comma-separated scenarios (default: all)>]"
+      + "\n\t[-sizes <comma-separated sizes: small | medium | large | <width>x<height> (default: small,medium,large)>]"
+      + "\n\t[-ticks <update ticks per run (default=" + DEFAULT_TICKS + ")>]"
+      + "\n\t[-historyFile <CSV history file name (default=" + DEFAULT_HISTORY_FILE_NAME + ")>]"
+      + "\n\t[-regressionThreshold <fractional update rate decrease (default=" + DEFAULT_REGRESSION_THRESHOLD + ")>]"
+      + "\n\t[-metamorphExecType <LINEAR_SEARCH | SEARCH_TREE | NEURAL_NETWORK | PARTITIONED_SEARCH_TREE | VECTOR_SEARCH_TREE>]"
+      + "\n\t[-randomSeed <random seed>]";
+
+   // Parameters to restore before each run.
+   byte[] parameters;
+
+   // Reference runs from history.
+   HashMap<String, String[]> references;
+
+   // Counts.
+   int mismatches;
+   int regressions;
+
+   // Run result.
+   class Run
+   {
+      String scenario;
+      String size;
+      String mode;
+      int    ticks;
+      long   setupMs;
+      long   updateMs;
+      double ticksPerSec;
+      double peakHeapMB;
+      long   checksum;
+      String status;
+   }
+
+   // Constructor.
+   public ScenarioBenchmark() throws IOException
+   {
+      Parameters.ORGANISM_DIMENSIONS = new Dimension(Parameters.ORGANISM_DIMENSIONS);
+      ByteArrayOutputStream bytes  = new ByteArrayOutputStream();
+      DataOutputStream      writer = new DataOutputStream(bytes);
+      Parameters.save(writer);
+      writer.close();
+      parameters = bytes.toByteArray();
+      loadHistory();
+   }
+
+
+   // Restore parameters.
+   void restoreParameters() throws IOException
+   {
+      Parameters.ORGANISM_DIMENSIONS = new Dimension();
+      Parameters.load(new DataInputStream(new ByteArrayInputStream(parameters)));
+   }
+
+
+   // Get size dimensions.
+   static Dimension getDimensions(String size)
+   {
+      if (size.equals("small"))
+      {
+         return(new Dimension(25, 25));
+      }
+      if (size.equals("medium"))
+      {
+         return(new Dimension(50, 50));
+      }
+      if (size.equals("large"))
+      {
+         return(new Dimension(100, 100));
+      }
+      String[] s = size.split("x");
+      if (s.length != 2)
+      {
+         throw new IllegalArgumentException("Invalid size " + size);
+      }
+      return(new Dimension(Integer.parseInt(s[0]), Integer.parseInt(s[1])));
+   }
+
+
+   // Run scenario at size.
+   void run(String scenario, String size) throws Exception
+   {
+      Dimension      dimensions  = getDimensions(size);
+      Constructor<?> constructor = Class.forName("morphozoic.applications." + scenario).
+                                      getConstructor(String[].class, Integer.class);
+      String[] args;
+
+      restoreParameters();
+      Parameters.ORGANISM_DIMENSIONS = dimensions;
+      if (scenario.equals("ImageRepair"))
+      {
+         // Metamorphs are generated from the image when constructed.
+         args = new String[] { "-targetImageFilename", "lena.jpg", "-numHoles", "20", "-maxHoleSize", "5" };
+         record(run(scenario, size, "gen", constructor, args, 0));
+         restoreParameters();
+         Parameters.ORGANISM_DIMENSIONS = dimensions;
+         record(run(scenario, size, "exec", constructor, args, TICKS));
+      }
+      else if (scenario.equals("CellRegeneration"))
+      {
+         // Metamorphs are generated when constructed.
+         args = new String[0];
+         record(run(scenario, size, "gen", constructor, args, 0));
+         restoreParameters();
+         Parameters.ORGANISM_DIMENSIONS = dimensions;
+         record(run(scenario, size, "exec", constructor, args, TICKS));
+      }
+      else
+      {
+         // Metamorphs are saved to and loaded from file.
+         args = new String[] { "-genMetamorphs", WORK_FILE_NAME };
+         record(run(scenario, size, "gen", constructor, args, TICKS));
+         args = new String[] { "-execMetamorphs", WORK_FILE_NAME };
+         record(run(scenario, size, "exec", constructor, args, TICKS));
+         new File(WORK_FILE_NAME).delete();
+      }
+   }
+
+
+   // Run organism.
+   Run run(String scenario, String size, String mode, Constructor<?> constructor,
+           String[] args, int ticks) throws Exception
+   {
+      Run run = new Run();
+
+      run.scenario = scenario;
+      run.size     = size;
+      run.mode     = mode;
+      run.ticks    = ticks;
+      System.gc();
+      ArrayList<MemoryPoolMXBean> pools = new ArrayList<MemoryPoolMXBean>();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      {
+         if (pool.getType() == MemoryType.HEAP)
+         {
+            pool.resetPeakUsage();
+            pools.add(pool);
+         }
+      }
+      long     t        = System.nanoTime();
+      Organism organism = (Organism)constructor.newInstance(args, 0);
+      if (mode.equals("gen"))
+      {
+         seed(scenario, organism);
+      }
+      run.setupMs = (System.nanoTime() - t) / 1000000;
+      t           = System.nanoTime();
+      for (int i = 0; i < ticks; i++)
+      {
+         organism.update();
+      }
+      long ns = System.nanoTime() - t;
+      run.updateMs    = ns / 1000000;
+      run.ticksPerSec = 0.0;
+      if (ns > 0)
+      {
+         run.ticksPerSec = ((double)ticks * 1.0e9) / (double)ns;
+      }
+      long peak = 0;
+      for (MemoryPoolMXBean pool : pools)
+      {
+         peak += pool.getPeakUsage().getUsed();
+      }
+      run.peakHeapMB = (double)peak / (1024.0 * 1024.0);
+      run.checksum   = checksum(organism);
+      if (organism.writer != null)
+      {
+         organism.writer.close();
+      }
+      if (organism.reader != null)
+      {
+         organism.reader.close();
+      }
+      return(run);
+   }
+
+
+   // Seed initial cells of applications that start empty.
+   static void seed(String scenario, Organism organism)
+   {
+      Random randomizer = new Random(Parameters.RANDOM_SEED);
+
+      if (scenario.equals("GameOfLife"))
+      {
+         for (int x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+         {
+            for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
+            {
+               if (randomizer.nextFloat() < 0.3f)
+               {
+                  organism.cells[x][y].type = 0;
+               }
+            }
+         }
+      }
+      else if (scenario.equals("Pathfinder"))
+      {
+         for (int i = 0; i < 2; i++)
+         {
+            organism.cells[0][randomizer.nextInt(Parameters.ORGANISM_DIMENSIONS.height)].type = Pathfinder.SOURCE_CELL;
+            organism.cells[Parameters.ORGANISM_DIMENSIONS.width - 1][randomizer.nextInt(Parameters.ORGANISM_DIMENSIONS.height)].type = Pathfinder.TARGET_CELL;
+         }
+      }
+   }
+
+
+   // Organism checksum of cell types and orientations.
+   static long checksum(Organism organism)
+   {
+      CRC32 crc = new CRC32();
+
+      for (int x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+      {
+         for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
+         {
+            Cell cell = organism.cells[x][y];
+            crc.update(cell.type);
+            crc.update(cell.orientation.ordinal());
+         }
+      }
+      return(crc.getValue());
+   }
+
+
+   // History key.
+   static String getKey(String scenario, String size, String mode, int randomSeed, int ticks)
+   {
+      return(scenario + "," + size + "," + mode + "," + randomSeed + "," + ticks);
+   }
+
+
+   // Load history references: latest matching runs.
+   void loadHistory() throws IOException
+   {
+      references = new HashMap<String, String[]>();
+      File file = new File(HISTORY_FILE_NAME);
+      if (!file.exists())
+      {
+         return;
+      }
+      BufferedReader reader = new BufferedReader(new FileReader(file));
+      try
+      {
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            String[] fields = line.split(",");
+            if ((fields.length < 15) || fields[0].equals("date") || fields[14].equals("MISMATCH"))
+            {
+               continue;
+            }
+            references.put(getKey(fields[1], fields[2], fields[5],
+                                  Integer.parseInt(fields[7]), Integer.parseInt(fields[8])), fields);
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+
+   // Check run against history and record it.
+   void record(Run run) throws IOException
+   {
+      String   key       = getKey(run.scenario, run.size, run.mode, Parameters.RANDOM_SEED, run.ticks);
+      String[] reference = references.get(key);
+
+      run.status = "new";
+      if (reference != null)
+      {
+         run.status = "ok";
+         if (Long.parseLong(reference[13]) != run.checksum)
+         {
+            run.status = "MISMATCH";
+            mismatches++;
+            System.err.println("Checksum mismatch: " + run.scenario + " " + run.size + " " + run.mode +
+                               " reference execType=" + reference[6]);
+         }
+         else if (run.ticks > 0)
+         {
+            double ticksPerSec = Double.parseDouble(reference[11]);
+            if ((Long.parseLong(reference[10]) >= MIN_REGRESSION_MS) &&
+                (run.ticksPerSec < (ticksPerSec * (1.0 - REGRESSION_THRESHOLD))))
+            {
+               run.status = "SLOWER";
+               regressions++;
+               System.err.println("Slower: " + run.scenario + " " + run.size + " " + run.mode +
+                                  " ticks/sec=" + String.format("%.3f", run.ticksPerSec) +
+                                  " reference=" + reference[11]);
+            }
+         }
+         else
+         {
+            // Metamorphs generated when constructed: compare setup time.
+            long setupMs = Long.parseLong(reference[9]);
+            if ((setupMs >= MIN_REGRESSION_MS) &&
+                (run.setupMs > (long)((double)setupMs / (1.0 - REGRESSION_THRESHOLD))))
+            {
+               run.status = "SLOWER";
+               regressions++;
+               System.err.println("Slower: " + run.scenario + " " + run.size + " " + run.mode +
+                                  " setup ms=" + run.setupMs + " reference=" + setupMs);
+            }
+         }
+      }
+      Dimension   d      = Parameters.ORGANISM_DIMENSIONS;
+      File        file   = new File(HISTORY_FILE_NAME);
+      boolean     header = !file.exists();
+      PrintWriter writer = new PrintWriter(new FileWriter(file, true));
+      String      date   = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+      String      line   = date + "," + run.scenario + "," + run.size + "," + d.width + "," + d.height + "," +
+                           run.mode + "," + Parameters.METAMORPH_EXEC_TYPE + "," + Parameters.RANDOM_SEED + "," +
+                           run.ticks + "," + run.setupMs + "," + run.updateMs + "," +
+                           String.format("%.3f", run.ticksPerSec) + "," + String.format("%.1f", run.peakHeapMB) + "," +
+                           run.checksum + "," + run.status;
+      if (header)
+      {
+         writer.println(HEADER);
+      }
+      writer.println(line);
+      writer.close();
+      System.out.println(line);
+   }
+
+
+   // Main.
+   public static void main(String[] args)
+   {
+      String usage = "Usage: java morphozoic.bench.ScenarioBenchmark" + OPTIONS;
+
+      for (int i = 0; i < args.length; i++)
+      {
+         if (args[i].equals("-scenarios"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               System.exit(1);
+            }
+            SCENARIOS = args[i].split(",");
+         }
+         else if (args[i].equals("-sizes"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               System.exit(1);
+            }
+            SIZES = args[i].split(",");
+            for (String size : SIZES)
+            {
+               try
+               {
+                  getDimensions(size);
+               }
+               catch (NumberFormatException e)
+               {
+                  System.err.println("Invalid size " + size);
+                  System.err.println(usage);
+                  System.exit(1);
+               }
+               catch (IllegalArgumentException e)
+               {
+                  System.err.println(e.getMessage());
+                  System.err.println(usage);
+                  System.exit(1);
+               }
+            }
+         }
+         else if (args[i].equals("-ticks"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               System.exit(1);
+            }
+            TICKS = Integer.parseInt(args[i]);
+            if (TICKS < 0)
+            {
+               System.err.println("Invalid ticks");
+               System.err.println(usage);
+               System.exit(1);
+            }
+         }
+         else if (args[i].equals("-historyFile"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               System.exit(1);
+            }
+            HISTORY_FILE_NAME = args[i];
+         }
+         else if (args[i].equals("-regressionThreshold"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               System.exit(1);
+            }
+            REGRESSION_THRESHOLD = Float.parseFloat(args[i]);
+            if ((REGRESSION_THRESHOLD < 0.0f) || (REGRESSION_THRESHOLD >= 1.0f))
+            {
+               System.err.println("Invalid regression threshold");
+               System.err.println(usage);
+               System.exit(1);
+            }
+         }
+         else if (args[i].equals("-metamorphExecType"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               System.exit(1);
+            }
+            try
+            {
+               Parameters.METAMORPH_EXEC_TYPE = Parameters.METAMORPH_EXEC_OPTION.valueOf(args[i]);
+            }
+            catch (IllegalArgumentException e)
+            {
+               System.err.println("Invalid metamorph exec type");
+               System.err.println(usage);
+               System.exit(1);
+            }
+         }
+         else if (args[i].equals("-randomSeed"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               System.exit(1);
+            }
+            Parameters.RANDOM_SEED = Integer.parseInt(args[i]);
+         }
+         else if (args[i].equals("-help"))
+         {
+            System.out.println(usage);
+            System.exit(0);
+         }
+         else
+         {
+            System.err.println(usage);
+            System.exit(1);
+         }
+      }
+
+      // Run scenarios.
+      ScenarioBenchmark benchmark = null;
+      try
+      {
+         benchmark = new ScenarioBenchmark();
+         for (String scenario : SCENARIOS)
+         {
+            for (String size : SIZES)
+            {
+               benchmark.run(scenario, size);
+            }
+         }
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot run scenarios: " + e.getMessage());
+         System.exit(1);
+      }
+      System.out.println("Mismatches=" + benchmark.mismatches + " regressions=" + benchmark.regressions);
+      if ((benchmark.mismatches > 0) || (benchmark.regressions > 0))
+      {
+         System.exit(1);
+      }
+   }
+}
@@ -8,12 +8,14 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Random;
 
 import rdtree.RDclient;
+import rdtree.RDvectorClient;
 
 // Metamorph.
-public class Metamorph implements RDclient
+public class Metamorph implements RDvectorClient
 {
    // Morphogen.
    public Morphogen morphogen;
@@ -27,6 +29,82 @@ public class Metamorph implements RDclient
    // Usage flag.
    public boolean usage;
 
+   // Canonical order: by morphogen then target hash codes, with
+   // colliding hash codes ordered by content: source cells, sector
+   // type densities, then target cells. Metamorphs are thus ordered
+   // independently of their file order.
+   public static final Comparator<Metamorph> CANONICAL_ORDER = new Comparator<Metamorph>()
+   {
+      public int compare(Metamorph m1, Metamorph m2)
+      {
+         int c = Integer.compare(m1.morphogen.hashCode, m2.morphogen.hashCode);
+
+         if (c == 0)
+         {
+            c = Integer.compare(m1.hashCode, m2.hashCode);
+         }
+         if (c == 0)
+         {
+            c = compareCells(m1.morphogen.sourceCells, m2.morphogen.sourceCells);
+         }
+         if (c == 0)
+         {
+            c = compareDensities(m1.morphogen, m2.morphogen);
+         }
+         if (c == 0)
+         {
+            c = compareCells(m1.targetCells, m2.targetCells);
+         }
+         return(c);
+      }
+   };
+
+   // Compare cell configurations by type then orientation.
+   static int compareCells(Cell[][] cells1, Cell[][] cells2)
+   {
+      if ((cells1 == null) || (cells2 == null))
+      {
+         return(Boolean.compare(cells1 != null, cells2 != null));
+      }
+      int c = Integer.compare(cells1.length, cells2.length);
+      for (int x = 0; x < cells1.length && c == 0; x++)
+      {
+         c = Integer.compare(cells1[x].length, cells2[x].length);
+         for (int y = 0; y < cells1[x].length && c == 0; y++)
+         {
+            c = Integer.compare(cells1[x][y].type, cells2[x][y].type);
+            if (c == 0)
+            {
+               c = Integer.compare(cells1[x][y].orientation.ordinal(), cells2[x][y].orientation.ordinal());
+            }
+         }
+      }
+      return(c);
+   }
+
+
+   // Compare morphogen sector type densities.
+   static int compareDensities(Morphogen morphogen1, Morphogen morphogen2)
+   {
+      int c = 0;
+
+      for (int i = 0; i < Parameters.NUM_NEIGHBORHOODS && c == 0; i++)
+      {
+         Morphogen.Neighborhood n1 = morphogen1.getNeighborhood(i);
+         Morphogen.Neighborhood n2 = morphogen2.getNeighborhood(i);
+         for (int j = 0; j < n1.sectors.length && c == 0; j++)
+         {
+            float[] d1 = n1.sectors[j].typeDensities;
+            float[] d2 = n2.sectors[j].typeDensities;
+            for (int k = 0; k < d1.length && c == 0; k++)
+            {
+               c = Float.compare(d1[k], d2[k]);
+            }
+         }
+      }
+      return(c);
+   }
+
    // Constructors.
    public Metamorph(Morphogen morphogen, Cell cell)
    {
@@ -116,6 +194,20 @@ public class Metamorph implements RDclient
    }
 
 
+   // RDvectorClient vector: morphogen type densities.
+   public void getVector(float[] vector, int offset)
+   {
+      morphogen.getVector(vector, offset);
+   }
+
+
+   // RDvectorClient key: morphogen hash code.
+   public int getVectorKey()
+   {
+      return(morphogen.hashCode);
+   }
+
+
    // Execute: overlay cell neighborhood with target cells.
    public void exec(Cell cell)
    {
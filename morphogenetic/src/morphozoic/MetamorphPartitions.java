@@ -0,0 +1,190 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+package morphozoic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import rdtree.RDclient;
+import rdtree.RDtree;
+
+/*
+ * Metamorph library partitioned by morphogen signature.
+ * The innermost neighborhood of a morphogen is made of single cell sectors,
+ * so its type densities are cell type indicators. The signature is the
+ * center cell type plus the cell type counts of the first ring around it.
+ * The signature difference between two morphogens is a lower bound on their
+ * distance, so a search only needs to visit partitions whose bound does not
+ * exceed the distance of the matches found so far.
+ */
+public class MetamorphPartitions
+{
+   // Partitions up to this size are scanned instead of tree searched.
+   public static int MAX_SCAN_SIZE = 32;
+
+   // Partition.
+   public class Partition
+   {
+      // Signature: center cell type indicators followed by first ring type counts.
+      public int[] signature;
+
+      // Metamorphs and search tree.
+      public ArrayList<Metamorph> metamorphs;
+      public RDtree search;
+
+      // Lower bound on morphogen distance to current search morphogen.
+      public float bound;
+
+      public Partition(int[] signature)
+      {
+         this.signature = signature;
+         metamorphs     = new ArrayList<Metamorph>();
+         search         = new RDtree();
+         bound          = 0.0f;
+      }
+   }
+
+   // Signature key.
+   private class Key
+   {
+      int[] signature;
+
+      Key(int[] signature)
+      {
+         this.signature = signature;
+      }
+
+
+      @Override
+      public int hashCode()
+      {
+         return(Arrays.hashCode(signature));
+      }
+
+
+      @Override
+      public boolean equals(Object other)
+      {
+         return((other instanceof Key) && Arrays.equals(signature, ((Key)other).signature));
+      }
+   }
+
+   // Partitions.
+   public ArrayList<Partition> partitions;
+   private HashMap<Key, Partition> partitionMap;
+
+   // Partitions ordered by bound.
+   private ArrayList<Partition> orderedPartitions;
+   private Comparator<Partition> boundComparator;
+
+   // Constructor.
+   public MetamorphPartitions()
+   {
+      partitions        = new ArrayList<Partition>();
+      partitionMap      = new HashMap<Key, Partition>();
+      orderedPartitions = new ArrayList<Partition>();
+      boundComparator   = new Comparator<Partition>()
+      {
+         public int compare(Partition p1, Partition p2)
+         {
+            return(Float.compare(p1.bound, p2.bound));
+         }
+      };
+   }
+
+
+   // Insert metamorph.
+   public void insert(Metamorph metamorph)
+   {
+      int[] signature = getSignature(metamorph.morphogen);
+      Key key         = new Key(signature);
+      Partition partition = partitionMap.get(key);
+      if (partition == null)
+      {
+         partition = new Partition(signature);
+         partitionMap.put(key, partition);
+         partitions.add(partition);
+      }
+      partition.metamorphs.add(metamorph);
+      partition.search.insert((RDclient)metamorph);
+   }
+
+
+   // Number of metamorphs.
+   public int size()
+   {
+      int n = 0;
+
+      for (Partition partition : partitions)
+      {
+         n += partition.metamorphs.size();
+      }
+      return(n);
+   }
+
+
+   // Order partitions by ascending distance bound to morphogen.
+   // The returned list is reused by the next call.
+   public ArrayList<Partition> order(Morphogen morphogen)
+   {
+      int[] signature = getSignature(morphogen);
+      float weight;
+      if (Parameters.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS != null)
+      {
+         weight = Parameters.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[0];
+      }
+      else
+      {
+         weight = 1.0f / (float)Parameters.NUM_NEIGHBORHOODS;
+      }
+      orderedPartitions.clear();
+      for (Partition partition : partitions)
+      {
+         int d = 0;
+         for (int i = 0; i < signature.length; i++)
+         {
+            d += Math.abs(signature[i] - partition.signature[i]);
+         }
+         partition.bound = weight * (float)d;
+         orderedPartitions.add(partition);
+      }
+      Collections.sort(orderedPartitions, boundComparator);
+      return(orderedPartitions);
+   }
+
+
+   // Get morphogen signature from its innermost neighborhood.
+   public static int[] getSignature(Morphogen morphogen)
+   {
+      int   n         = Parameters.NUM_CELL_TYPES;
+      int   d         = Parameters.NEIGHBORHOOD_DIMENSION;
+      int   o         = d / 2;
+      int[] signature = new int[n * 2];
+
+      Morphogen.Neighborhood neighborhood = morphogen.getNeighborhood(0);
+      for (int y = o - 1; y <= o + 1; y++)
+      {
+         for (int x = o - 1; x <= o + 1; x++)
+         {
+            if ((x < 0) || (x >= d) || (y < 0) || (y >= d))
+            {
+               continue;
+            }
+            Morphogen.Neighborhood.Sector sector = neighborhood.getSector((y * d) + x);
+            int i = n;
+            if ((x == o) && (y == o))
+            {
+               i = 0;
+            }
+            for (int k = 0; k < n; k++)
+            {
+               signature[i + k] += Math.round(sector.getTypeDensity(k));
+            }
+         }
+      }
+      return(signature);
+   }
+}
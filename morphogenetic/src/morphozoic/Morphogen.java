@@ -6,6 +6,7 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Vector;
 
@@ -233,6 +234,46 @@ public class Morphogen
    }
 
 
+   // Copy type densities into vector at offset, neighborhood by neighborhood,
+   // in compare order.
+   public void getVector(float[] vector, int offset)
+   {
+      for (int i = 0; i < Parameters.NUM_NEIGHBORHOODS; i++)
+      {
+         Neighborhood n = getNeighborhood(i);
+         for (int j = 0; j < n.sectors.length; j++)
+         {
+            float[] typeDensities = n.sectors[j].typeDensities;
+            System.arraycopy(typeDensities, 0, vector, offset, typeDensities.length);
+            offset += typeDensities.length;
+         }
+      }
+   }
+
+
+   // Identity test: same hash code and type densities.
+   public boolean identical(Morphogen morphogen)
+   {
+      if (morphogen.hashCode != hashCode)
+      {
+         return(false);
+      }
+      for (int i = 0; i < Parameters.NUM_NEIGHBORHOODS; i++)
+      {
+         Neighborhood n1 = getNeighborhood(i);
+         Neighborhood n2 = morphogen.getNeighborhood(i);
+         for (int j = 0; j < n1.sectors.length; j++)
+         {
+            if (!Arrays.equals(n1.sectors[j].typeDensities, n2.sectors[j].typeDensities))
+            {
+               return(false);
+            }
+         }
+      }
+      return(true);
+   }
+
+
    // Equality test.
    public boolean equals(Morphogen morphogen)
    {
@@ -31,6 +31,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.Vector;
 
@@ -98,6 +99,11 @@ public class Morphozoic extends JFrame implements Runnable
       + "\n\t[-numNeighborhoods <number of nested neighborhoods>]"
       + "\n\t[-morphogeneticCellDispersion <morphogenetic cell dispersiony>]"
       + "\n\t[-metamorphDimension <metamorph neighborhood dimension>]"
+      + "\n\t[-metamorphExecType <LINEAR_SEARCH | SEARCH_TREE | NEURAL_NETWORK | PARTITIONED_SEARCH_TREE | VECTOR_SEARCH_TREE>]"
+      + "\n\t[-metamorphSearchStats <print interval ticks (0=JMX only)>]"
+      + "\n\t[-metamorphSearchIndex (save and load search tree index alongside exec file)]"
+      + "\n\t[-metrics (update phase metrics as JMX bean, printed at exit)]"
+      + "\n\t[-metricsLog <CSV file name> <log interval seconds>]"
       + "\n\t[-randomSeed <random seed>]";
 
    // Constructor.
@@ -678,6 +684,90 @@ public class Morphozoic extends JFrame implements Runnable
                return;
             }
          }
+         else if (args[i].equals("-metamorphExecType"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            try
+            {
+               Parameters.METAMORPH_EXEC_TYPE = Parameters.METAMORPH_EXEC_OPTION.valueOf(args[i]);
+            }
+            catch (IllegalArgumentException e)
+            {
+               System.err.println("Invalid metamorph execution type");
+               System.err.println(usage);
+               return;
+            }
+         }
+         else if (args[i].equals("-metamorphSearchStats"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            Organism.metamorphSearchStatsInterval = Integer.parseInt(args[i]);
+            if (Organism.metamorphSearchStatsInterval < 0)
+            {
+               System.err.println("Invalid metamorph search statistics print interval");
+               System.err.println(usage);
+               return;
+            }
+            Organism.metamorphSearchStats = true;
+         }
+         else if (args[i].equals("-metamorphSearchIndex"))
+         {
+            Organism.useMetamorphSearchIndex = true;
+         }
+         else if (args[i].equals("-metrics"))
+         {
+            if (Organism.metrics == null)
+            {
+               Organism.metrics = new OrganismMetrics();
+            }
+            Organism.metrics.register("organism");
+         }
+         else if (args[i].equals("-metricsLog"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            String filename = args[i];
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            int interval = Integer.parseInt(args[i]);
+            if (interval <= 0)
+            {
+               System.err.println("Metrics log interval must be positive");
+               System.err.println(usage);
+               return;
+            }
+            if (Organism.metrics == null)
+            {
+               Organism.metrics = new OrganismMetrics();
+            }
+            try
+            {
+               Organism.metrics.startLogging(filename, interval);
+            }
+            catch (IOException e)
+            {
+               System.err.println("Cannot open metrics log file " + filename + ":" + e.getMessage());
+               return;
+            }
+         }
          else if (args[i].equals("-randomSeed"))
          {
             i++;
@@ -699,6 +789,21 @@ public class Morphozoic extends JFrame implements Runnable
          }
       }
 
+      // Log final metrics and print them at exit: the logger thread is a daemon.
+      if (Organism.metrics != null)
+      {
+         final OrganismMetrics metrics = Organism.metrics;
+         Thread hook = new Thread()
+         {
+            public void run()
+            {
+               metrics.stopLogging();
+               metrics.print();
+            }
+         };
+         Runtime.getRuntime().addShutdownHook(hook);
+      }
+
       String[] organismArgs = new String[argsVector.size()];
       for (int i = 0, j = argsVector.size(); i < j; i++)
       {
@@ -3,18 +3,28 @@
 package morphozoic;
 
 import java.awt.Color;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Random;
 import morphozoic.Morphogen.Neighborhood;
 import morphozoic.Parameters.METAMORPH_EXEC_OPTION;
+import rdtree.ConcurrentRDtree;
+import rdtree.RDarrayTree;
 import rdtree.RDclient;
 import rdtree.RDtree;
-import rdtree.RDtree.RDsearch;
+import rdtree.RDvectorTree;
 import weka.classifiers.Evaluation;
 import weka.classifiers.functions.MultilayerPerceptron;
 import weka.core.Attribute;
@@ -40,8 +50,32 @@ public class Organism
    // Metamorphs.
    public ArrayList<Metamorph> metamorphs;
 
-   // Metamorph search tree.
-   public RDtree metamorphSearch;
+   // Metamorph search tree and reusable search and lookup contexts.
+   public ConcurrentRDtree metamorphSearch;
+   public RDtree.SearchContext metamorphSearchContext;
+   public RDtree.LookupContext metamorphLookupContext;
+
+   // Number of metamorph search tree pivots (0=none).
+   public static int metamorphSearchPivots = 0;
+
+   // Metamorph search tree index file: saved alongside the exec file if enabled.
+   public static boolean       useMetamorphSearchIndex = false;
+   public static final String  METAMORPH_SEARCH_INDEX_SUFFIX = ".idx";
+
+   // Metamorph vector search tree, built from the search tree, and reusable search context.
+   public RDvectorTree              metamorphVectorSearch;
+   public RDarrayTree.SearchContext metamorphVectorSearchContext;
+
+   // Metamorph search tree statistics: registered as JMX beans if enabled,
+   // and printed every interval ticks (0=never).
+   public static boolean metamorphSearchStats         = false;
+   public static int     metamorphSearchStatsInterval = 0;
+
+   // Update metrics (null=disabled).
+   public static OrganismMetrics metrics = null;
+
+   // Metamorph search partitions.
+   public MetamorphPartitions metamorphPartitions;
 
    // Metamorph neural networks.
    public                      MultilayerPerceptron[][] metamorphNNs;
@@ -90,13 +124,29 @@ public class Organism
 
       predecessorCells          = new Cell[Parameters.ORGANISM_DIMENSIONS.width][Parameters.ORGANISM_DIMENSIONS.height];
       metamorphs                = new ArrayList<Metamorph>();
-      metamorphSearch           = new RDtree();
+      metamorphSearch           = new ConcurrentRDtree();
+      metamorphSearch.setPivots(metamorphSearchPivots);
+      if (metamorphSearchStats)
+      {
+         metamorphSearch.getStats().register("metamorphSearch");
+      }
+      metamorphSearchContext    = metamorphSearch.newSearchContext();
+      metamorphLookupContext    = metamorphSearch.newLookupContext();
+      metamorphPartitions       = new MetamorphPartitions();
       metamorphNNs              = new MultilayerPerceptron[Parameters.METAMORPH_DIMENSION][Parameters.METAMORPH_DIMENSION];
       metamorphNNattributeNames = createAttrNames();
       metamorphInstances        = new Instances[Parameters.METAMORPH_DIMENSION][Parameters.METAMORPH_DIMENSION];
    }
 
 
+   // Reset to initial state, retaining metamorphs.
+   public void reset()
+   {
+      randomizer = new Random(Parameters.RANDOM_SEED);
+      clearCells();
+   }
+
+
    // Clear cells.
    public void clearCells()
    {
@@ -146,6 +196,15 @@ public class Organism
    {
       int x, y;
 
+      OrganismMetrics metrics = Organism.metrics;
+      long            t       = 0;
+      int             n       = 0;
+      if (metrics != null)
+      {
+         metrics.count(OrganismMetrics.TICKS, 1);
+         t = System.nanoTime();
+      }
+
       // Generate morphogenetic fields.
       for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
       {
@@ -154,6 +213,7 @@ public class Organism
             if ((cells[x][y].type != Cell.EMPTY) && morphogeneticCell(x, y))
             {
                cells[x][y].generateMorphogen();
+               n++;
             }
             else
             {
@@ -161,6 +221,11 @@ public class Organism
             }
          }
       }
+      if (metrics != null)
+      {
+         metrics.count(OrganismMetrics.MORPHOGENS, n);
+         t = metrics.time(OrganismMetrics.MORPHOGEN_GENERATION, t);
+      }
 
       // Create predecessor cells.
       for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
@@ -172,6 +237,10 @@ public class Organism
             cells[x][y].morphogen            = null;
          }
       }
+      if (metrics != null)
+      {
+         metrics.time(OrganismMetrics.PREDECESSOR_CLONE, t);
+      }
    }
 
 
@@ -180,6 +249,13 @@ public class Organism
    {
       int x, y;
 
+      OrganismMetrics metrics = Organism.metrics;
+      long            t       = 0;
+      int             n       = metamorphs.size();
+      if (metrics != null)
+      {
+         t = System.nanoTime();
+      }
       try
       {
          for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
@@ -200,6 +276,11 @@ public class Organism
       {
          System.err.println("Cannot save metamorphs to " + genFilename + ":" + e.getMessage());
       }
+      if (metrics != null)
+      {
+         metrics.count(OrganismMetrics.SAVED_METAMORPHS, metamorphs.size() - n);
+         metrics.time(OrganismMetrics.METAMORPH_SAVE, t);
+      }
    }
 
 
@@ -221,6 +302,185 @@ public class Organism
    }
 
 
+   // Set exec metamorphs, with their search tree if already built.
+   public void setMetamorphs(ArrayList<Metamorph> metamorphs, ConcurrentRDtree search) throws Exception
+   {
+      this.metamorphs = metamorphs;
+      switch (Parameters.METAMORPH_EXEC_TYPE)
+      {
+      case LINEAR_SEARCH:
+         break;
+
+      case SEARCH_TREE:
+         if (search != null)
+         {
+            metamorphSearch = search;
+            if (metamorphSearchStats)
+            {
+               metamorphSearch.getStats().register("metamorphSearch");
+            }
+         }
+         else
+         {
+            metamorphSearch.build(metamorphs, Metamorph.CANONICAL_ORDER);
+         }
+         break;
+
+      case PARTITIONED_SEARCH_TREE:
+         for (Metamorph m : metamorphs)
+         {
+            metamorphPartitions.insert(m);
+         }
+         break;
+
+      case NEURAL_NETWORK:
+         createMetamorphNNs();
+         break;
+
+      case VECTOR_SEARCH_TREE:
+         if (search != null)
+         {
+            metamorphSearch = search;
+         }
+         else
+         {
+            metamorphSearch.build(metamorphs, Metamorph.CANONICAL_ORDER);
+         }
+         buildMetamorphVectorSearch();
+         break;
+      }
+   }
+
+
+   // Build metamorph vector search tree from the search tree.
+   // Vectors are morphogen type densities, segmented by neighborhood.
+   public void buildMetamorphVectorSearch()
+   {
+      int n = Parameters.NEIGHBORHOOD_DIMENSION * Parameters.NEIGHBORHOOD_DIMENSION * Parameters.NUM_CELL_TYPES;
+
+      metamorphVectorSearch = new RDvectorTree(Parameters.NUM_NEIGHBORHOODS, n,
+                                               Parameters.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS);
+      metamorphVectorSearch.load(metamorphSearch.getSnapshot());
+      metamorphVectorSearchContext = metamorphVectorSearch.newSearchContext();
+      if (metamorphSearchStats)
+      {
+         metamorphVectorSearch.stats.register("metamorphVectorSearch");
+      }
+   }
+
+
+   // Print metamorph search tree statistics.
+   public void printMetamorphSearchStats()
+   {
+      System.out.println("Metamorph search statistics: tick=" + tick);
+      switch (Parameters.METAMORPH_EXEC_TYPE)
+      {
+      case SEARCH_TREE:
+         metamorphSearch.getStatsSnapshot().print();
+         break;
+
+      case VECTOR_SEARCH_TREE:
+         metamorphVectorSearch.getStatsSnapshot().print();
+         break;
+
+      default:
+         System.out.println("No search tree");
+         break;
+      }
+   }
+
+
+   // Build metamorph search tree from loaded exec metamorphs.
+   // The tree is loaded from the exec file's index if the index matches
+   // the exec file checksum; otherwise it is built and the index saved.
+   public void buildMetamorphSearch(long checksum)
+   {
+      if (!useMetamorphSearchIndex || (execFilename == null))
+      {
+         metamorphSearch.build(metamorphs, Metamorph.CANONICAL_ORDER);
+         return;
+      }
+      String indexFilename = execFilename + METAMORPH_SEARCH_INDEX_SUFFIX;
+      File   indexFile     = new File(indexFilename);
+      if (indexFile.exists())
+      {
+         RandomAccessFile file = null;
+         try
+         {
+            file = new RandomAccessFile(indexFile, "r");
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if ((buffer.getLong() == checksum) && (buffer.getInt() == metamorphs.size()))
+            {
+               metamorphSearch.loadIndex(buffer, metamorphs);
+               return;
+            }
+         }
+         catch (Exception e)
+         {
+            System.err.println("Cannot load index file " + indexFilename +
+                               ":" + e.getMessage());
+         }
+         catch (InternalError e)
+         {
+            // Mapped index truncated by another process.
+            System.err.println("Cannot load index file " + indexFilename +
+                               ":" + e.getMessage());
+         }
+         finally
+         {
+            if (file != null)
+            {
+               try
+               {
+                  file.close();
+               }
+               catch (IOException e) {}
+            }
+         }
+      }
+      metamorphSearch.build(metamorphs, Metamorph.CANONICAL_ORDER);
+
+      // Save index to a temporary file and move it into place, so that
+      // processes with the index mapped never see it truncated.
+      File directory = indexFile.getAbsoluteFile().getParentFile();
+      if ((directory == null) || !directory.canWrite())
+      {
+         return;
+      }
+      File             tempFile    = null;
+      DataOutputStream indexWriter = null;
+      try
+      {
+         tempFile    = File.createTempFile(indexFile.getName(), ".tmp", directory);
+         indexWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+         indexWriter.writeLong(checksum);
+         indexWriter.writeInt(metamorphs.size());
+         metamorphSearch.saveIndex(indexWriter, metamorphs);
+         indexWriter.close();
+         indexWriter = null;
+         Files.move(tempFile.toPath(), indexFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot save index file " + indexFilename +
+                            ":" + e.getMessage());
+         if (indexWriter != null)
+         {
+            try
+            {
+               indexWriter.close();
+            }
+            catch (IOException e2) {}
+         }
+         if (tempFile != null)
+         {
+            tempFile.delete();
+         }
+      }
+   }
+
+
    // Create metamorph neural network attribute names.
    public FastVector createAttrNames()
    {
@@ -451,6 +711,13 @@ public class Organism
    {
       int x, y, x2, y2, n;
 
+      OrganismMetrics metrics = Organism.metrics;
+      long            t       = 0;
+      if (metrics != null)
+      {
+         t = System.nanoTime();
+      }
+
       // Clear metamorph usages.
       for (Metamorph m : metamorphs)
       {
@@ -463,6 +730,12 @@ public class Organism
 
       if (((n = metamorphs.size()) > 0) && (Parameters.MAX_CELL_METAMORPHS > 0))
       {
+         // Look up search tree queries.
+         int query = 0;
+         if (Parameters.METAMORPH_EXEC_TYPE == METAMORPH_EXEC_OPTION.SEARCH_TREE)
+         {
+            searchMetamorphs(n);
+         }
          for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
          {
             for (y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
@@ -490,32 +763,80 @@ public class Organism
                      break;
 
                   case SEARCH_TREE:
+                     RDtree.LookupContext batch = metamorphLookupContext;
+                     for (int i = batch.resultOffsets[query], j = batch.resultOffsets[query + 1]; i < j; i++)
+                     {
+                        Metamorph m = (Metamorph)batch.resultClients[i];
+                        if (cellMorphs[x][y] == null)
+                        {
+                           cellMorphs[x][y] = new CellMetamorphs();
+                        }
+                        cellMorphs[x][y].add(m, batch.resultDistances[i]);
+                        m.usage = true;
+                     }
+                     query++;
+                     break;
+
+                  case NEURAL_NETWORK:
+                     cellMorphs[x][y] = classifyMorphogen(predecessorCells[x][y].morphogen, cells[x][y]);
+                     break;
+
+                  case VECTOR_SEARCH_TREE:
+                     cellMorphs[x][y] = searchVectorMetamorphs(predecessorCells[x][y].morphogen, cells[x][y], n);
+                     break;
+
+                  case PARTITIONED_SEARCH_TREE:
                      Metamorph m = new Metamorph(predecessorCells[x][y].morphogen, cells[x][y]);
-                     RDsearch searchList = metamorphSearch.search((RDclient)m, Parameters.MAX_CELL_METAMORPHS, n);
-                     for ( ; searchList != null; searchList = searchList.srchnext)
+                     RDtree.SearchContext ctx = metamorphSearchContext;
+                     int numFound;
+                     for (MetamorphPartitions.Partition partition : metamorphPartitions.order(m.morphogen))
                      {
-                        float d = searchList.distance;
-                        if (d <= Parameters.MAX_MORPHOGEN_COMPARE_DISTANCE)
+                        // Partition cannot contain a closer match?
+                        float cutoff = Parameters.MAX_MORPHOGEN_COMPARE_DISTANCE;
+                        if ((cellMorphs[x][y] != null) &&
+                            (cellMorphs[x][y].morphs.size() == Parameters.MAX_CELL_METAMORPHS))
+                        {
+                           cutoff = cellMorphs[x][y].morphs.get(0).morphogenDistance;
+                        }
+                        if (partition.bound > cutoff)
+                        {
+                           break;
+                        }
+                        // Scan small partitions.
+                        if (partition.metamorphs.size() <= MetamorphPartitions.MAX_SCAN_SIZE)
+                        {
+                           for (Metamorph m2 : partition.metamorphs)
+                           {
+                              float d = m2.morphogen.compare(m.morphogen);
+                              if ((d <= Parameters.MAX_MORPHOGEN_COMPARE_DISTANCE) && (d <= cutoff))
+                              {
+                                 if (cellMorphs[x][y] == null)
+                                 {
+                                    cellMorphs[x][y] = new CellMetamorphs();
+                                 }
+                                 cellMorphs[x][y].add(m2, d);
+                              }
+                           }
+                           continue;
+                        }
+                        numFound = partition.search.search(ctx, (RDclient)m, Parameters.MAX_CELL_METAMORPHS,
+                                                           partition.metamorphs.size(), cutoff);
+                        for (int i = 0; i < numFound; i++)
                         {
-                           m = (Metamorph)searchList.node.client;
                            if (cellMorphs[x][y] == null)
                            {
                               cellMorphs[x][y] = new CellMetamorphs();
                            }
-                           cellMorphs[x][y].add(m, d);
-                           m.usage = true;
+                           cellMorphs[x][y].add((Metamorph)ctx.resultClients[i], ctx.resultDistances[i]);
                         }
                      }
                      break;
-
-                  case NEURAL_NETWORK:
-                     cellMorphs[x][y] = classifyMorphogen(predecessorCells[x][y].morphogen, cells[x][y]);
-                     break;
                   }
                }
             }
          }
-         if (Parameters.METAMORPH_EXEC_TYPE == METAMORPH_EXEC_OPTION.LINEAR_SEARCH)
+         if ((Parameters.METAMORPH_EXEC_TYPE == METAMORPH_EXEC_OPTION.LINEAR_SEARCH) ||
+             (Parameters.METAMORPH_EXEC_TYPE == METAMORPH_EXEC_OPTION.PARTITIONED_SEARCH_TREE))
          {
             for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
             {
@@ -533,6 +854,44 @@ public class Organism
          }
       }
 
+      if (metrics != null)
+      {
+         t = metrics.time(OrganismMetrics.MATCH_SEARCH, t);
+         int queries = 0;
+         int matched = 0;
+         int matches = 0;
+         for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+         {
+            for (y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
+            {
+               if ((predecessorCells[x][y].morphogen != null) &&
+                   (predecessorCells[x][y].type != Cell.EMPTY) &&
+                   morphogeneticCell(x, y))
+               {
+                  queries++;
+               }
+               if (cellMorphs[x][y] != null)
+               {
+                  matched++;
+                  matches += cellMorphs[x][y].morphs.size();
+               }
+            }
+         }
+         metrics.count(OrganismMetrics.MATCH_QUERIES, queries);
+         metrics.count(OrganismMetrics.MATCHED_CELLS, matched);
+         metrics.count(OrganismMetrics.MATCHES, matches);
+
+         // Counting is not timed.
+         t = System.nanoTime();
+      }
+
+      // Print search statistics?
+      if (metamorphSearchStats && (metamorphSearchStatsInterval > 0) &&
+          ((tick % metamorphSearchStatsInterval) == 0))
+      {
+         printMetamorphSearchStats();
+      }
+
       // Probabilistically choose neighborhood matching morphogen,
       for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
       {
@@ -544,6 +903,10 @@ public class Organism
             }
          }
       }
+      if (metrics != null)
+      {
+         t = metrics.time(OrganismMetrics.CHOOSE_METAMORPH, t);
+      }
 
       // Morphs with better morphogen matches inhibit competing morphs?
       boolean active = true;
@@ -598,6 +961,10 @@ public class Organism
             }
          }
       }
+      if (metrics != null)
+      {
+         t = metrics.time(OrganismMetrics.INHIBITION, t);
+      }
 
       // Execute metamorphs.
       for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
@@ -646,6 +1013,11 @@ public class Organism
             active = true;
          }
       }
+      if (metrics != null)
+      {
+         t = metrics.time(OrganismMetrics.ADD_CELL_PROPS, t);
+      }
+      int executed = 0;
       for (x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
       {
          for (y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
@@ -653,9 +1025,105 @@ public class Organism
             if (cellPropsMorphs[x][y] != null)
             {
                Metamorph.exec(cells[x][y], cellPropsMorphs, randomizer);
+               executed++;
+            }
+         }
+      }
+      if (metrics != null)
+      {
+         metrics.count(OrganismMetrics.EXECUTED_CELLS, executed);
+         metrics.time(OrganismMetrics.METAMORPH_EXEC, t);
+      }
+   }
+
+
+   // Search tree for metamorphs matching cell morphogens, in the cell
+   // order of execMetamorphs. Identical morphogens are mapped to one
+   // query, which the batch lookup searches once.
+   void searchMetamorphs(int n)
+   {
+      ArrayList<Metamorph> queries = new ArrayList<Metamorph>();
+      HashMap<Integer, ArrayList<Metamorph> > distinct = new HashMap<Integer, ArrayList<Metamorph> >();
+      int hits = 0;
+
+      for (int x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+      {
+         for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
+         {
+            Morphogen morphogen = predecessorCells[x][y].morphogen;
+            if ((morphogen != null) &&
+                (predecessorCells[x][y].type != Cell.EMPTY) &&
+                morphogeneticCell(x, y))
+            {
+               Metamorph query = null;
+               ArrayList<Metamorph> matches = distinct.get(morphogen.hashCode);
+               if (matches == null)
+               {
+                  matches = new ArrayList<Metamorph>();
+                  distinct.put(morphogen.hashCode, matches);
+               }
+               for (Metamorph m : matches)
+               {
+                  if (m.morphogen.identical(morphogen))
+                  {
+                     query = m;
+                     break;
+                  }
+               }
+               if (query == null)
+               {
+                  query = new Metamorph(morphogen, cells[x][y]);
+                  matches.add(query);
+               }
+               else
+               {
+                  hits++;
+               }
+               queries.add(query);
             }
          }
       }
+      int maxFind = Parameters.MAX_CELL_METAMORPHS;
+      if (maxFind >= n)
+      {
+         // All metamorphs within distance are wanted.
+         maxFind = Integer.MAX_VALUE;
+      }
+      metamorphSearch.lookupBatch(metamorphLookupContext, queries.toArray(new RDclient[queries.size()]),
+                                  queries.size(), maxFind, n, Parameters.MAX_MORPHOGEN_COMPARE_DISTANCE);
+      if (metrics != null)
+      {
+         metrics.count(OrganismMetrics.CACHE_HITS, hits);
+      }
+   }
+
+
+   // Search vector tree for metamorphs matching cell morphogen,
+   // as searchMetamorphs does for a single morphogen.
+   CellMetamorphs searchVectorMetamorphs(Morphogen morphogen, Cell cell, int n)
+   {
+      CellMetamorphs cellMorphs = null;
+
+      int maxFind = Parameters.MAX_CELL_METAMORPHS;
+      if (maxFind >= n)
+      {
+         // All metamorphs within distance are wanted.
+         maxFind = Integer.MAX_VALUE;
+      }
+      RDarrayTree.SearchContext ctx = metamorphVectorSearchContext;
+      int numFound = metamorphVectorSearch.search(ctx, new Metamorph(morphogen, cell), maxFind, n,
+                                                  Parameters.MAX_MORPHOGEN_COMPARE_DISTANCE);
+      for (int i = 0; i < numFound; i++)
+      {
+         Metamorph m = (Metamorph)metamorphVectorSearch.getClient(ctx.resultIds[i]);
+         if (cellMorphs == null)
+         {
+            cellMorphs = new CellMetamorphs();
+         }
+         cellMorphs.add(m, ctx.resultDistances[i]);
+         m.usage = true;
+      }
+      return(cellMorphs);
    }
 
 
@@ -0,0 +1,373 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Organism update metrics.
+ *
+ * Phase timers accumulate nanoseconds spent in each phase of an update,
+ * and counters count update events. Organisms record into the metrics
+ * registered as Organism.metrics; when it is null, updates only test it.
+ * Metrics may be served as a JMX bean and logged periodically to a CSV
+ * file of cumulative values.
+ */
+
+package morphozoic;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class OrganismMetrics implements OrganismMetricsMBean
+{
+   // Phases.
+   public static final int MORPHOGEN_GENERATION = 0;
+   public static final int PREDECESSOR_CLONE    = 1;
+   public static final int MATCH_SEARCH         = 2;
+   public static final int CHOOSE_METAMORPH     = 3;
+   public static final int INHIBITION           = 4;
+   public static final int ADD_CELL_PROPS       = 5;
+   public static final int METAMORPH_EXEC       = 6;
+   public static final int METAMORPH_SAVE       = 7;
+   public static final int NUM_PHASES           = 8;
+   public static final String[] PHASE_NAMES =
+   {
+      "morphogenGeneration", "predecessorClone", "matchSearch", "chooseMetamorph",
+      "inhibition", "addCellProps", "metamorphExec", "metamorphSave"
+   };
+
+   // Counters.
+   public static final int TICKS            = 0;
+   public static final int MORPHOGENS       = 1;
+   public static final int MATCH_QUERIES    = 2;
+   public static final int MATCHED_CELLS    = 3;
+   public static final int MATCHES          = 4;
+   public static final int CACHE_HITS       = 5;
+   public static final int EXECUTED_CELLS   = 6;
+   public static final int SAVED_METAMORPHS = 7;
+   public static final int NUM_COUNTERS     = 8;
+   public static final String[] COUNTER_NAMES =
+   {
+      "ticks", "morphogens", "matchQueries", "matchedCells",
+      "matches", "cacheHits", "executedCells", "savedMetamorphs"
+   };
+
+   // JMX domain.
+   public static final String JMX_DOMAIN = "morphozoic";
+
+   // Phase nanoseconds and counts.
+   LongAdder[] phaseNanos;
+   LongAdder[] counts;
+
+   // Registered JMX name.
+   ObjectName jmxName;
+
+   // CSV logger.
+   ScheduledExecutorService logger;
+   PrintWriter              logWriter;
+   long startTime;
+
+   // Constructor.
+   public OrganismMetrics()
+   {
+      phaseNanos = new LongAdder[NUM_PHASES];
+      for (int i = 0; i < NUM_PHASES; i++)
+      {
+         phaseNanos[i] = new LongAdder();
+      }
+      counts = new LongAdder[NUM_COUNTERS];
+      for (int i = 0; i < NUM_COUNTERS; i++)
+      {
+         counts[i] = new LongAdder();
+      }
+      startTime = System.currentTimeMillis();
+   }
+
+
+   // Add time since start to phase: return current time as next phase start.
+   public long time(int phase, long start)
+   {
+      long t = System.nanoTime();
+
+      phaseNanos[phase].add(t - start);
+      return(t);
+   }
+
+
+   // Count.
+   public void count(int counter, long n)
+   {
+      counts[counter].add(n);
+   }
+
+
+   // Get phase nanoseconds.
+   public long getPhaseNanos(int phase)
+   {
+      return(phaseNanos[phase].sum());
+   }
+
+
+   // Get count.
+   public long getCount(int counter)
+   {
+      return(counts[counter].sum());
+   }
+
+
+   // Register as JMX bean with name, replacing any bean of that name.
+   public void register(String name)
+   {
+      try
+      {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName  oname  = new ObjectName(JMX_DOMAIN + ":type=OrganismMetrics,name=" + ObjectName.quote(name));
+         unregister();
+         if (server.isRegistered(oname))
+         {
+            server.unregisterMBean(oname);
+         }
+         server.registerMBean(this, oname);
+         jmxName = oname;
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot register organism metrics " + name + ":" + e.getMessage());
+      }
+   }
+
+
+   // Unregister JMX bean.
+   public void unregister()
+   {
+      if (jmxName != null)
+      {
+         try
+         {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+         }
+         catch (Exception e) {}
+         jmxName = null;
+      }
+   }
+
+
+   // Start logging to CSV file every interval seconds.
+   public void startLogging(String filename, int interval) throws IOException
+   {
+      stopLogging();
+      logWriter = new PrintWriter(new FileWriter(filename));
+      StringBuilder header = new StringBuilder("elapsedMs");
+      for (int i = 0; i < NUM_COUNTERS; i++)
+      {
+         header.append(",").append(COUNTER_NAMES[i]);
+      }
+      for (int i = 0; i < NUM_PHASES; i++)
+      {
+         header.append(",").append(PHASE_NAMES[i]).append("Ns");
+      }
+      logWriter.println(header.toString());
+      logWriter.flush();
+      ThreadFactory factory = new ThreadFactory()
+      {
+         public Thread newThread(Runnable r)
+         {
+            Thread thread = new Thread(r, "OrganismMetrics logger");
+
+            thread.setDaemon(true);
+            return(thread);
+         }
+      };
+      Runnable task = new Runnable()
+      {
+         public void run()
+         {
+            log();
+         }
+      };
+      logger = Executors.newSingleThreadScheduledExecutor(factory);
+      logger.scheduleAtFixedRate(task, interval, interval, TimeUnit.SECONDS);
+   }
+
+
+   // Stop logging, logging final values.
+   public void stopLogging()
+   {
+      if (logger != null)
+      {
+         logger.shutdown();
+         try
+         {
+            logger.awaitTermination(1, TimeUnit.SECONDS);
+         }
+         catch (InterruptedException e) {}
+         logger = null;
+         log();
+         logWriter.close();
+         logWriter = null;
+      }
+   }
+
+
+   // Log current values.
+   synchronized void log()
+   {
+      if (logWriter == null)
+      {
+         return;
+      }
+      StringBuilder line = new StringBuilder();
+      line.append(System.currentTimeMillis() - startTime);
+      for (int i = 0; i < NUM_COUNTERS; i++)
+      {
+         line.append(",").append(counts[i].sum());
+      }
+      for (int i = 0; i < NUM_PHASES; i++)
+      {
+         line.append(",").append(phaseNanos[i].sum());
+      }
+      logWriter.println(line.toString());
+      logWriter.flush();
+   }
+
+
+   // Print.
+   public void print()
+   {
+      long ticks = getTicks();
+
+      System.out.print("Organism metrics:");
+      for (int i = 0; i < NUM_COUNTERS; i++)
+      {
+         System.out.print(" " + COUNTER_NAMES[i] + "=" + counts[i].sum());
+      }
+      System.out.println();
+      System.out.print("Phase ms per tick:");
+      for (int i = 0; i < NUM_PHASES; i++)
+      {
+         double ms = 0.0;
+         if (ticks > 0)
+         {
+            ms = (double)phaseNanos[i].sum() / ((double)ticks * 1.0e6);
+         }
+         System.out.print(" " + PHASE_NAMES[i] + "=" + String.format("%.3f", ms));
+      }
+      System.out.println();
+   }
+
+
+   // OrganismMetricsMBean.
+   public long getTicks()
+   {
+      return(counts[TICKS].sum());
+   }
+
+
+   public long getMorphogens()
+   {
+      return(counts[MORPHOGENS].sum());
+   }
+
+
+   public long getMatchQueries()
+   {
+      return(counts[MATCH_QUERIES].sum());
+   }
+
+
+   public long getMatchedCells()
+   {
+      return(counts[MATCHED_CELLS].sum());
+   }
+
+
+   public long getMatches()
+   {
+      return(counts[MATCHES].sum());
+   }
+
+
+   public long getCacheHits()
+   {
+      return(counts[CACHE_HITS].sum());
+   }
+
+
+   public long getExecutedCells()
+   {
+      return(counts[EXECUTED_CELLS].sum());
+   }
+
+
+   public long getSavedMetamorphs()
+   {
+      return(counts[SAVED_METAMORPHS].sum());
+   }
+
+
+   public long getMorphogenGenerationNanos()
+   {
+      return(phaseNanos[MORPHOGEN_GENERATION].sum());
+   }
+
+
+   public long getPredecessorCloneNanos()
+   {
+      return(phaseNanos[PREDECESSOR_CLONE].sum());
+   }
+
+
+   public long getMatchSearchNanos()
+   {
+      return(phaseNanos[MATCH_SEARCH].sum());
+   }
+
+
+   public long getChooseMetamorphNanos()
+   {
+      return(phaseNanos[CHOOSE_METAMORPH].sum());
+   }
+
+
+   public long getInhibitionNanos()
+   {
+      return(phaseNanos[INHIBITION].sum());
+   }
+
+
+   public long getAddCellPropsNanos()
+   {
+      return(phaseNanos[ADD_CELL_PROPS].sum());
+   }
+
+
+   public long getMetamorphExecNanos()
+   {
+      return(phaseNanos[METAMORPH_EXEC].sum());
+   }
+
+
+   public long getMetamorphSaveNanos()
+   {
+      return(phaseNanos[METAMORPH_SAVE].sum());
+   }
+
+
+   public void reset()
+   {
+      for (int i = 0; i < NUM_PHASES; i++)
+      {
+         phaseNanos[i].reset();
+      }
+      for (int i = 0; i < NUM_COUNTERS; i++)
+      {
+         counts[i].reset();
+      }
+   }
+}
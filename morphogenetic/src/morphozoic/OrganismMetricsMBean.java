@@ -0,0 +1,33 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Organism update metrics management interface.
+ */
+
+package morphozoic;
+
+public interface OrganismMetricsMBean
+{
+   // Counts.
+   public long getTicks();
+   public long getMorphogens();
+   public long getMatchQueries();
+   public long getMatchedCells();
+   public long getMatches();
+   public long getCacheHits();
+   public long getExecutedCells();
+   public long getSavedMetamorphs();
+
+   // Phase nanoseconds.
+   public long getMorphogenGenerationNanos();
+   public long getPredecessorCloneNanos();
+   public long getMatchSearchNanos();
+   public long getChooseMetamorphNanos();
+   public long getInhibitionNanos();
+   public long getAddCellPropsNanos();
+   public long getMetamorphExecNanos();
+   public long getMetamorphSaveNanos();
+
+   // Reset metrics.
+   public void reset();
+}
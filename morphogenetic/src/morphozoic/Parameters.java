@@ -65,7 +65,9 @@ public class Parameters
    {
       LINEAR_SEARCH,
       SEARCH_TREE,
-      NEURAL_NETWORK
+      NEURAL_NETWORK,
+      PARTITIONED_SEARCH_TREE,
+      VECTOR_SEARCH_TREE
    }
    public static final METAMORPH_EXEC_OPTION DEFAULT_METAMORPH_EXEC_TYPE = METAMORPH_EXEC_OPTION.SEARCH_TREE;
    public static METAMORPH_EXEC_OPTION       METAMORPH_EXEC_TYPE         = DEFAULT_METAMORPH_EXEC_TYPE;
@@ -117,6 +119,14 @@ public class Parameters
       case NEURAL_NETWORK:
          writer.writeInt(2);
          break;
+
+      case PARTITIONED_SEARCH_TREE:
+         writer.writeInt(3);
+         break;
+
+      case VECTOR_SEARCH_TREE:
+         writer.writeInt(4);
+         break;
       }
       writer.writeInt(RANDOM_SEED);
       writer.flush();
@@ -165,6 +175,14 @@ public class Parameters
       case 2:
          METAMORPH_EXEC_TYPE = METAMORPH_EXEC_OPTION.NEURAL_NETWORK;
          break;
+
+      case 3:
+         METAMORPH_EXEC_TYPE = METAMORPH_EXEC_OPTION.PARTITIONED_SEARCH_TREE;
+         break;
+
+      case 4:
+         METAMORPH_EXEC_TYPE = METAMORPH_EXEC_OPTION.VECTOR_SEARCH_TREE;
+         break;
       }
       RANDOM_SEED = reader.readInt();
    }
@@ -211,6 +229,14 @@ public class Parameters
       case NEURAL_NETWORK:
          System.out.println("NEURAL_NETWORK");
          break;
+
+      case PARTITIONED_SEARCH_TREE:
+         System.out.println("PARTITIONED_SEARCH_TREE");
+         break;
+
+      case VECTOR_SEARCH_TREE:
+         System.out.println("VECTOR_SEARCH_TREE");
+         break;
       }
       System.out.println("DEFAULT_ORGANISM = " + DEFAULT_ORGANISM);
       System.out.println("RANDOM_SEED = " + RANDOM_SEED);
@@ -14,10 +14,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Random;
 import java.util.Vector;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 import javax.imageio.ImageIO;
 
-import rdtree.RDclient;
 import morphozoic.Cell;
 import morphozoic.Metamorph;
 import morphozoic.Organism;
@@ -148,7 +149,8 @@ public class Celegans extends Organism
       {
          try
          {
-            reader = new DataInputStream(new FileInputStream(execFilename));
+            CRC32 checksum = new CRC32();
+            reader = new DataInputStream(new CheckedInputStream(new FileInputStream(execFilename), checksum));
             Parameters.load(reader);
             init();
             int     x, y;
@@ -190,7 +192,15 @@ public class Celegans extends Organism
                   while ((m = Metamorph.load(reader)) != null)
                   {
                      metamorphs.add(m);
-                     metamorphSearch.insert((RDclient)m);
+                  }
+                  buildMetamorphSearch(checksum.getValue());
+                  break;
+
+               case PARTITIONED_SEARCH_TREE:
+                  while ((m = Metamorph.load(reader)) != null)
+                  {
+                     metamorphs.add(m);
+                     metamorphPartitions.insert(m);
                   }
                   break;
 
@@ -201,6 +211,15 @@ public class Celegans extends Organism
                   }
                   createMetamorphNNs();
                   break;
+
+               case VECTOR_SEARCH_TREE:
+                  while ((m = Metamorph.load(reader)) != null)
+                  {
+                     metamorphs.add(m);
+                  }
+                  buildMetamorphSearch(checksum.getValue());
+                  buildMetamorphVectorSearch();
+                  break;
                }
             }
          }
@@ -3,7 +3,6 @@
 package morphozoic.applications;
 
 import java.util.Random;
-import rdtree.RDclient;
 import morphozoic.Metamorph;
 import morphozoic.Organism;
 import morphozoic.Parameters;
@@ -329,22 +328,7 @@ public class CellRegeneration extends Organism
             }
          }
       }
-      switch (Parameters.METAMORPH_EXEC_TYPE)
-      {
-      case LINEAR_SEARCH:
-         break;
-
-      case SEARCH_TREE:
-         for (Metamorph m : metamorphs)
-         {
-            metamorphSearch.insert((RDclient)m);
-         }
-         break;
-
-      case NEURAL_NETWORK:
-         createMetamorphNNs();
-         break;
-      }
+      setMetamorphs(metamorphs, null);
    }
 
 
@@ -5,12 +5,12 @@ package morphozoic.applications;
 import java.awt.Dimension;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.HashMap;
 import morphozoic.Parameters;
 import morphozoic.Cell;
 
 // Optimize CellRegeneration application.
-public class CellRegenerationOptimizer
+public class CellRegenerationOptimizer extends GeneticAlgorithm<CellRegenerationOptimizer.CellRegenerationMember>
 {
    // Options.
    public static final String OPTIONS =
@@ -33,7 +33,10 @@ public class CellRegenerationOptimizer
       + "\n\t[-minMetamorphRandomBias <minimum metamorph random bias>]"
       + "\n\t[-maxMetamorphRandomBias <maximum metamorph random bias>]"
       + "\n\t[-deltaMetamorphRandomBias <delta metamorph random bias>]"
-      + "\n\t[-inhibitCompetingMorphogens <\"true\", \"false\", or \"random\">]";
+      + "\n\t[-inhibitCompetingMorphogens <\"true\", \"false\", or \"random\">]"
+      + "\n\t[-numWorkers <number of member evaluation worker processes (default=0: none)>]"
+      + "\n\t[-fitnessCacheFile <file caching evaluations of member parameters>]"
+      + "\n\t[-successiveHalving <reduction factor> <number of reduced update step rungs>]";
 
    // Optimization parameters:
 
@@ -82,8 +85,24 @@ public class CellRegenerationOptimizer
    }
    public static INHIBIT_COMPETING_MORPHOGENS_VALUES INHIBIT_COMPETING_MORPHOGENS = INHIBIT_COMPETING_MORPHOGENS_VALUES.RANDOM;
 
+   // Number of member evaluation worker processes: 0 = evaluate in this process.
+   public static int NUM_WORKERS = 0;
+
+   // Successive halving: evaluate reduction factor ^ rungs candidates
+   // for each member with update steps reduced by the factor for each
+   // rung, retaining the fittest 1 / factor of them at each rung.
+   // Factor 0 = none.
+   public static int SUCCESSIVE_HALVING_FACTOR = 0;
+   public static int SUCCESSIVE_HALVING_RUNGS  = 1;
+
+   // Fitness cache file: null = none.
+   public static String FITNESS_CACHE_FILE_NAME = null;
+
+   // Worker process options.
+   static String[] workerOptions = new String[0];
+
    // CellRegeneration population member.
-   class CellRegenerationMember
+   static class CellRegenerationMember
    {
       // Error.
       float error;
@@ -115,7 +134,7 @@ public class CellRegenerationOptimizer
       boolean INHIBIT_COMPETING_MORPHOGENS;
 
       // Evaluate fitness.
-      void evaluate(CellRegeneration horizontalTarget, CellRegeneration verticalTarget) throws Exception
+      void evaluate(int steps, CellRegeneration horizontalTarget, CellRegeneration verticalTarget) throws Exception
       {
          // Set parameters.
          setParameters();
@@ -125,7 +144,7 @@ public class CellRegenerationOptimizer
          args[0]       = "-testBar";
          args[1]       = "horizontal";
          CellRegeneration cellRegeneration = new CellRegeneration(args, 0);
-         for (int i = 0; i < NUM_UPDATE_STEPS; i++)
+         for (int i = 0; i < steps; i++)
          {
             cellRegeneration.update();
          }
@@ -146,7 +165,7 @@ public class CellRegenerationOptimizer
          // Update vertical bar configuration.
          args[1]          = "vertical";
          cellRegeneration = new CellRegeneration(args, 0);
-         for (int i = 0; i < NUM_UPDATE_STEPS; i++)
+         for (int i = 0; i < steps; i++)
          {
             cellRegeneration.update();
          }
@@ -166,6 +185,57 @@ public class CellRegenerationOptimizer
       }
 
 
+      // Encode parameters.
+      String encodeParameters()
+      {
+         StringBuilder parameters = new StringBuilder();
+
+         parameters.append(NEIGHBORHOOD_DIMENSION).append(" ");
+         parameters.append(NUM_NEIGHBORHOODS).append(" ");
+         parameters.append(METAMORPH_DIMENSION).append(" ");
+         parameters.append(MAX_CELL_METAMORPHS).append(" ");
+         parameters.append(METAMORPH_RANDOM_BIAS).append(" ");
+         parameters.append(INHIBIT_COMPETING_MORPHOGENS).append(" ");
+         if (NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS == null)
+         {
+            parameters.append(-1);
+         }
+         else
+         {
+            parameters.append(NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length);
+            for (float weight : NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS)
+            {
+               parameters.append(" ").append(weight);
+            }
+         }
+         return(parameters.toString());
+      }
+
+
+      // Decode parameters.
+      void decodeParameters(String parameters)
+      {
+         String[] values = parameters.trim().split(" ");
+
+         NEIGHBORHOOD_DIMENSION       = Integer.parseInt(values[0]);
+         NUM_NEIGHBORHOODS            = Integer.parseInt(values[1]);
+         METAMORPH_DIMENSION          = Integer.parseInt(values[2]);
+         MAX_CELL_METAMORPHS          = Integer.parseInt(values[3]);
+         METAMORPH_RANDOM_BIAS        = Float.parseFloat(values[4]);
+         INHIBIT_COMPETING_MORPHOGENS = Boolean.parseBoolean(values[5]);
+         int n = Integer.parseInt(values[6]);
+         NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = null;
+         if (n >= 0)
+         {
+            NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[n];
+            for (int i = 0; i < n; i++)
+            {
+               NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[i] = Float.parseFloat(values[7 + i]);
+            }
+         }
+      }
+
+
       // Set parameters.
       void setParameters()
       {
@@ -200,19 +270,52 @@ public class CellRegenerationOptimizer
       }
    }
 
-   // CellRegeneration population.
-   ArrayList<CellRegenerationMember> population;
-
-   // Random numbers.
-   Random randomizer;
-
    // Targets.
    CellRegeneration horizontalTarget;
    CellRegeneration verticalTarget;
 
-   // Constructor.
-   public CellRegenerationOptimizer() throws IllegalArgumentException, IOException, Exception
+   // Targets by test bar, dimensions and cell types: targets are
+   // only read, so they are created once per process and shared.
+   static HashMap<String, CellRegeneration> targets = new HashMap<String, CellRegeneration>();
+
+   // Constructor: a worker only evaluates members.
+   public CellRegenerationOptimizer(boolean worker) throws IllegalArgumentException, IOException, Exception
    {
+      // Random numbers.
+      super(FIT_POPULATION_SIZE, SELECTION.SORTED, Parameters.RANDOM_SEED);
+
+      // Encode members for workers and fitness cache.
+      MemberEncoder<CellRegenerationMember> encoder = new MemberEncoder<CellRegenerationMember>()
+      {
+         public String encode(CellRegenerationMember member)
+         {
+            return(member.encodeParameters());
+         }
+         public CellRegenerationMember decode(String parameters)
+         {
+            CellRegenerationMember member = new CellRegenerationMember();
+            member.decodeParameters(parameters);
+            return(member);
+         }
+         public float getEvaluation(CellRegenerationMember member)
+         {
+            return(member.error);
+         }
+         public void setEvaluation(CellRegenerationMember member, float error)
+         {
+            member.error = error;
+         }
+      };
+      setEncoder(encoder);
+
+      // Get targets.
+      horizontalTarget = getTarget("horizontal");
+      verticalTarget   = getTarget("vertical");
+      if (worker)
+      {
+         return;
+      }
+
       // Print settings.
       System.out.println("Settings:");
       System.out.println("ORGANISM_DIMENSIONS=" + Parameters.ORGANISM_DIMENSIONS.width + "," + Parameters.ORGANISM_DIMENSIONS.height);
@@ -224,88 +327,122 @@ public class CellRegenerationOptimizer
       System.out.println("NUM_GENERATIONS=" + NUM_GENERATIONS);
       System.out.println("NUM_UPDATE_STEPS=" + NUM_UPDATE_STEPS);
 
-      // Random numbers.
-      randomizer = new Random(Parameters.RANDOM_SEED);
-
-      // Create targets.
-      String[] args    = new String[2];
-      args[0]          = "-testBar";
-      args[1]          = "horizontal";
-      horizontalTarget = new CellRegeneration(args, 0);
-      horizontalTarget.markHorizontalBar(0);
-      args[1]        = "vertical";
-      verticalTarget = new CellRegeneration(args, 0);
-      verticalTarget.markVerticalBar(0);
+      // Load fitness cache.
+      if (FITNESS_CACHE_FILE_NAME != null)
+      {
+         openFitnessCache(FITNESS_CACHE_FILE_NAME, "CellRegenerationOptimizer " +
+                          Parameters.ORGANISM_DIMENSIONS.width + "x" + Parameters.ORGANISM_DIMENSIONS.height + " " +
+                          Parameters.NUM_CELL_TYPES + " " + Parameters.RANDOM_SEED);
+      }
+
+      // Start member evaluation workers.
+      startWorkers(CellRegenerationOptimizer.class.getName(), workerOptions, NUM_WORKERS);
 
       // Create CellRegeneration population.
-      population = new ArrayList<CellRegenerationMember>();
-      for (int i = 0; i < POPULATION_SIZE; i++)
+      setSuccessiveHalving(SUCCESSIVE_HALVING_FACTOR, SUCCESSIVE_HALVING_RUNGS);
+      for (int i = 0, j = POPULATION_SIZE * getNumCandidates(); i < j; i++)
       {
-         CellRegenerationMember member = new CellRegenerationMember();
-         population.add(member);
-         member.error = 0.0f;
+         population.add(randomMember());
+      }
+   }
+
+
+   // Get target for test bar and current dimensions and cell types.
+   static synchronized CellRegeneration getTarget(String testBar) throws IllegalArgumentException, IOException, Exception
+   {
+      String key = testBar + " " +
+                   Parameters.ORGANISM_DIMENSIONS.width + "x" + Parameters.ORGANISM_DIMENSIONS.height + " " +
+                   Parameters.NUM_CELL_TYPES;
+      CellRegeneration target = targets.get(key);
+
+      if (target != null)
+      {
+         return(target);
+      }
+      String[] args = new String[2];
+      args[0]       = "-testBar";
+      args[1]       = testBar;
+      target        = new CellRegeneration(args, 0);
+      if (testBar.equals("horizontal"))
+      {
+         target.markHorizontalBar(0);
+      }
+      else
+      {
+         target.markVerticalBar(0);
+      }
+      targets.put(key, target);
+      return(target);
+   }
+
+
+   // Generate random member.
+   CellRegenerationMember randomMember()
+   {
+      CellRegenerationMember member = new CellRegenerationMember();
+      member.error = 0.0f;
 
-         // Generate member parameters.
-         member.NEIGHBORHOOD_DIMENSION = randomizer.nextInt(MAX_NEIGHBORHOOD_DIMENSION - MIN_NEIGHBORHOOD_DIMENSION + 1) + MIN_NEIGHBORHOOD_DIMENSION;
-         if ((member.NEIGHBORHOOD_DIMENSION % 2) != 1)
+      // Generate member parameters.
+      member.NEIGHBORHOOD_DIMENSION = randomizer.nextInt(MAX_NEIGHBORHOOD_DIMENSION - MIN_NEIGHBORHOOD_DIMENSION + 1) + MIN_NEIGHBORHOOD_DIMENSION;
+      if ((member.NEIGHBORHOOD_DIMENSION % 2) != 1)
+      {
+         if (randomizer.nextBoolean())
          {
-            if (randomizer.nextBoolean())
-            {
-               member.NEIGHBORHOOD_DIMENSION--;
-            }
-            else
-            {
-               member.NEIGHBORHOOD_DIMENSION++;
-            }
+            member.NEIGHBORHOOD_DIMENSION--;
          }
-         member.NUM_NEIGHBORHOODS = randomizer.nextInt(MAX_NUM_NEIGHBORHOODS - MIN_NUM_NEIGHBORHOODS + 1) + MIN_NUM_NEIGHBORHOODS;
-         member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[member.NUM_NEIGHBORHOODS];
-         float f = 0.0f;
-         for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+         else
          {
-            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = randomizer.nextFloat();
-            f += member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j];
+            member.NEIGHBORHOOD_DIMENSION++;
          }
-         for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      }
+      member.NUM_NEIGHBORHOODS = randomizer.nextInt(MAX_NUM_NEIGHBORHOODS - MIN_NUM_NEIGHBORHOODS + 1) + MIN_NUM_NEIGHBORHOODS;
+      member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[member.NUM_NEIGHBORHOODS];
+      float f = 0.0f;
+      for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      {
+         member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = randomizer.nextFloat();
+         f += member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j];
+      }
+      for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      {
+         if (f > 0.0f)
          {
-            if (f > 0.0f)
-            {
-               member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] /= f;
-            }
-            else
-            {
-               member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = 1.0f / member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length;
-            }
+            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] /= f;
+         }
+         else
+         {
+            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = 1.0f / member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length;
          }
-         member.METAMORPH_DIMENSION = randomizer.nextInt(MAX_METAMORPH_DIMENSION - MIN_METAMORPH_DIMENSION + 1) + MIN_METAMORPH_DIMENSION;
-         if ((member.METAMORPH_DIMENSION % 2) != 1)
+      }
+      member.METAMORPH_DIMENSION = randomizer.nextInt(MAX_METAMORPH_DIMENSION - MIN_METAMORPH_DIMENSION + 1) + MIN_METAMORPH_DIMENSION;
+      if ((member.METAMORPH_DIMENSION % 2) != 1)
+      {
+         if (randomizer.nextBoolean())
          {
-            if (randomizer.nextBoolean())
-            {
-               member.METAMORPH_DIMENSION--;
-            }
-            else
-            {
-               member.METAMORPH_DIMENSION++;
-            }
+            member.METAMORPH_DIMENSION--;
          }
-         member.MAX_CELL_METAMORPHS   = randomizer.nextInt(MAX_MAX_CELL_METAMORPHS - MIN_MAX_CELL_METAMORPHS + 1) + MIN_MAX_CELL_METAMORPHS;
-         member.METAMORPH_RANDOM_BIAS = (randomizer.nextFloat() * (MAX_METAMORPH_RANDOM_BIAS - MIN_METAMORPH_RANDOM_BIAS)) + MIN_METAMORPH_RANDOM_BIAS;
-         switch (INHIBIT_COMPETING_MORPHOGENS)
+         else
          {
-         case TRUE:
-            member.INHIBIT_COMPETING_MORPHOGENS = true;
-            break;
+            member.METAMORPH_DIMENSION++;
+         }
+      }
+      member.MAX_CELL_METAMORPHS   = randomizer.nextInt(MAX_MAX_CELL_METAMORPHS - MIN_MAX_CELL_METAMORPHS + 1) + MIN_MAX_CELL_METAMORPHS;
+      member.METAMORPH_RANDOM_BIAS = (randomizer.nextFloat() * (MAX_METAMORPH_RANDOM_BIAS - MIN_METAMORPH_RANDOM_BIAS)) + MIN_METAMORPH_RANDOM_BIAS;
+      switch (INHIBIT_COMPETING_MORPHOGENS)
+      {
+      case TRUE:
+         member.INHIBIT_COMPETING_MORPHOGENS = true;
+         break;
 
-         case FALSE:
-            member.INHIBIT_COMPETING_MORPHOGENS = false;
-            break;
+      case FALSE:
+         member.INHIBIT_COMPETING_MORPHOGENS = false;
+         break;
 
-         case RANDOM:
-            member.INHIBIT_COMPETING_MORPHOGENS = randomizer.nextBoolean();
-            break;
-         }
+      case RANDOM:
+         member.INHIBIT_COMPETING_MORPHOGENS = randomizer.nextBoolean();
+         break;
       }
+      return(member);
    }
 
 
@@ -381,13 +518,23 @@ public class CellRegenerationOptimizer
    // Run optimization.
    public void run() throws Exception
    {
-      // Evaluate initial population
-      for (int i = 0; i < POPULATION_SIZE; i++)
+      try
       {
-         CellRegenerationMember member = population.get(i);
-         member.evaluate(horizontalTarget, verticalTarget);
+         optimize();
       }
-      sortPopulation();
+      finally
+      {
+         shutdown();
+      }
+   }
+
+
+   // Optimize.
+   void optimize() throws Exception
+   {
+      // Evaluate initial population
+      population = evaluateCandidates(population, NUM_UPDATE_STEPS);
+      sort();
       System.out.println("Generation=0");
       System.out.println("Member\tError");
       for (int i = 0; i < POPULATION_SIZE; i++)
@@ -399,33 +546,9 @@ public class CellRegenerationOptimizer
       // Run generations.
       for (int g = 0; g < NUM_GENERATIONS; g++)
       {
-         // Select fit population.
-         ArrayList<CellRegenerationMember> fitPopulation = new ArrayList<CellRegenerationMember>();
-         for (int i = 0; i < FIT_POPULATION_SIZE; i++)
-         {
-            CellRegenerationMember member = population.get(i);
-            fitPopulation.add(member);
-         }
-         population = fitPopulation;
-
-         // Replenish population.
-         for (int i = 0, j = (POPULATION_SIZE - FIT_POPULATION_SIZE); i < j; i++)
-         {
-            CellRegenerationMember member = null;
-            if ((randomizer.nextFloat() <= CROSSOVER_PROBABILITY) && (FIT_POPULATION_SIZE > 0))
-            {
-               member = crossover(
-                  population.get(randomizer.nextInt(FIT_POPULATION_SIZE)),
-                  population.get(randomizer.nextInt(FIT_POPULATION_SIZE)));
-            }
-            else
-            {
-               member = new CellRegenerationMember();
-            }
-            member.evaluate(horizontalTarget, verticalTarget);
-            population.add(member);
-         }
-         sortPopulation();
+         // Select fit population and replenish population.
+         nextGeneration();
+         sort();
 
          System.out.println("Generation=" + (g + 1));
          System.out.println("Member\tError");
@@ -447,43 +570,65 @@ public class CellRegenerationOptimizer
    }
 
 
-   // Sort population by ascending error.
-   void sortPopulation()
+   // Replenish population with offspring of the fit population.
+   public void breed(ArrayList<Integer> fitIndexes) throws Exception
    {
-      ArrayList<CellRegenerationMember> sortedPopulation = new ArrayList<CellRegenerationMember>();
-      boolean done = false;
-      while (!done)
+      ArrayList<CellRegenerationMember> offspring = new ArrayList<CellRegenerationMember>();
+      for (int i = 0, j = (POPULATION_SIZE - FIT_POPULATION_SIZE) * getNumCandidates(); i < j; i++)
       {
-         done = true;
-         CellRegenerationMember fitMember = null;
-         int fitMemberIndex = -1;
-         for (int i = 0; i < POPULATION_SIZE; i++)
+         CellRegenerationMember member = null;
+         if ((randomizer.nextFloat() <= CROSSOVER_PROBABILITY) && (FIT_POPULATION_SIZE > 0))
          {
-            CellRegenerationMember member = population.get(i);
-            if (member != null)
-            {
-               if ((fitMember == null) || (member.error < fitMember.error))
-               {
-                  fitMember      = member;
-                  fitMemberIndex = i;
-               }
-            }
+            member = crossover(
+               population.get(randomizer.nextInt(FIT_POPULATION_SIZE)),
+               population.get(randomizer.nextInt(FIT_POPULATION_SIZE)));
          }
-         if (fitMemberIndex != -1)
+         else if (SUCCESSIVE_HALVING_FACTOR > 0)
          {
-            sortedPopulation.add(fitMember);
-            population.set(fitMemberIndex, null);
-            done = false;
+            // Halving ranks candidates: give it random ones to rank.
+            member = randomMember();
          }
+         else
+         {
+            member = new CellRegenerationMember();
+         }
+         offspring.add(member);
       }
-      population = sortedPopulation;
+      offspring = evaluateCandidates(offspring, NUM_UPDATE_STEPS);
+      for (int i = 0, j = offspring.size(); i < j; i++)
+      {
+         population.set(FIT_POPULATION_SIZE + i, offspring.get(i));
+      }
+   }
+
+
+   // Member fitness: negated error.
+   public float getFitness(CellRegenerationMember member)
+   {
+      return(-member.error);
+   }
+
+
+   // Evaluate member.
+   public void evaluate(CellRegenerationMember member) throws Exception
+   {
+      member.evaluate(evaluationSteps, horizontalTarget, verticalTarget);
    }
 
 
    // Main.
    public static void main(String[] args)
    {
-      String usage = "Usage: java morphozoic.applications.CellRegenerationOptimizer" + OPTIONS;
+      run(args);
+   }
+
+
+   // Run optimizer with arguments: return fittest member error,
+   // or NaN if the arguments are invalid or the optimizer fails.
+   public static float run(String[] args)
+   {
+      String  usage  = "Usage: java morphozoic.applications.CellRegenerationOptimizer" + OPTIONS;
+      boolean worker = false;
 
       // Get arguments.
       for (int i = 0; i < args.length; i++)
@@ -494,27 +639,27 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             int w = Integer.parseInt(args[i]);
             if (w <= 0)
             {
                System.err.println("Organism width dimension must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             i++;
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             int h = Integer.parseInt(args[i]);
             if (h <= 0)
             {
                System.err.println("Organism height dimension must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             Parameters.ORGANISM_DIMENSIONS = new Dimension(w, h);
          }
@@ -524,14 +669,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             Parameters.NUM_CELL_TYPES = Integer.parseInt(args[i]);
             if (Parameters.NUM_CELL_TYPES <= 0)
             {
                System.err.println("Number of cell types must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-randomSeed"))
@@ -540,7 +685,7 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             Parameters.RANDOM_SEED = Integer.parseInt(args[i]);
          }
@@ -550,14 +695,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             POPULATION_SIZE = Integer.parseInt(args[i]);
             if (POPULATION_SIZE <= 0)
             {
                System.err.println("Population size must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-fitPopulationSize"))
@@ -566,14 +711,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             FIT_POPULATION_SIZE = Integer.parseInt(args[i]);
             if (FIT_POPULATION_SIZE < 0)
             {
                System.err.println("Invalid fit population size");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-crossoverProbability"))
@@ -582,14 +727,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             CROSSOVER_PROBABILITY = Float.parseFloat(args[i]);
             if ((CROSSOVER_PROBABILITY < 0.0f) || (CROSSOVER_PROBABILITY > 1.0f))
             {
                System.err.println("Invalid crossover probability");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-numGenerations"))
@@ -598,14 +743,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             NUM_GENERATIONS = Integer.parseInt(args[i]);
             if (NUM_GENERATIONS < 0)
             {
                System.err.println("Invalid number of generations");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-numUpdateSteps"))
@@ -614,14 +759,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             NUM_UPDATE_STEPS = Integer.parseInt(args[i]);
             if (NUM_UPDATE_STEPS < 0)
             {
                System.err.println("Invalid number of update steps");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minNeighborhoodDimension"))
@@ -630,20 +775,20 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_NEIGHBORHOOD_DIMENSION = Integer.parseInt(args[i]);
             if (MIN_NEIGHBORHOOD_DIMENSION <= 0)
             {
                System.err.println("Invalid minimum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MIN_NEIGHBORHOOD_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid minimum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxNeighborhoodDimension"))
@@ -652,20 +797,20 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_NEIGHBORHOOD_DIMENSION = Integer.parseInt(args[i]);
             if (MAX_NEIGHBORHOOD_DIMENSION <= 0)
             {
                System.err.println("Invalid maximum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MAX_NEIGHBORHOOD_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid maximum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minNumNeighborhoods"))
@@ -674,14 +819,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_NUM_NEIGHBORHOODS = Integer.parseInt(args[i]);
             if (MIN_NUM_NEIGHBORHOODS <= 0)
             {
                System.err.println("Invalid minimum number of neighborhoods");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxNumNeighborhoods"))
@@ -690,14 +835,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_NUM_NEIGHBORHOODS = Integer.parseInt(args[i]);
             if (MAX_NUM_NEIGHBORHOODS <= 0)
             {
                System.err.println("Invalid maximum number of neighborhoods");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minMetamorphDimension"))
@@ -706,20 +851,20 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_METAMORPH_DIMENSION = Integer.parseInt(args[i]);
             if (MIN_METAMORPH_DIMENSION <= 0)
             {
                System.err.println("Invalid minimum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MIN_METAMORPH_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid minimum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxMetamorphDimension"))
@@ -728,20 +873,20 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_METAMORPH_DIMENSION = Integer.parseInt(args[i]);
             if (MAX_METAMORPH_DIMENSION <= 0)
             {
                System.err.println("Invalid maximum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MAX_METAMORPH_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid maximum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minMaxCellMetamorphs"))
@@ -750,14 +895,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_MAX_CELL_METAMORPHS = Integer.parseInt(args[i]);
             if (MIN_MAX_CELL_METAMORPHS <= 0)
             {
                System.err.println("Invalid minimum maximum number of cell metamorphs");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxMaxCellMetamorphs"))
@@ -766,14 +911,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_MAX_CELL_METAMORPHS = Integer.parseInt(args[i]);
             if (MAX_MAX_CELL_METAMORPHS <= 0)
             {
                System.err.println("Invalid maximum maximum number of cell metamorphs");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minMetamorphRandomBias"))
@@ -782,14 +927,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_METAMORPH_RANDOM_BIAS = Float.parseFloat(args[i]);
             if ((MIN_METAMORPH_RANDOM_BIAS < 0.0f) || (MIN_METAMORPH_RANDOM_BIAS > 1.0f))
             {
                System.err.println("Invalid minimum metamorph random bias");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxMetamorphRandomBias"))
@@ -798,14 +943,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_METAMORPH_RANDOM_BIAS = Float.parseFloat(args[i]);
             if ((MAX_METAMORPH_RANDOM_BIAS < 0.0f) || (MAX_METAMORPH_RANDOM_BIAS > 1.0f))
             {
                System.err.println("Invalid maximum metamorph random bias");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-deltaMetamorphRandomBias"))
@@ -814,14 +959,14 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             DELTA_METAMORPH_RANDOM_BIAS = Float.parseFloat(args[i]);
             if ((DELTA_METAMORPH_RANDOM_BIAS < 0.0f) || (DELTA_METAMORPH_RANDOM_BIAS > 1.0f))
             {
                System.err.println("Invalid delta metamorph random bias");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-inhibitCompetingMorphogens"))
@@ -830,7 +975,7 @@ public class CellRegenerationOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if (args[i].equals("true"))
             {
@@ -848,58 +993,133 @@ public class CellRegenerationOptimizer
             {
                System.err.println("Invalid inhibit competing morphogens value");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
+         else if (args[i].equals("-numWorkers"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            NUM_WORKERS = Integer.parseInt(args[i]);
+            if (NUM_WORKERS < 0)
+            {
+               System.err.println("Invalid number of workers");
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+         }
+         else if (args[i].equals("-fitnessCacheFile"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            FITNESS_CACHE_FILE_NAME = args[i];
+         }
+         else if (args[i].equals("-successiveHalving"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            SUCCESSIVE_HALVING_FACTOR = Integer.parseInt(args[i]);
+            if (SUCCESSIVE_HALVING_FACTOR < 2)
+            {
+               System.err.println("Successive halving reduction factor must be at least 2");
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            SUCCESSIVE_HALVING_RUNGS = Integer.parseInt(args[i]);
+            if (SUCCESSIVE_HALVING_RUNGS <= 0)
+            {
+               System.err.println("Number of successive halving rungs must be positive");
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+         }
+         else if (args[i].equals(OptimizerWorkers.WORKER_OPTION))
+         {
+            worker = true;
+         }
          else
          {
             System.out.println(usage);
-            return;
+            return(Float.NaN);
          }
       }
       if (FIT_POPULATION_SIZE > POPULATION_SIZE)
       {
          System.err.println("Fit population size cannot exceed population size");
-         return;
+         return(Float.NaN);
       }
       if (MIN_NEIGHBORHOOD_DIMENSION > MAX_NEIGHBORHOOD_DIMENSION)
       {
          System.err.println("Minimum neighborhood dimension cannot exceed maximum neighborhood dimension");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_NUM_NEIGHBORHOODS > MAX_NUM_NEIGHBORHOODS)
       {
          System.err.println("Minimum number of neighborhoods cannot exceed maximum number of neighborhoods");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_METAMORPH_DIMENSION > MAX_METAMORPH_DIMENSION)
       {
          System.err.println("Minimum metamorph dimension cannot exceed maximum metamorph dimension");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_MAX_CELL_METAMORPHS > MAX_MAX_CELL_METAMORPHS)
       {
          System.err.println("Minimum maximum cell metamorphs cannot exceed maximum maximum cell metamorphs");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_METAMORPH_RANDOM_BIAS > MAX_METAMORPH_RANDOM_BIAS)
       {
          System.err.println("Minimum metamorph random bias cannot exceed maximum metamorph random bias");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
+      }
+
+      // Run as worker process?
+      if (worker)
+      {
+         try
+         {
+            new CellRegenerationOptimizer(true).serve();
+         }
+         catch (Exception e) {
+            System.err.println(e.getMessage());
+         }
+         return(Float.NaN);
       }
 
       try
       {
-         CellRegenerationOptimizer optimizer = new CellRegenerationOptimizer();
+         workerOptions = args;
+         CellRegenerationOptimizer optimizer = new CellRegenerationOptimizer(false);
          optimizer.run();
+         return(optimizer.population.get(0).error);
       }
       catch (Exception e) {
          System.err.println(e.getMessage());
       }
+      return(Float.NaN);
    }
 }
@@ -0,0 +1,118 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Optimizer fitness cache.
+ *
+ * Fitnesses are keyed by the optimizer's evaluation settings, including
+ * the random seed, and the member's encoded parameters. The cache file
+ * holds a key and fitness per line; new fitnesses are appended to it so
+ * that runs may share it.
+ */
+
+package morphozoic.applications;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+
+public class FitnessCache
+{
+   // Fitnesses.
+   HashMap<String, Float> fitnesses;
+
+   // Cache file writer.
+   PrintWriter writer;
+
+   // Hits and misses.
+   int hits;
+   int misses;
+
+   // Constructor: load cache file.
+   public FitnessCache(String filename) throws IOException
+   {
+      fitnesses = new HashMap<String, Float>();
+      hits      = 0;
+      misses    = 0;
+      if (new File(filename).exists())
+      {
+         BufferedReader reader = new BufferedReader(new FileReader(filename));
+         try
+         {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+               int i = line.lastIndexOf('\t');
+               if (i != -1)
+               {
+                  try
+                  {
+                     fitnesses.put(line.substring(0, i), Float.parseFloat(line.substring(i + 1)));
+                  }
+                  catch (NumberFormatException e)
+                  {
+                     System.err.println("Invalid fitness cache entry: " + line);
+                  }
+               }
+            }
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+      writer = new PrintWriter(new FileWriter(filename, true));
+   }
+
+
+   // Is fitness cached?
+   public synchronized boolean contains(String key)
+   {
+      if (fitnesses.containsKey(key))
+      {
+         hits++;
+         return(true);
+      }
+      else
+      {
+         misses++;
+         return(false);
+      }
+   }
+
+
+   // Get cached fitness.
+   public synchronized float get(String key)
+   {
+      return(fitnesses.get(key));
+   }
+
+
+   // Cache fitness.
+   public synchronized void put(String key, float fitness)
+   {
+      if (!fitnesses.containsKey(key))
+      {
+         fitnesses.put(key, fitness);
+         writer.println(key + "\t" + fitness);
+         writer.flush();
+      }
+   }
+
+
+   // Close cache file.
+   public synchronized void close()
+   {
+      writer.close();
+   }
+
+
+   // Print statistics.
+   public synchronized void print()
+   {
+      System.out.println("Fitness cache: size=" + fitnesses.size() + " hits=" + hits + " misses=" + misses);
+   }
+}
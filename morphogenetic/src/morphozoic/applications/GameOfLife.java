@@ -9,8 +9,9 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import rdtree.RDclient;
 import morphozoic.Cell;
 import morphozoic.Metamorph;
 import morphozoic.Organism;
@@ -89,7 +90,8 @@ public class GameOfLife extends Organism
       {
          try
          {
-            reader = new DataInputStream(new FileInputStream(execFilename));
+            CRC32 checksum = new CRC32();
+            reader = new DataInputStream(new CheckedInputStream(new FileInputStream(execFilename), checksum));
             Parameters.load(reader);
             init();
             int     x, y;
@@ -131,7 +133,15 @@ public class GameOfLife extends Organism
                   while ((m = Metamorph.load(reader)) != null)
                   {
                      metamorphs.add(m);
-                     metamorphSearch.insert((RDclient)m);
+                  }
+                  buildMetamorphSearch(checksum.getValue());
+                  break;
+
+               case PARTITIONED_SEARCH_TREE:
+                  while ((m = Metamorph.load(reader)) != null)
+                  {
+                     metamorphs.add(m);
+                     metamorphPartitions.insert(m);
                   }
                   break;
 
@@ -142,6 +152,15 @@ public class GameOfLife extends Organism
                   }
                   createMetamorphNNs();
                   break;
+
+               case VECTOR_SEARCH_TREE:
+                  while ((m = Metamorph.load(reader)) != null)
+                  {
+                     metamorphs.add(m);
+                  }
+                  buildMetamorphSearch(checksum.getValue());
+                  buildMetamorphVectorSearch();
+                  break;
                }
             }
          }
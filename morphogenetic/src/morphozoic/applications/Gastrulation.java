@@ -7,13 +7,16 @@ import java.io.DataOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import rdtree.RDclient;
 import morphozoic.Cell;
 import morphozoic.Metamorph;
 import morphozoic.Organism;
 import morphozoic.Parameters;
+import rdtree.ConcurrentRDtree;
 
 // Gastrulation.
 public class Gastrulation extends Organism
@@ -88,7 +91,8 @@ public class Gastrulation extends Organism
       {
          try
          {
-            reader = new DataInputStream(new FileInputStream(execFilename));
+            CRC32 checksum = new CRC32();
+            reader = new DataInputStream(new CheckedInputStream(new FileInputStream(execFilename), checksum));
             Parameters.load(reader);
             init();
             Metamorph m;
@@ -105,7 +109,15 @@ public class Gastrulation extends Organism
                while ((m = Metamorph.load(reader)) != null)
                {
                   metamorphs.add(m);
-                  metamorphSearch.insert((RDclient)m);
+               }
+               buildMetamorphSearch(checksum.getValue());
+               break;
+
+            case PARTITIONED_SEARCH_TREE:
+               while ((m = Metamorph.load(reader)) != null)
+               {
+                  metamorphs.add(m);
+                  metamorphPartitions.insert(m);
                }
                break;
 
@@ -116,6 +128,15 @@ public class Gastrulation extends Organism
                }
                createMetamorphNNs();
                break;
+
+            case VECTOR_SEARCH_TREE:
+               while ((m = Metamorph.load(reader)) != null)
+               {
+                  metamorphs.add(m);
+               }
+               buildMetamorphSearch(checksum.getValue());
+               buildMetamorphVectorSearch();
+               break;
             }
          }
          catch (Exception e)
@@ -131,6 +152,26 @@ public class Gastrulation extends Organism
    }
 
 
+   // Construct from exec metamorphs already in memory, with their search tree if built.
+   public Gastrulation(String execFilename, ArrayList<Metamorph> metamorphs,
+                       ConcurrentRDtree metamorphSearch) throws IOException
+   {
+      this.execFilename = execFilename;
+      try
+      {
+         setMetamorphs(metamorphs, metamorphSearch);
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot set metamorphs for " + execFilename +
+                            ":" + e.getMessage());
+         throw new IOException("Cannot set metamorphs for " + execFilename +
+                               ":" + e.getMessage());
+      }
+      isEditable = true;
+   }
+
+
    @Override
    public void update()
    {
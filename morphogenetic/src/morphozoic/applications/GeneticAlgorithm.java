@@ -0,0 +1,505 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Genetic algorithm engine.
+ *
+ * An optimizer extends the engine with its member type, supplying member
+ * fitness, evaluation and breeding. The engine holds the population and
+ * the seeded randomizer, evaluates members, selects the fit members,
+ * breeds the next generation from them, and checkpoints the population at
+ * a generation interval.
+ *
+ * Members are evaluated in the calling thread, concurrently by a pool of
+ * evaluation threads, or, for optimizers whose members are evaluated by
+ * setting the global parameters, concurrently by worker processes. Worker
+ * processes and the fitness cache need a member encoder. With a fitness
+ * cache, cached members are not evaluated and duplicates are evaluated
+ * once. Members may also be selected from candidates by successive
+ * halving, evaluating the candidates with reduced update steps.
+ *
+ * Fit members either retain their population positions or the population
+ * is sorted by descending fitness, placing the fit members first. Fitness
+ * ties are resolved to the lowest population index, and random numbers are
+ * drawn only by the optimizer's operators in population order, so runs
+ * with the same random seed are reproducible whatever the number of
+ * evaluation threads.
+ */
+
+package morphozoic.applications;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public abstract class GeneticAlgorithm<M>
+{
+   // Selection strategies.
+   public enum SELECTION
+   {
+      IN_PLACE,   // Fit members retain their positions.
+      SORTED      // Population is sorted by descending fitness.
+   }
+
+   // Member encoder: encodes members for worker processes and the fitness
+   // cache, and transfers member evaluations: fitnesses, or values such as
+   // errors from which the fitnesses are derived.
+   public interface MemberEncoder<M>
+   {
+      public String encode(M member);
+      public M decode(String member) throws Exception;
+      public float getEvaluation(M member);
+      public void setEvaluation(M member, float evaluation);
+   }
+
+   // Population.
+   ArrayList<M> population;
+   int          fitPopulationSize;
+   SELECTION    selection;
+
+   // Random numbers.
+   Random randomizer;
+
+   // Generation count.
+   int generation;
+
+   // Checkpoint interval: 0 = no checkpoints.
+   int checkpointInterval;
+
+   // Member encoder: null = none.
+   MemberEncoder<M> encoder;
+
+   // Update steps members are evaluated with.
+   int evaluationSteps;
+
+   // Evaluation threads.
+   ExecutorService evaluator;
+
+   // Evaluation worker processes.
+   OptimizerWorkers workers;
+
+   // Fitness cache, keyed by evaluation settings, update steps and encoded member.
+   FitnessCache fitnessCache;
+   String       fitnessCacheSettings;
+
+   // Successive halving reduction factor (0 = none) and number of rungs.
+   int halvingFactor;
+   int halvingRungs;
+
+   // Constructor.
+   public GeneticAlgorithm(int fitPopulationSize, SELECTION selection, int randomSeed)
+   {
+      population             = new ArrayList<M>();
+      this.fitPopulationSize = fitPopulationSize;
+      this.selection         = selection;
+      randomizer             = new Random(randomSeed);
+      generation             = 0;
+      checkpointInterval     = 0;
+      encoder                = null;
+      evaluationSteps        = 0;
+      evaluator              = null;
+      workers                = null;
+      fitnessCache           = null;
+      fitnessCacheSettings   = null;
+      halvingFactor          = 0;
+      halvingRungs           = 1;
+   }
+
+
+   // Member fitness: greater is fitter.
+   public abstract float getFitness(M member);
+
+
+   // Evaluate member with the evaluation update steps.
+   // Must be thread-safe if there are evaluation threads.
+   public abstract void evaluate(M member) throws Exception;
+
+
+   // Breed members into the empty (null) population positions from the fit members.
+   // Optimizers running generations must override.
+   public void breed(ArrayList<Integer> fitIndexes) throws Exception
+   {
+      throw new UnsupportedOperationException("Breeding not supported");
+   }
+
+
+   // Checkpoint population.
+   public void checkpoint() throws Exception
+   {
+   }
+
+
+   // Set member encoder.
+   public void setEncoder(MemberEncoder<M> encoder)
+   {
+      this.encoder = encoder;
+   }
+
+
+   // Set number of evaluation threads: 1 = evaluate in calling thread.
+   public void setNumThreads(int numThreads)
+   {
+      if (evaluator != null)
+      {
+         evaluator.shutdown();
+         evaluator = null;
+      }
+      if (numThreads > 1)
+      {
+         evaluator = Executors.newFixedThreadPool(numThreads);
+      }
+   }
+
+
+   // Start evaluation worker processes running optimizer class with options.
+   // Requires a member encoder.
+   public void startWorkers(String className, String[] options, int numWorkers) throws IOException
+   {
+      stopWorkers();
+      if (numWorkers > 0)
+      {
+         workers = new OptimizerWorkers(className, options, numWorkers);
+      }
+   }
+
+
+   // Stop evaluation worker processes.
+   public void stopWorkers()
+   {
+      if (workers != null)
+      {
+         workers.close();
+         workers = null;
+      }
+   }
+
+
+   // Open fitness cache file for evaluation settings.
+   // Requires a member encoder.
+   public void openFitnessCache(String filename, String settings) throws IOException
+   {
+      fitnessCache         = new FitnessCache(filename);
+      fitnessCacheSettings = settings;
+   }
+
+
+   // Set successive halving reduction factor (0 = none) and number of rungs.
+   public void setSuccessiveHalving(int factor, int rungs)
+   {
+      halvingFactor = factor;
+      halvingRungs  = rungs;
+   }
+
+
+   // Shut down evaluation threads and workers, and close fitness cache.
+   public void shutdown()
+   {
+      setNumThreads(1);
+      stopWorkers();
+      if (fitnessCache != null)
+      {
+         fitnessCache.print();
+         fitnessCache.close();
+         fitnessCache = null;
+      }
+   }
+
+
+   // Evaluate members with update steps.
+   public void evaluate(ArrayList<M> members, int steps) throws Exception
+   {
+      evaluationSteps = steps;
+      evaluate(members);
+   }
+
+
+   // Evaluate members with the evaluation update steps.
+   // Cached members are not evaluated, and duplicates are evaluated once.
+   public void evaluate(ArrayList<M> members) throws Exception
+   {
+      ArrayList<M> evaluations = members;
+      if (fitnessCache != null)
+      {
+         HashSet<String> keys = new HashSet<String>();
+         evaluations = new ArrayList<M>();
+         for (M member : members)
+         {
+            String key = getFitnessCacheKey(member);
+            if (!fitnessCache.contains(key) && keys.add(key))
+            {
+               evaluations.add(member);
+            }
+         }
+      }
+      if (workers != null)
+      {
+         ArrayList<String> encodings = new ArrayList<String>();
+         for (M member : evaluations)
+         {
+            encodings.add(evaluationSteps + " " + encoder.encode(member));
+         }
+         float[] values = workers.evaluate(encodings);
+         for (int i = 0; i < values.length; i++)
+         {
+            encoder.setEvaluation(evaluations.get(i), values[i]);
+         }
+      }
+      else
+      {
+         evaluateMembers(evaluations);
+      }
+      if (fitnessCache != null)
+      {
+         for (M member : evaluations)
+         {
+            fitnessCache.put(getFitnessCacheKey(member), encoder.getEvaluation(member));
+         }
+         for (M member : members)
+         {
+            encoder.setEvaluation(member, fitnessCache.get(getFitnessCacheKey(member)));
+         }
+      }
+   }
+
+
+   // Get fitness cache key for member evaluated with the evaluation update steps.
+   String getFitnessCacheKey(M member)
+   {
+      return(fitnessCacheSettings + " " + evaluationSteps + " " + encoder.encode(member));
+   }
+
+
+   // Evaluate members in this process, concurrently if there are evaluation threads.
+   void evaluateMembers(ArrayList<M> members) throws Exception
+   {
+      if (evaluator == null)
+      {
+         for (M member : members)
+         {
+            evaluate(member);
+         }
+         return;
+      }
+      ArrayList<Future<M> > results = new ArrayList<Future<M> >();
+      for (final M member : members)
+      {
+         Callable<M> task = new Callable<M>()
+         {
+            public M call() throws Exception
+            {
+               evaluate(member);
+               return(member);
+            }
+         };
+         results.add(evaluator.submit(task));
+      }
+      for (int i = 0, j = results.size(); i < j; i++)
+      {
+         try
+         {
+            results.get(i).get();
+         }
+         catch (InterruptedException e)
+         {
+            throw new IOException("Member evaluation interrupted");
+         }
+         catch (ExecutionException e)
+         {
+            throw new IOException("Cannot evaluate member " + i + ":" + e.getCause().getMessage());
+         }
+      }
+   }
+
+
+   // Get number of candidates evaluated for each member.
+   public int getNumCandidates()
+   {
+      int n = 1;
+
+      if (halvingFactor > 0)
+      {
+         for (int i = 0; i < halvingRungs; i++)
+         {
+            n *= halvingFactor;
+         }
+      }
+      return(n);
+   }
+
+
+   // Evaluate candidates with update steps: return them, or members
+   // selected from them by successive halving.
+   public ArrayList<M> evaluateCandidates(ArrayList<M> candidates, int steps) throws Exception
+   {
+      if (halvingFactor > 0)
+      {
+         return(halve(candidates, steps));
+      }
+      evaluate(candidates, steps);
+      return(candidates);
+   }
+
+
+   // Select members from candidates by successive halving: evaluate the
+   // candidates with reduced update steps, retaining the fittest for the
+   // next rung, and evaluate the members with full update steps.
+   ArrayList<M> halve(ArrayList<M> candidates, int steps) throws Exception
+   {
+      int n = candidates.size();
+
+      for (int r = halvingRungs; r > 0; r--)
+      {
+         int rungSteps = steps;
+         for (int i = 0; i < r; i++)
+         {
+            rungSteps /= halvingFactor;
+         }
+         if (rungSteps < 1)
+         {
+            rungSteps = 1;
+         }
+         System.out.println("Successive halving: candidates=" + candidates.size() + " steps=" + rungSteps);
+         evaluate(candidates, rungSteps);
+         candidates = sort(candidates);
+         n         /= halvingFactor;
+         while (candidates.size() > n)
+         {
+            candidates.remove(candidates.size() - 1);
+         }
+      }
+      evaluate(candidates, steps);
+      return(candidates);
+   }
+
+
+   // Serve evaluations of encoded members for an optimizer process until end of input.
+   public void serve()
+   {
+      OptimizerWorkers.Evaluator server = new OptimizerWorkers.Evaluator()
+      {
+         public float evaluate(String line) throws Exception
+         {
+            int i = line.indexOf(' ');
+            M   member = encoder.decode(line.substring(i + 1));
+            evaluationSteps = Integer.parseInt(line.substring(0, i));
+            GeneticAlgorithm.this.evaluate(member);
+            return(encoder.getEvaluation(member));
+         }
+      };
+      OptimizerWorkers.serve(server);
+   }
+
+
+   // Select fit members: return their population indexes, fittest first.
+   public ArrayList<Integer> select()
+   {
+      ArrayList<Integer> fitIndexes = new ArrayList<Integer>();
+      for (int i = 0, j = population.size(); i < fitPopulationSize && i < j; i++)
+      {
+         int   n = -1;
+         float f = 0.0f;
+         for (int k = 0; k < j; k++)
+         {
+            if (!fitIndexes.contains(k))
+            {
+               float g = getFitness(population.get(k));
+               if ((n == -1) || (g > f))
+               {
+                  n = k;
+                  f = g;
+               }
+            }
+         }
+         fitIndexes.add(n);
+      }
+      return(fitIndexes);
+   }
+
+
+   // Get index of fittest member: -1 if population empty.
+   public int fittest()
+   {
+      int   n = -1;
+      float f = 0.0f;
+      for (int i = 0, j = population.size(); i < j; i++)
+      {
+         float g = getFitness(population.get(i));
+         if ((n == -1) || (g > f))
+         {
+            n = i;
+            f = g;
+         }
+      }
+      return(n);
+   }
+
+
+   // Sort members by descending fitness.
+   public ArrayList<M> sort(ArrayList<M> members)
+   {
+      ArrayList<M> sortedMembers = new ArrayList<M>();
+      for (int i = 0, j = members.size(); i < j; i++)
+      {
+         M     member  = members.get(i);
+         float fitness = getFitness(member);
+         int   k       = 0;
+         for (int n = sortedMembers.size(); k < n; k++)
+         {
+            if (fitness > getFitness(sortedMembers.get(k)))
+            {
+               break;
+            }
+         }
+         sortedMembers.add(k, member);
+      }
+      return(sortedMembers);
+   }
+
+
+   // Sort population by descending fitness.
+   public void sort()
+   {
+      population = sort(population);
+   }
+
+
+   // Select fit members and breed next generation from them.
+   // Return fit member indexes in the next generation.
+   public ArrayList<Integer> nextGeneration() throws Exception
+   {
+      ArrayList<Integer> fitIndexes     = select();
+      ArrayList<M>       nextPopulation = new ArrayList<M>();
+      for (int i = 0, j = population.size(); i < j; i++)
+      {
+         nextPopulation.add(null);
+      }
+      if (selection == SELECTION.IN_PLACE)
+      {
+         for (int i : fitIndexes)
+         {
+            nextPopulation.set(i, population.get(i));
+         }
+      }
+      else
+      {
+         for (int i = 0, j = fitIndexes.size(); i < j; i++)
+         {
+            nextPopulation.set(i, population.get(fitIndexes.get(i)));
+            fitIndexes.set(i, i);
+         }
+      }
+      population = nextPopulation;
+      generation++;
+      breed(fitIndexes);
+      if ((checkpointInterval > 0) && ((generation % checkpointInterval) == 0))
+      {
+         checkpoint();
+      }
+      return(fitIndexes);
+   }
+}
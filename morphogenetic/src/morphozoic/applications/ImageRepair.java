@@ -7,11 +7,11 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Random;
 
 import javax.imageio.ImageIO;
 
-import rdtree.RDclient;
 import morphozoic.Cell;
 import morphozoic.Metamorph;
 import morphozoic.Organism;
@@ -38,6 +38,9 @@ public class ImageRepair extends Organism
    // Zero cell type is empty?
    public boolean ZERO_CELL_IS_EMPTY = false;
 
+   // Images read by file name.
+   static HashMap<String, Image> images = new HashMap<String, Image>();
+
    // Options.
    public static final String OPTIONS =
       "\n\t[-targetImageFilename <image file name> (default: " + DEFAULT_TARGET_IMAGE_FILE_NAME + ")]"
@@ -239,22 +242,7 @@ public class ImageRepair extends Organism
                }
             }
          }
-         switch (Parameters.METAMORPH_EXEC_TYPE)
-         {
-         case LINEAR_SEARCH:
-            break;
-
-         case SEARCH_TREE:
-            for (Metamorph m : metamorphs)
-            {
-               metamorphSearch.insert((RDclient)m);
-            }
-            break;
-
-         case NEURAL_NETWORK:
-            createMetamorphNNs();
-            break;
-         }
+         setMetamorphs(metamorphs, null);
          for (int x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
          {
             for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
@@ -313,14 +301,19 @@ public class ImageRepair extends Organism
    }
 
 
-   // Load image from image file.
-   public void loadImage(String filename) throws IllegalArgumentException, IOException
+   // Read image file: images are read once and shared.
+   static synchronized Image readImage(String filename) throws IllegalArgumentException
    {
-      Image image = null;
+      Image image = images.get(filename);
+
+      if (image != null)
+      {
+         return(image);
+      }
 
       // Load image as resource.
       try {
-         image = (Image)ImageIO.read(getClass().getResource(filename));
+         image = (Image)ImageIO.read(ImageRepair.class.getResource(filename));
       }
       catch (Exception e)
       {
@@ -339,6 +332,15 @@ public class ImageRepair extends Organism
             throw new IllegalArgumentException("Cannot load image " + filename);
          }
       }
+      images.put(filename, image);
+      return(image);
+   }
+
+
+   // Load image from image file.
+   public void loadImage(String filename) throws IllegalArgumentException, IOException
+   {
+      Image image = readImage(filename);
 
       // Create image cells.
       int           w = Parameters.ORGANISM_DIMENSIONS.width;
@@ -5,11 +5,11 @@ package morphozoic.applications;
 import java.awt.Dimension;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.HashMap;
 import morphozoic.Parameters;
 
 // Optimize ImageRepair application.
-public class ImageRepairOptimizer
+public class ImageRepairOptimizer extends GeneticAlgorithm<ImageRepairOptimizer.ImageRepairMember>
 {
    // Options.
    public static final String OPTIONS =
@@ -33,6 +33,9 @@ public class ImageRepairOptimizer
       + "\n\t[-maxMetamorphRandomBias <maximum metamorph random bias>]"
       + "\n\t[-deltaMetamorphRandomBias <delta metamorph random bias>]"
       + "\n\t[-inhibitCompetingMorphogens <\"true\", \"false\", or \"random\">]"
+      + "\n\t[-numWorkers <number of member evaluation worker processes (default=0: none)>]"
+      + "\n\t[-fitnessCacheFile <file caching evaluations of member parameters>]"
+      + "\n\t[-successiveHalving <reduction factor> <number of reduced update step rungs>]"
       + "\n\t[-imageFilename <image file name>]"
       + "\n\t[-numHoles <number of holes made in image>]"
       + "\n\t[-maxHoleSize <maximum hold size in cells>]";
@@ -84,8 +87,24 @@ public class ImageRepairOptimizer
    }
    public static INHIBIT_COMPETING_MORPHOGENS_VALUES INHIBIT_COMPETING_MORPHOGENS = INHIBIT_COMPETING_MORPHOGENS_VALUES.RANDOM;
 
+   // Number of member evaluation worker processes: 0 = evaluate in this process.
+   public static int NUM_WORKERS = 0;
+
+   // Successive halving: evaluate reduction factor ^ rungs candidates
+   // for each member with update steps reduced by the factor for each
+   // rung, retaining the fittest 1 / factor of them at each rung.
+   // Factor 0 = none.
+   public static int SUCCESSIVE_HALVING_FACTOR = 0;
+   public static int SUCCESSIVE_HALVING_RUNGS  = 1;
+
+   // Fitness cache file: null = none.
+   public static String FITNESS_CACHE_FILE_NAME = null;
+
+   // Worker process options.
+   static String[] workerOptions = new String[0];
+
    // ImageRepair population member.
-   class ImageRepairMember
+   static class ImageRepairMember
    {
       // Fitness.
       float fitness;
@@ -117,14 +136,14 @@ public class ImageRepairOptimizer
       boolean INHIBIT_COMPETING_MORPHOGENS;
 
       // Evaluate fitness.
-      void evaluate(ImageRepair fitnessTarget) throws Exception
+      void evaluate(int steps, ImageRepair fitnessTarget) throws Exception
       {
          // Set parameters.
          setParameters();
 
          // Update.
          ImageRepair imageRepair = new ImageRepair(new String[0], 0);
-         for (int i = 0; i < NUM_UPDATE_STEPS; i++)
+         for (int i = 0; i < steps; i++)
          {
             imageRepair.update();
          }
@@ -147,6 +166,57 @@ public class ImageRepairOptimizer
       }
 
 
+      // Encode parameters.
+      String encodeParameters()
+      {
+         StringBuilder parameters = new StringBuilder();
+
+         parameters.append(NEIGHBORHOOD_DIMENSION).append(" ");
+         parameters.append(NUM_NEIGHBORHOODS).append(" ");
+         parameters.append(METAMORPH_DIMENSION).append(" ");
+         parameters.append(MAX_CELL_METAMORPHS).append(" ");
+         parameters.append(METAMORPH_RANDOM_BIAS).append(" ");
+         parameters.append(INHIBIT_COMPETING_MORPHOGENS).append(" ");
+         if (NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS == null)
+         {
+            parameters.append(-1);
+         }
+         else
+         {
+            parameters.append(NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length);
+            for (float weight : NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS)
+            {
+               parameters.append(" ").append(weight);
+            }
+         }
+         return(parameters.toString());
+      }
+
+
+      // Decode parameters.
+      void decodeParameters(String parameters)
+      {
+         String[] values = parameters.trim().split(" ");
+
+         NEIGHBORHOOD_DIMENSION       = Integer.parseInt(values[0]);
+         NUM_NEIGHBORHOODS            = Integer.parseInt(values[1]);
+         METAMORPH_DIMENSION          = Integer.parseInt(values[2]);
+         MAX_CELL_METAMORPHS          = Integer.parseInt(values[3]);
+         METAMORPH_RANDOM_BIAS        = Float.parseFloat(values[4]);
+         INHIBIT_COMPETING_MORPHOGENS = Boolean.parseBoolean(values[5]);
+         int n = Integer.parseInt(values[6]);
+         NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = null;
+         if (n >= 0)
+         {
+            NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[n];
+            for (int i = 0; i < n; i++)
+            {
+               NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[i] = Float.parseFloat(values[7 + i]);
+            }
+         }
+      }
+
+
       // Set parameters.
       void setParameters()
       {
@@ -160,18 +230,50 @@ public class ImageRepairOptimizer
       }
    }
 
-   // ImageRepair population.
-   ArrayList<ImageRepairMember> population;
-
-   // Random numbers.
-   Random randomizer;
-
    // Fitness target.
    ImageRepair fitnessTarget;
 
-   // Constructor.
-   public ImageRepairOptimizer() throws IllegalArgumentException, IOException, Exception
+   // Fitness targets by image, dimensions and cell types: targets are
+   // only read, so they are created once per process and shared.
+   static HashMap<String, ImageRepair> fitnessTargets = new HashMap<String, ImageRepair>();
+
+   // Constructor: a worker only evaluates members.
+   public ImageRepairOptimizer(boolean worker) throws IllegalArgumentException, IOException, Exception
    {
+      // Random numbers.
+      super(FIT_POPULATION_SIZE, SELECTION.SORTED, Parameters.RANDOM_SEED);
+
+      // Encode members for workers and fitness cache.
+      MemberEncoder<ImageRepairMember> encoder = new MemberEncoder<ImageRepairMember>()
+      {
+         public String encode(ImageRepairMember member)
+         {
+            return(member.encodeParameters());
+         }
+         public ImageRepairMember decode(String parameters)
+         {
+            ImageRepairMember member = new ImageRepairMember();
+            member.decodeParameters(parameters);
+            return(member);
+         }
+         public float getEvaluation(ImageRepairMember member)
+         {
+            return(member.fitness);
+         }
+         public void setEvaluation(ImageRepairMember member, float fitness)
+         {
+            member.fitness = fitness;
+         }
+      };
+      setEncoder(encoder);
+
+      // Get fitness target.
+      fitnessTarget = getFitnessTarget();
+      if (worker)
+      {
+         return;
+      }
+
       // Print settings.
       System.out.println("Settings:");
       System.out.println("ORGANISM_DIMENSIONS=" + Parameters.ORGANISM_DIMENSIONS.width + "," + Parameters.ORGANISM_DIMENSIONS.height);
@@ -185,82 +287,113 @@ public class ImageRepairOptimizer
       System.out.println("NUM_HOLES=" + ImageRepair.NUM_HOLES);
       System.out.println("MAX_HOLE_SIZE=" + ImageRepair.MAX_HOLE_SIZE);
 
-      // Random numbers.
-      randomizer = new Random(Parameters.RANDOM_SEED);
+      // Load fitness cache.
+      if (FITNESS_CACHE_FILE_NAME != null)
+      {
+         openFitnessCache(FITNESS_CACHE_FILE_NAME, "ImageRepairOptimizer " +
+                          Parameters.ORGANISM_DIMENSIONS.width + "x" + Parameters.ORGANISM_DIMENSIONS.height + " " +
+                          Parameters.NUM_CELL_TYPES + " " + Parameters.RANDOM_SEED + " " +
+                          ImageRepair.TARGET_IMAGE_FILE_NAME + " " + ImageRepair.NUM_HOLES + " " + ImageRepair.MAX_HOLE_SIZE);
+      }
 
-      // Create fitness target.
-      fitnessTarget = new ImageRepair(new String[0], 0);
-      fitnessTarget.loadImage(ImageRepair.TARGET_IMAGE_FILE_NAME);
+      // Start member evaluation workers.
+      startWorkers(ImageRepairOptimizer.class.getName(), workerOptions, NUM_WORKERS);
 
       // Create ImageRepair population.
-      population = new ArrayList<ImageRepairMember>();
-      for (int i = 0; i < POPULATION_SIZE; i++)
+      setSuccessiveHalving(SUCCESSIVE_HALVING_FACTOR, SUCCESSIVE_HALVING_RUNGS);
+      for (int i = 0, j = POPULATION_SIZE * getNumCandidates(); i < j; i++)
+      {
+         population.add(randomMember());
+      }
+   }
+
+
+   // Get fitness target for current image, dimensions and cell types.
+   static synchronized ImageRepair getFitnessTarget() throws IllegalArgumentException, IOException, Exception
+   {
+      String key = ImageRepair.TARGET_IMAGE_FILE_NAME + " " +
+                   Parameters.ORGANISM_DIMENSIONS.width + "x" + Parameters.ORGANISM_DIMENSIONS.height + " " +
+                   Parameters.NUM_CELL_TYPES;
+      ImageRepair fitnessTarget = fitnessTargets.get(key);
+
+      if (fitnessTarget != null)
       {
-         ImageRepairMember member = new ImageRepairMember();
-         population.add(member);
-         member.fitness = 0.0f;
+         return(fitnessTarget);
+      }
+      fitnessTarget = new ImageRepair(new String[0], 0);
+      fitnessTarget.loadImage(ImageRepair.TARGET_IMAGE_FILE_NAME);
+      fitnessTargets.put(key, fitnessTarget);
+      return(fitnessTarget);
+   }
+
+
+   // Generate random member.
+   ImageRepairMember randomMember()
+   {
+      ImageRepairMember member = new ImageRepairMember();
+      member.fitness = 0.0f;
 
-         // Generate member parameters.
-         member.NEIGHBORHOOD_DIMENSION = randomizer.nextInt(MAX_NEIGHBORHOOD_DIMENSION - MIN_NEIGHBORHOOD_DIMENSION + 1) + MIN_NEIGHBORHOOD_DIMENSION;
-         if ((member.NEIGHBORHOOD_DIMENSION % 2) != 1)
+      // Generate member parameters.
+      member.NEIGHBORHOOD_DIMENSION = randomizer.nextInt(MAX_NEIGHBORHOOD_DIMENSION - MIN_NEIGHBORHOOD_DIMENSION + 1) + MIN_NEIGHBORHOOD_DIMENSION;
+      if ((member.NEIGHBORHOOD_DIMENSION % 2) != 1)
+      {
+         if (randomizer.nextBoolean())
          {
-            if (randomizer.nextBoolean())
-            {
-               member.NEIGHBORHOOD_DIMENSION--;
-            }
-            else
-            {
-               member.NEIGHBORHOOD_DIMENSION++;
-            }
+            member.NEIGHBORHOOD_DIMENSION--;
+         }
+         else
+         {
+            member.NEIGHBORHOOD_DIMENSION++;
          }
-         member.NUM_NEIGHBORHOODS = randomizer.nextInt(MAX_NUM_NEIGHBORHOODS - MIN_NUM_NEIGHBORHOODS + 1) + MIN_NUM_NEIGHBORHOODS;
-         member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[member.NUM_NEIGHBORHOODS];
-         float f = 0.0f;
-         for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      }
+      member.NUM_NEIGHBORHOODS = randomizer.nextInt(MAX_NUM_NEIGHBORHOODS - MIN_NUM_NEIGHBORHOODS + 1) + MIN_NUM_NEIGHBORHOODS;
+      member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[member.NUM_NEIGHBORHOODS];
+      float f = 0.0f;
+      for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      {
+         member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = randomizer.nextFloat();
+         f += member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j];
+      }
+      for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      {
+         if (f > 0.0f)
          {
-            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = randomizer.nextFloat();
-            f += member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j];
+            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] /= f;
          }
-         for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+         else
          {
-            if (f > 0.0f)
-            {
-               member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] /= f;
-            }
-            else
-            {
-               member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = 1.0f / member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length;
-            }
+            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = 1.0f / member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length;
          }
-         member.METAMORPH_DIMENSION = randomizer.nextInt(MAX_METAMORPH_DIMENSION - MIN_METAMORPH_DIMENSION + 1) + MIN_METAMORPH_DIMENSION;
-         if ((member.METAMORPH_DIMENSION % 2) != 1)
+      }
+      member.METAMORPH_DIMENSION = randomizer.nextInt(MAX_METAMORPH_DIMENSION - MIN_METAMORPH_DIMENSION + 1) + MIN_METAMORPH_DIMENSION;
+      if ((member.METAMORPH_DIMENSION % 2) != 1)
+      {
+         if (randomizer.nextBoolean())
          {
-            if (randomizer.nextBoolean())
-            {
-               member.METAMORPH_DIMENSION--;
-            }
-            else
-            {
-               member.METAMORPH_DIMENSION++;
-            }
+            member.METAMORPH_DIMENSION--;
          }
-         member.MAX_CELL_METAMORPHS   = randomizer.nextInt(MAX_MAX_CELL_METAMORPHS - MIN_MAX_CELL_METAMORPHS + 1) + MIN_MAX_CELL_METAMORPHS;
-         member.METAMORPH_RANDOM_BIAS = (randomizer.nextFloat() * (MAX_METAMORPH_RANDOM_BIAS - MIN_METAMORPH_RANDOM_BIAS)) + MIN_METAMORPH_RANDOM_BIAS;
-         switch (INHIBIT_COMPETING_MORPHOGENS)
+         else
          {
-         case TRUE:
-            member.INHIBIT_COMPETING_MORPHOGENS = true;
-            break;
+            member.METAMORPH_DIMENSION++;
+         }
+      }
+      member.MAX_CELL_METAMORPHS   = randomizer.nextInt(MAX_MAX_CELL_METAMORPHS - MIN_MAX_CELL_METAMORPHS + 1) + MIN_MAX_CELL_METAMORPHS;
+      member.METAMORPH_RANDOM_BIAS = (randomizer.nextFloat() * (MAX_METAMORPH_RANDOM_BIAS - MIN_METAMORPH_RANDOM_BIAS)) + MIN_METAMORPH_RANDOM_BIAS;
+      switch (INHIBIT_COMPETING_MORPHOGENS)
+      {
+      case TRUE:
+         member.INHIBIT_COMPETING_MORPHOGENS = true;
+         break;
 
-         case FALSE:
-            member.INHIBIT_COMPETING_MORPHOGENS = false;
-            break;
+      case FALSE:
+         member.INHIBIT_COMPETING_MORPHOGENS = false;
+         break;
 
-         case RANDOM:
-            member.INHIBIT_COMPETING_MORPHOGENS = randomizer.nextBoolean();
-            break;
-         }
+      case RANDOM:
+         member.INHIBIT_COMPETING_MORPHOGENS = randomizer.nextBoolean();
+         break;
       }
+      return(member);
    }
 
 
@@ -336,13 +469,23 @@ public class ImageRepairOptimizer
    // Run optimization.
    public void run() throws Exception
    {
-      // Evaluate initial population
-      for (int i = 0; i < POPULATION_SIZE; i++)
+      try
       {
-         ImageRepairMember member = population.get(i);
-         member.evaluate(fitnessTarget);
+         optimize();
       }
-      sortPopulation();
+      finally
+      {
+         shutdown();
+      }
+   }
+
+
+   // Optimize.
+   void optimize() throws Exception
+   {
+      // Evaluate initial population
+      population = evaluateCandidates(population, NUM_UPDATE_STEPS);
+      sort();
       System.out.println("Generation=0");
       System.out.println("Member\tFitness");
       for (int i = 0; i < POPULATION_SIZE; i++)
@@ -354,33 +497,9 @@ public class ImageRepairOptimizer
       // Run generations.
       for (int g = 0; g < NUM_GENERATIONS; g++)
       {
-         // Select fit population.
-         ArrayList<ImageRepairMember> fitPopulation = new ArrayList<ImageRepairMember>();
-         for (int i = 0; i < FIT_POPULATION_SIZE; i++)
-         {
-            ImageRepairMember member = population.get(i);
-            fitPopulation.add(member);
-         }
-         population = fitPopulation;
-
-         // Replenish population.
-         for (int i = 0, j = (POPULATION_SIZE - FIT_POPULATION_SIZE); i < j; i++)
-         {
-            ImageRepairMember member = null;
-            if ((randomizer.nextFloat() <= CROSSOVER_PROBABILITY) && (FIT_POPULATION_SIZE > 0))
-            {
-               member = crossover(
-                  population.get(randomizer.nextInt(FIT_POPULATION_SIZE)),
-                  population.get(randomizer.nextInt(FIT_POPULATION_SIZE)));
-            }
-            else
-            {
-               member = new ImageRepairMember();
-            }
-            member.evaluate(fitnessTarget);
-            population.add(member);
-         }
-         sortPopulation();
+         // Select fit population and replenish population.
+         nextGeneration();
+         sort();
 
          System.out.println("Generation=" + (g + 1));
          System.out.println("Member\tFitness");
@@ -402,43 +521,65 @@ public class ImageRepairOptimizer
    }
 
 
-   // Sort population by descending fitness.
-   void sortPopulation()
+   // Replenish population with offspring of the fit population.
+   public void breed(ArrayList<Integer> fitIndexes) throws Exception
    {
-      ArrayList<ImageRepairMember> sortedPopulation = new ArrayList<ImageRepairMember>();
-      boolean done = false;
-      while (!done)
+      ArrayList<ImageRepairMember> offspring = new ArrayList<ImageRepairMember>();
+      for (int i = 0, j = (POPULATION_SIZE - FIT_POPULATION_SIZE) * getNumCandidates(); i < j; i++)
       {
-         done = true;
-         ImageRepairMember fitMember      = null;
-         int               fitMemberIndex = -1;
-         for (int i = 0; i < POPULATION_SIZE; i++)
+         ImageRepairMember member = null;
+         if ((randomizer.nextFloat() <= CROSSOVER_PROBABILITY) && (FIT_POPULATION_SIZE > 0))
          {
-            ImageRepairMember member = population.get(i);
-            if (member != null)
-            {
-               if ((fitMember == null) || (member.fitness > fitMember.fitness))
-               {
-                  fitMember      = member;
-                  fitMemberIndex = i;
-               }
-            }
+            member = crossover(
+               population.get(randomizer.nextInt(FIT_POPULATION_SIZE)),
+               population.get(randomizer.nextInt(FIT_POPULATION_SIZE)));
          }
-         if (fitMemberIndex != -1)
+         else if (SUCCESSIVE_HALVING_FACTOR > 0)
          {
-            sortedPopulation.add(fitMember);
-            population.set(fitMemberIndex, null);
-            done = false;
+            // Halving ranks candidates: give it random ones to rank.
+            member = randomMember();
          }
+         else
+         {
+            member = new ImageRepairMember();
+         }
+         offspring.add(member);
       }
-      population = sortedPopulation;
+      offspring = evaluateCandidates(offspring, NUM_UPDATE_STEPS);
+      for (int i = 0, j = offspring.size(); i < j; i++)
+      {
+         population.set(FIT_POPULATION_SIZE + i, offspring.get(i));
+      }
+   }
+
+
+   // Member fitness.
+   public float getFitness(ImageRepairMember member)
+   {
+      return(member.fitness);
+   }
+
+
+   // Evaluate member.
+   public void evaluate(ImageRepairMember member) throws Exception
+   {
+      member.evaluate(evaluationSteps, fitnessTarget);
    }
 
 
    // Main.
    public static void main(String[] args)
    {
-      String usage = "Usage: java morphozoic.applications.ImageRepairOptimizer" + OPTIONS;
+      run(args);
+   }
+
+
+   // Run optimizer with arguments: return fittest member fitness,
+   // or NaN if the arguments are invalid or the optimizer fails.
+   public static float run(String[] args)
+   {
+      String  usage  = "Usage: java morphozoic.applications.ImageRepairOptimizer" + OPTIONS;
+      boolean worker = false;
 
       // Get arguments.
       for (int i = 0; i < args.length; i++)
@@ -449,27 +590,27 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             int w = Integer.parseInt(args[i]);
             if (w <= 0)
             {
                System.err.println("Organism width dimension must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             i++;
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             int h = Integer.parseInt(args[i]);
             if (h <= 0)
             {
                System.err.println("Organism height dimension must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             Parameters.ORGANISM_DIMENSIONS = new Dimension(w, h);
          }
@@ -479,14 +620,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             Parameters.NUM_CELL_TYPES = Integer.parseInt(args[i]);
             if (Parameters.NUM_CELL_TYPES <= 0)
             {
                System.err.println("Number of cell types must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-randomSeed"))
@@ -495,7 +636,7 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             Parameters.RANDOM_SEED = Integer.parseInt(args[i]);
          }
@@ -505,14 +646,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             POPULATION_SIZE = Integer.parseInt(args[i]);
             if (POPULATION_SIZE <= 0)
             {
                System.err.println("Population size must be positive");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-fitPopulationSize"))
@@ -521,14 +662,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             FIT_POPULATION_SIZE = Integer.parseInt(args[i]);
             if (FIT_POPULATION_SIZE < 0)
             {
                System.err.println("Invalid fit population size");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-crossoverProbability"))
@@ -537,14 +678,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             CROSSOVER_PROBABILITY = Float.parseFloat(args[i]);
             if ((CROSSOVER_PROBABILITY < 0.0f) || (CROSSOVER_PROBABILITY > 1.0f))
             {
                System.err.println("Invalid crossover probability");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-numGenerations"))
@@ -553,14 +694,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             NUM_GENERATIONS = Integer.parseInt(args[i]);
             if (NUM_GENERATIONS < 0)
             {
                System.err.println("Invalid number of generations");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-numUpdateSteps"))
@@ -569,14 +710,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             NUM_UPDATE_STEPS = Integer.parseInt(args[i]);
             if (NUM_UPDATE_STEPS < 0)
             {
                System.err.println("Invalid number of update steps");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minNeighborhoodDimension"))
@@ -585,20 +726,20 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_NEIGHBORHOOD_DIMENSION = Integer.parseInt(args[i]);
             if (MIN_NEIGHBORHOOD_DIMENSION <= 0)
             {
                System.err.println("Invalid minimum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MIN_NEIGHBORHOOD_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid minimum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxNeighborhoodDimension"))
@@ -607,20 +748,20 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_NEIGHBORHOOD_DIMENSION = Integer.parseInt(args[i]);
             if (MAX_NEIGHBORHOOD_DIMENSION <= 0)
             {
                System.err.println("Invalid maximum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MAX_NEIGHBORHOOD_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid maximum neighborhood dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minNumNeighborhoods"))
@@ -629,14 +770,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_NUM_NEIGHBORHOODS = Integer.parseInt(args[i]);
             if (MIN_NUM_NEIGHBORHOODS <= 0)
             {
                System.err.println("Invalid minimum number of neighborhoods");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxNumNeighborhoods"))
@@ -645,14 +786,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_NUM_NEIGHBORHOODS = Integer.parseInt(args[i]);
             if (MAX_NUM_NEIGHBORHOODS <= 0)
             {
                System.err.println("Invalid maximum number of neighborhoods");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minMetamorphDimension"))
@@ -661,20 +802,20 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_METAMORPH_DIMENSION = Integer.parseInt(args[i]);
             if (MIN_METAMORPH_DIMENSION <= 0)
             {
                System.err.println("Invalid minimum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MIN_METAMORPH_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid minimum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxMetamorphDimension"))
@@ -683,20 +824,20 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_METAMORPH_DIMENSION = Integer.parseInt(args[i]);
             if (MAX_METAMORPH_DIMENSION <= 0)
             {
                System.err.println("Invalid maximum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if ((MAX_METAMORPH_DIMENSION % 2) != 1)
             {
                System.err.println("Invalid maximum metamorph dimension");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minMaxCellMetamorphs"))
@@ -705,14 +846,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_MAX_CELL_METAMORPHS = Integer.parseInt(args[i]);
             if (MIN_MAX_CELL_METAMORPHS <= 0)
             {
                System.err.println("Invalid minimum maximum number of cell metamorphs");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxMaxCellMetamorphs"))
@@ -721,14 +862,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_MAX_CELL_METAMORPHS = Integer.parseInt(args[i]);
             if (MAX_MAX_CELL_METAMORPHS <= 0)
             {
                System.err.println("Invalid maximum maximum number of cell metamorphs");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-minMetamorphRandomBias"))
@@ -737,14 +878,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MIN_METAMORPH_RANDOM_BIAS = Float.parseFloat(args[i]);
             if ((MIN_METAMORPH_RANDOM_BIAS < 0.0f) || (MIN_METAMORPH_RANDOM_BIAS > 1.0f))
             {
                System.err.println("Invalid minimum metamorph random bias");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxMetamorphRandomBias"))
@@ -753,14 +894,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             MAX_METAMORPH_RANDOM_BIAS = Float.parseFloat(args[i]);
             if ((MAX_METAMORPH_RANDOM_BIAS < 0.0f) || (MAX_METAMORPH_RANDOM_BIAS > 1.0f))
             {
                System.err.println("Invalid maximum metamorph random bias");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-deltaMetamorphRandomBias"))
@@ -769,14 +910,14 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             DELTA_METAMORPH_RANDOM_BIAS = Float.parseFloat(args[i]);
             if ((DELTA_METAMORPH_RANDOM_BIAS < 0.0f) || (DELTA_METAMORPH_RANDOM_BIAS > 1.0f))
             {
                System.err.println("Invalid delta metamorph random bias");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-inhibitCompetingMorphogens"))
@@ -785,7 +926,7 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             if (args[i].equals("true"))
             {
@@ -803,7 +944,7 @@ public class ImageRepairOptimizer
             {
                System.err.println("Invalid inhibit competing morphogens value");
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-imageFilename"))
@@ -812,7 +953,7 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             ImageRepair.TARGET_IMAGE_FILE_NAME = args[i];
          }
@@ -822,13 +963,13 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             ImageRepair.NUM_HOLES = Integer.parseInt(args[i]);
             if (ImageRepair.NUM_HOLES < 0)
             {
                System.err.println("Invalid number of holes");
-               return;
+               return(Float.NaN);
             }
          }
          else if (args[i].equals("-maxHoleSize"))
@@ -837,64 +978,139 @@ public class ImageRepairOptimizer
             if (i == args.length)
             {
                System.err.println(usage);
-               return;
+               return(Float.NaN);
             }
             ImageRepair.MAX_HOLE_SIZE = Integer.parseInt(args[i]);
             if (ImageRepair.MAX_HOLE_SIZE < 1)
             {
                System.err.println("Maximum hole size must be positive");
-               return;
+               return(Float.NaN);
+            }
+         }
+         else if (args[i].equals("-numWorkers"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            NUM_WORKERS = Integer.parseInt(args[i]);
+            if (NUM_WORKERS < 0)
+            {
+               System.err.println("Invalid number of workers");
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+         }
+         else if (args[i].equals("-fitnessCacheFile"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            FITNESS_CACHE_FILE_NAME = args[i];
+         }
+         else if (args[i].equals("-successiveHalving"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            SUCCESSIVE_HALVING_FACTOR = Integer.parseInt(args[i]);
+            if (SUCCESSIVE_HALVING_FACTOR < 2)
+            {
+               System.err.println("Successive halving reduction factor must be at least 2");
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return(Float.NaN);
+            }
+            SUCCESSIVE_HALVING_RUNGS = Integer.parseInt(args[i]);
+            if (SUCCESSIVE_HALVING_RUNGS <= 0)
+            {
+               System.err.println("Number of successive halving rungs must be positive");
+               System.err.println(usage);
+               return(Float.NaN);
             }
          }
+         else if (args[i].equals(OptimizerWorkers.WORKER_OPTION))
+         {
+            worker = true;
+         }
          else
          {
             System.out.println(usage);
-            return;
+            return(Float.NaN);
          }
       }
       if (FIT_POPULATION_SIZE > POPULATION_SIZE)
       {
          System.err.println("Fit population size cannot exceed population size");
-         return;
+         return(Float.NaN);
       }
       if (MIN_NEIGHBORHOOD_DIMENSION > MAX_NEIGHBORHOOD_DIMENSION)
       {
          System.err.println("Minimum neighborhood dimension cannot exceed maximum neighborhood dimension");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_NUM_NEIGHBORHOODS > MAX_NUM_NEIGHBORHOODS)
       {
          System.err.println("Minimum number of neighborhoods cannot exceed maximum number of neighborhoods");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_METAMORPH_DIMENSION > MAX_METAMORPH_DIMENSION)
       {
          System.err.println("Minimum metamorph dimension cannot exceed maximum metamorph dimension");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_MAX_CELL_METAMORPHS > MAX_MAX_CELL_METAMORPHS)
       {
          System.err.println("Minimum maximum cell metamorphs cannot exceed maximum maximum cell metamorphs");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
       }
       if (MIN_METAMORPH_RANDOM_BIAS > MAX_METAMORPH_RANDOM_BIAS)
       {
          System.err.println("Minimum metamorph random bias cannot exceed maximum metamorph random bias");
          System.err.println(usage);
-         return;
+         return(Float.NaN);
+      }
+
+      // Run as worker process?
+      if (worker)
+      {
+         try
+         {
+            new ImageRepairOptimizer(true).serve();
+         }
+         catch (Exception e) {
+            System.err.println(e.getMessage());
+         }
+         return(Float.NaN);
       }
 
       try
       {
-         ImageRepairOptimizer optimizer = new ImageRepairOptimizer();
+         workerOptions = args;
+         ImageRepairOptimizer optimizer = new ImageRepairOptimizer(false);
          optimizer.run();
+         return(optimizer.population.get(0).fitness);
       }
       catch (Exception e) {
          System.err.println(e.getMessage());
       }
+      return(Float.NaN);
    }
 }
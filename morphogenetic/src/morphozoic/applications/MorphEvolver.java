@@ -3,6 +3,8 @@
 package morphozoic.applications;
 
 import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -12,13 +14,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
 import morphozoic.Cell;
 import morphozoic.Metamorph;
 import morphozoic.Parameters;
+import morphozoic.Parameters.METAMORPH_EXEC_OPTION;
+import rdtree.ConcurrentRDtree;
 
 // Morph evolver application.
-public class MorphEvolver
+public class MorphEvolver extends GeneticAlgorithm<MorphEvolver.MorphMember>
 {
    // Options.
    public static final String OPTIONS =
@@ -30,6 +35,13 @@ public class MorphEvolver
       + "\n\t[-numEpochUpdateSteps <number of update steps per epoch>]"
       + "\n\t[-numGenerations <number of generations per epoch>]"
       + "\n\t[-numMatingOffspring <number of offspring from matings>]"
+      + "\n\t[-numThreads <number of member evaluation threads (default=1)>]"
+      + "\n\t[-checkpointInterval <generations between population checkpoints (default=0: at end only)>]"
+      + "\n\t[-targetTrajectoryFile <fitness target trajectory cache file>]"
+      + "\n\t[-earlyAbandon (abandon runs of members that cannot be fit)]"
+      + "\n\t[-island <island id> <number of islands> <migration spool directory>]"
+      + "\n\t[-migrationInterval <generations between island migrations (default=5)>]"
+      + "\n\t[-numMigrants <number of fit members migrated (default=1)>]"
       + "\n\t[-resume (resume optimization)]"
       + "\n\t[-randomSeed <random seed>]";
 
@@ -54,6 +66,28 @@ public class MorphEvolver
    // Number offspring from matings.
    public static int NUM_MATING_OFFSPRING = 2;
 
+   // Number of member evaluation threads.
+   public static int NUM_THREADS = 1;
+
+   // Generations between population checkpoints: 0 = at end of evolution only.
+   public static int CHECKPOINT_INTERVAL = 0;
+
+   // Fitness target trajectory cache file: null = none.
+   public static String TARGET_TRAJECTORY_FILE_NAME = null;
+
+   // Abandon runs of members that cannot reach the fit population.
+   public static boolean EARLY_ABANDON = false;
+
+   // Island model: populations evolving in separate processes migrate
+   // their fittest members around a ring of islands through a spool
+   // directory every migration interval generations.
+   public static int    ISLAND_ID                 = 0;
+   public static int    NUM_ISLANDS               = 1;
+   public static String MIGRATION_SPOOL_DIRECTORY = null;
+   public static int    MIGRATION_INTERVAL        = 5;
+   public static int    NUM_MIGRANTS              = 1;
+   public static int    MIGRATION_TIMEOUT_SECONDS = 600;
+
    // File names.
    public static final String MEMBER_FILE_NAME_PREFIX = "morph_member";
    public static final String FITTEST_FILE_NAME       = "morph_fittest.dat";
@@ -67,9 +101,17 @@ public class MorphEvolver
       // Fitness.
       float fitness;
 
+      // Run abandoned as unfit?
+      boolean abandoned;
+
       // Member file name.
       String filename;
 
+      // Genome metamorphs, and their search tree forked from the parent's:
+      // the member file is loaded only when resuming without them.
+      ArrayList<Metamorph> metamorphs;
+      ConcurrentRDtree     metamorphSearch;
+
       // Run history.
       ArrayList<Float> fitnessHistory;
       ArrayList < ArrayList < Metamorph >> usageHistory;
@@ -77,9 +119,12 @@ public class MorphEvolver
       // Constructors.
       MorphMember(String filename, boolean resume) throws IOException
       {
-         this.filename = filename;
-         organism      = null;
-         fitness       = 0.0f;
+         this.filename   = filename;
+         organism        = null;
+         fitness         = 0.0f;
+         abandoned       = false;
+         metamorphs      = null;
+         metamorphSearch = null;
 
          // Resuming?
          if (resume)
@@ -88,40 +133,30 @@ public class MorphEvolver
          }
          else
          {
-            // Initialize.
-            DataOutputStream writer = null;
-            try
-            {
-               writer = new DataOutputStream(new FileOutputStream(filename));
-               Parameters.save(writer);
-               for (Metamorph metamorph : generateMetamorphs())
-               {
-                  metamorph.save(writer);
-               }
-            }
-            catch (Exception e)
-            {
-               System.err.println("Cannot save file " + filename +
-                                  ":" + e.getMessage());
-               throw new IOException("Cannot save file " + filename +
-                                     ":" + e.getMessage());
-            }
-            finally
-            {
-               if (writer != null)
-               {
-                  writer.close();
-               }
-            }
+            metamorphs = generateMetamorphs();
          }
       }
 
 
+      MorphMember(String filename)
+      {
+         this.filename   = filename;
+         organism        = null;
+         fitness         = 0.0f;
+         abandoned       = false;
+         metamorphs      = null;
+         metamorphSearch = null;
+      }
+
+
       MorphMember(Gastrulation organism)
       {
-         filename      = null;
-         this.organism = organism;
-         fitness       = 0.0f;
+         filename        = null;
+         this.organism   = organism;
+         fitness         = 0.0f;
+         abandoned       = false;
+         metamorphs      = null;
+         metamorphSearch = null;
       }
 
 
@@ -167,40 +202,111 @@ public class MorphEvolver
       }
 
 
-      // Run.
-      void run(Gastrulation fitnessTarget, int steps) throws IOException
+      // Get genome metamorphs: null if only in member file.
+      ArrayList<Metamorph> getGenome()
+      {
+         if (organism != null)
+         {
+            return(organism.metamorphs);
+         }
+         else
+         {
+            return(metamorphs);
+         }
+      }
+
+
+      // Save genome to file.
+      void save(String filename) throws IOException
+      {
+         ArrayList<Metamorph> genome = getGenome();
+
+         if (genome == null)
+         {
+            if (!filename.equals(this.filename))
+            {
+               Files.copy(new File(this.filename).toPath(), new File(filename).toPath(),
+                          StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+         }
+         DataOutputStream writer = null;
+         try
+         {
+            writer = new DataOutputStream(new FileOutputStream(filename));
+            Parameters.save(writer);
+            for (Metamorph metamorph : genome)
+            {
+               metamorph.save(writer);
+            }
+         }
+         catch (Exception e)
+         {
+            System.err.println("Cannot save file " + filename +
+                               ":" + e.getMessage());
+            throw new IOException("Cannot save file " + filename +
+                                  ":" + e.getMessage());
+         }
+         finally
+         {
+            if (writer != null)
+            {
+               writer.close();
+            }
+         }
+      }
+
+
+      // Run, scoring against fitness target trajectory.
+      // Abandon run when fitness cannot reach threshold if not null.
+      void run(byte[][] trajectory, int steps, FitnessThreshold threshold) throws IOException
       {
          // Update.
          fitnessHistory = new ArrayList<Float>();
          usageHistory   = new ArrayList < ArrayList < Metamorph >> ();
-         fitnessTarget.clearCells();
-         fitness       = 0.0f;
-         String[] args = new String[2];
-         args[0]       = "-execMetamorphs";
-         args[1]       = filename;
-         organism      = new Gastrulation(args, 0);
+         fitness        = 0.0f;
+         abandoned      = false;
+         if (organism != null)
+         {
+            // Rerun retained organism.
+            organism.reset();
+         }
+         else
+         {
+            synchronized (organismLock)
+            {
+               if (metamorphs != null)
+               {
+                  organism        = new Gastrulation(filename, metamorphs, metamorphSearch);
+                  metamorphs      = null;
+                  metamorphSearch = null;
+               }
+               else
+               {
+                  String[] args = new String[2];
+                  args[0]       = "-execMetamorphs";
+                  args[1]       = filename;
+                  organism      = new Gastrulation(args, 0);
+               }
+            }
+         }
          for (int i = 0; i < steps; i++)
          {
             organism.update();
-            fitnessTarget.update();
-            float f = 0.0f;
-            for (int x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+            byte[] frame = trajectory[i];
+            int    n     = 0;
+            for (int x = 0, k = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
             {
-               for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++)
+               Cell[] column = organism.cells[x];
+               for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++, k++)
                {
-                  if (fitnessTarget.cells[x][y].type == Cell.EMPTY)
-                  {
-                     if (organism.cells[x][y].type == Cell.EMPTY)
-                     {
-                        f += 1.0f;
-                     }
-                  }
-                  else if (organism.cells[x][y].type != Cell.EMPTY)
+                  if ((frame[k] == Cell.EMPTY) == (column[y].type == Cell.EMPTY))
                   {
-                     f += 1.0f;
+                     n++;
                   }
                }
             }
+            float f = (float)n;
             fitness += f;
             fitnessHistory.add(f);
             ArrayList<Metamorph> usage = new ArrayList<Metamorph>();
@@ -212,117 +318,108 @@ public class MorphEvolver
                   usage.add(metamorph);
                }
             }
-         }
 
-         // Print cells.
-         printCells();
+            // Can fitness still reach threshold?
+            if (threshold != null)
+            {
+               float maxFitness = (float)(trajectory[i].length * (steps - i - 1));
+               if ((fitness + maxFitness) < threshold.get())
+               {
+                  abandoned = true;
+                  return;
+               }
+            }
+         }
+         if (threshold != null)
+         {
+            threshold.add(fitness);
+         }
       }
 
 
       // Create mutant of member.
-      MorphMember mutate(String filename) throws IOException
+      MorphMember mutate(String filename)
       {
          // Create mutant.
-         MorphMember member = new MorphMember(filename, false);
-
-         DataOutputStream writer = null;
+         MorphMember member = new MorphMember(filename);
 
-         try
+         // Create mutant metamorph.
+         Metamorph mutableMetamorph = null;
+         Metamorph mutantMetamorph  = null;
+         float     maxFitness       = (float)(Parameters.ORGANISM_DIMENSIONS.width * Parameters.ORGANISM_DIMENSIONS.height);
+         for (int i = 0, j = fitnessHistory.size(); i < j &&
+              mutableMetamorph == null && fitnessMetamorphs.size() > 0; i++)
          {
-            writer = new DataOutputStream(new FileOutputStream(member.filename));
-            Parameters.save(writer);
-
-            // Create mutant metamorph.
-            Metamorph mutableMetamorph = null;
-            Metamorph mutantMetamorph  = null;
-            float     maxFitness       = (float)(Parameters.ORGANISM_DIMENSIONS.width * Parameters.ORGANISM_DIMENSIONS.height);
-            for (int i = 0, j = fitnessHistory.size(); i < j &&
-                 mutableMetamorph == null && fitnessMetamorphs.size() > 0; i++)
+            if (fitnessHistory.get(i) < maxFitness)
             {
-               if (fitnessHistory.get(i) < maxFitness)
+               ArrayList<Metamorph> usedMetamorphs = usageHistory.get(i);
+               int n = usedMetamorphs.size();
+               if (n > 0)
                {
-                  ArrayList<Metamorph> usedMetamorphs = usageHistory.get(i);
-                  int n = usedMetamorphs.size();
-                  if (n > 0)
-                  {
-                     mutableMetamorph = usedMetamorphs.get(randomizer.nextInt(n));
-                     mutantMetamorph  = mutableMetamorph.clone();
-                     int       t      = randomizer.nextInt(fitnessMetamorphs.size());
-                     Metamorph target = fitnessMetamorphs.get(t);
-                     mutantMetamorph.targetCells = target.cloneTargetCells();
-                  }
+                  mutableMetamorph = usedMetamorphs.get(randomizer.nextInt(n));
+                  mutantMetamorph  = mutableMetamorph.clone();
+                  int       t      = randomizer.nextInt(fitnessMetamorphs.size());
+                  Metamorph target = fitnessMetamorphs.get(t);
+                  mutantMetamorph.targetCells = target.cloneTargetCells();
                }
             }
+         }
 
-            for (Metamorph metamorph : organism.metamorphs)
+         ArrayList<Metamorph> metamorphs = new ArrayList<Metamorph>(organism.metamorphs.size());
+         for (Metamorph metamorph : organism.metamorphs)
+         {
+            if (mutableMetamorph == metamorph)
             {
-               if (mutableMetamorph == metamorph)
-               {
-                  mutantMetamorph.save(writer);
-               }
-               else
-               {
-                  metamorph.save(writer);
-               }
+               metamorphs.add(mutantMetamorph);
             }
-         }
-         catch (Exception e)
-         {
-            System.err.println("Cannot save file " + member.filename +
-                               ":" + e.getMessage());
-            throw new IOException("Cannot save file " + member.filename +
-                                  ":" + e.getMessage());
-         }
-         finally
-         {
-            if (writer != null)
+            else
             {
-               writer.close();
+               metamorphs.add(metamorph.clone());
             }
          }
+         member.setMetamorphs(metamorphs, organism);
          return(member);
       }
 
 
       // Mate parents to create offspring.
-      MorphMember mate(MorphMember parent, String filename) throws IOException
+      MorphMember mate(MorphMember parent, String filename)
       {
          // Create offspring.
-         MorphMember member = new MorphMember(filename, false);
-
-         DataOutputStream writer = null;
+         MorphMember member = new MorphMember(filename);
 
-         try
+         ArrayList<Metamorph> metamorphs = new ArrayList<Metamorph>(organism.metamorphs.size());
+         for (int i = 0, j = organism.metamorphs.size(); i < j; i++)
          {
-            writer = new DataOutputStream(new FileOutputStream(member.filename));
-            Parameters.save(writer);
-            for (int i = 0, j = organism.metamorphs.size(); i < j; i++)
+            if (randomizer.nextBoolean())
             {
-               if (randomizer.nextBoolean())
-               {
-                  organism.metamorphs.get(i).save(writer);
-               }
-               else
-               {
-                  parent.organism.metamorphs.get(i).save(writer);
-               }
+               metamorphs.add(organism.metamorphs.get(i).clone());
+            }
+            else
+            {
+               metamorphs.add(parent.organism.metamorphs.get(i).clone());
             }
          }
-         catch (Exception e)
-         {
-            System.err.println("Cannot save file " + member.filename +
-                               ":" + e.getMessage());
-            throw new IOException("Cannot save file " + member.filename +
-                                  ":" + e.getMessage());
-         }
-         finally
+         member.setMetamorphs(metamorphs, organism);
+         return(member);
+      }
+
+
+      // Set metamorphs derived position by position from those of parent organism,
+      // forking the parent's search tree.
+      void setMetamorphs(ArrayList<Metamorph> metamorphs, Gastrulation parent)
+      {
+         this.metamorphs = metamorphs;
+         if ((Parameters.METAMORPH_EXEC_TYPE == METAMORPH_EXEC_OPTION.SEARCH_TREE) ||
+             (Parameters.METAMORPH_EXEC_TYPE == METAMORPH_EXEC_OPTION.VECTOR_SEARCH_TREE))
          {
-            if (writer != null)
+            IdentityHashMap<Metamorph, Metamorph> substitutes = new IdentityHashMap<Metamorph, Metamorph>();
+            for (int i = 0, j = metamorphs.size(); i < j; i++)
             {
-               writer.close();
+               substitutes.put(parent.metamorphs.get(i), metamorphs.get(i));
             }
+            metamorphSearch = parent.metamorphSearch.fork(substitutes);
          }
-         return(member);
       }
 
 
@@ -350,22 +447,63 @@ public class MorphEvolver
       }
    }
 
-   // Morph population.
-   ArrayList<MorphMember> population;
+   // Fitness threshold for a fit population: the least of the best
+   // completed run fitnesses once there are enough of them. A member
+   // whose fitness cannot reach it cannot be selected as fit.
+   class FitnessThreshold
+   {
+      PriorityQueue<Float> best;
+      volatile float       threshold;
+
+      FitnessThreshold()
+      {
+         best      = new PriorityQueue<Float>();
+         threshold = -1.0f;
+      }
 
-   // Random numbers.
-   Random randomizer;
+
+      // Add completed run fitness.
+      synchronized void add(float fitness)
+      {
+         best.add(fitness);
+         if (best.size() > FIT_POPULATION_SIZE)
+         {
+            best.poll();
+         }
+         if (best.size() == FIT_POPULATION_SIZE)
+         {
+            threshold = best.peek();
+         }
+      }
+
+
+      // Get threshold.
+      float get()
+      {
+         return(threshold);
+      }
+   }
 
    // Fitness target.
    Gastrulation         fitnessTarget;
    MorphMember          fitnessMorph;
    ArrayList<Metamorph> fitnessMetamorphs;
 
+   // Fitness target cell types for each update step from cleared cells.
+   byte[][] targetTrajectory;
+
+   // Evaluation target trajectory and fitness threshold.
+   byte[][]         evaluationTrajectory;
+   FitnessThreshold evaluationThreshold;
+
+   // Organism construction lock: organisms load global parameters.
+   static final Object organismLock = new Object();
+
    // Constructor.
    public MorphEvolver(boolean resume) throws IllegalArgumentException, IOException
    {
-      // Random numbers.
-      randomizer = new Random(Parameters.RANDOM_SEED);
+      // Random numbers: islands evolve different populations.
+      super(FIT_POPULATION_SIZE, SELECTION.IN_PLACE, Parameters.RANDOM_SEED + ISLAND_ID);
 
       // Create fitness target and metamorphs.
       String[] args = new String[2];
@@ -381,17 +519,209 @@ public class MorphEvolver
       fitnessMorph      = new MorphMember(fitnessTarget);
 
       // Create population.
-      population = new ArrayList<MorphMember>();
       for (int i = 0; i < POPULATION_SIZE; i++)
       {
          MorphMember member = new MorphMember(MEMBER_FILE_NAME_PREFIX + "_" + i + ".dat", resume);
          population.add(member);
       }
+
+      // Create evaluation threads.
+      targetTrajectory   = null;
+      checkpointInterval = CHECKPOINT_INTERVAL;
+      setNumThreads(NUM_THREADS);
+   }
+
+
+   // Get fitness target trajectory for steps, simulating the target once
+   // from cleared cells or loading it from the trajectory file. The target
+   // is left at the final step, as when run alongside members.
+   byte[][] getTargetTrajectory(int steps) throws IOException
+   {
+      if ((targetTrajectory != null) && (targetTrajectory.length == steps))
+      {
+         return(targetTrajectory);
+      }
+      targetTrajectory = null;
+      if (TARGET_TRAJECTORY_FILE_NAME != null)
+      {
+         byte[][] frames = loadTargetTrajectory(TARGET_TRAJECTORY_FILE_NAME);
+         if ((frames != null) && (frames.length >= steps))
+         {
+            targetTrajectory = new byte[steps][];
+            for (int i = 0; i < steps; i++)
+            {
+               targetTrajectory[i] = frames[i];
+            }
+            if (steps > 0)
+            {
+               byte[] frame = targetTrajectory[steps - 1];
+               for (int x = 0, k = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+               {
+                  for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++, k++)
+                  {
+                     fitnessTarget.cells[x][y].type = frame[k];
+                  }
+               }
+            }
+            fitnessTarget.tick = steps;
+            return(targetTrajectory);
+         }
+      }
+      targetTrajectory = new byte[steps][];
+      fitnessTarget.clearCells();
+      for (int i = 0; i < steps; i++)
+      {
+         fitnessTarget.update();
+         byte[] frame = new byte[Parameters.ORGANISM_DIMENSIONS.width * Parameters.ORGANISM_DIMENSIONS.height];
+         for (int x = 0, k = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
+         {
+            for (int y = 0; y < Parameters.ORGANISM_DIMENSIONS.height; y++, k++)
+            {
+               frame[k] = (byte)fitnessTarget.cells[x][y].type;
+            }
+         }
+         targetTrajectory[i] = frame;
+      }
+      if (TARGET_TRAJECTORY_FILE_NAME != null)
+      {
+         saveTargetTrajectory(TARGET_TRAJECTORY_FILE_NAME, targetTrajectory);
+      }
+      return(targetTrajectory);
+   }
+
+
+   // Load fitness target trajectory: null if missing or for other dimensions.
+   byte[][] loadTargetTrajectory(String filename) throws IOException
+   {
+      if (!new File(filename).exists())
+      {
+         return(null);
+      }
+      DataInputStream reader = null;
+      try
+      {
+         reader = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+         int width  = reader.readInt();
+         int height = reader.readInt();
+         int steps  = reader.readInt();
+         if ((width != Parameters.ORGANISM_DIMENSIONS.width) ||
+             (height != Parameters.ORGANISM_DIMENSIONS.height))
+         {
+            return(null);
+         }
+         byte[][] frames = new byte[steps][width * height];
+         for (int i = 0; i < steps; i++)
+         {
+            reader.readFully(frames[i]);
+         }
+         return(frames);
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot load file " + filename +
+                            ":" + e.getMessage());
+         throw new IOException("Cannot load file " + filename +
+                               ":" + e.getMessage());
+      }
+      finally
+      {
+         if (reader != null)
+         {
+            reader.close();
+         }
+      }
+   }
+
+
+   // Save fitness target trajectory.
+   void saveTargetTrajectory(String filename, byte[][] frames) throws IOException
+   {
+      DataOutputStream writer = null;
+      try
+      {
+         writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+         writer.writeInt(Parameters.ORGANISM_DIMENSIONS.width);
+         writer.writeInt(Parameters.ORGANISM_DIMENSIONS.height);
+         writer.writeInt(frames.length);
+         for (byte[] frame : frames)
+         {
+            writer.write(frame);
+         }
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot save file " + filename +
+                            ":" + e.getMessage());
+         throw new IOException("Cannot save file " + filename +
+                               ":" + e.getMessage());
+      }
+      finally
+      {
+         if (writer != null)
+         {
+            writer.close();
+         }
+      }
+   }
+
+
+   // Member fitness.
+   public float getFitness(MorphMember member)
+   {
+      return(member.fitness);
+   }
+
+
+   // Run member.
+   public void evaluate(MorphMember member) throws IOException
+   {
+      member.run(evaluationTrajectory, evaluationSteps, evaluationThreshold);
+   }
+
+
+   // Run population members for steps and print their fitnesses.
+   // With evaluation threads, members run concurrently.
+   void evaluate(int steps) throws Exception
+   {
+      evaluationTrajectory = getTargetTrajectory(steps);
+      evaluationThreshold  = null;
+      if (EARLY_ABANDON)
+      {
+         evaluationThreshold = new FitnessThreshold();
+      }
+      evaluate(population, steps);
+      for (int k = 0; k < population.size(); k++)
+      {
+         MorphMember member = population.get(k);
+         if (member.abandoned)
+         {
+            System.out.println(k + "\t" + member.fitness + "\tabandoned");
+         }
+         else
+         {
+            member.printCells();
+            System.out.println(k + "\t" + member.fitness);
+         }
+      }
    }
 
 
    // Run optimization.
-   public void run() throws IOException
+   public void run() throws Exception
+   {
+      try
+      {
+         evolve();
+      }
+      finally
+      {
+         shutdown();
+      }
+   }
+
+
+   // Evolve population.
+   void evolve() throws Exception
    {
       for (int i = 0; i < NUM_EVOLVE_EPOCHS; i++)
       {
@@ -420,80 +750,10 @@ public class MorphEvolver
             // Run members.
             System.out.println("Member\tFitness");
             int steps = ((i + 1) * EPOCH_UPDATE_STEPS) + 1;
-            for (int k = 0; k < population.size(); k++)
-            {
-               MorphMember member = population.get(k);
-               member.run(fitnessTarget, steps);
-               System.out.println(k + "\t" + member.fitness);
-            }
+            evaluate(steps);
 
-            // Select fit members.
-            System.out.println("Fit:");
-            ArrayList<MorphMember> nextPopulation       = new ArrayList<MorphMember>(population.size());
-            ArrayList<Integer>     fitPopulationIndexes = new ArrayList<Integer>();
-            for (int k = 0; k < POPULATION_SIZE; k++)
-            {
-               nextPopulation.add(null);
-            }
-            for (int k = 0; k < FIT_POPULATION_SIZE; k++)
-            {
-               int   n = -1;
-               float f = 0.0f;
-               for (int p = 0; p < POPULATION_SIZE; p++)
-               {
-                  MorphMember member = population.get(p);
-                  if ((member != null) && ((n == -1) || (member.fitness > f)))
-                  {
-                     n = p;
-                     f = member.fitness;
-                  }
-               }
-               nextPopulation.set(n, population.get(n));
-               population.set(n, null);
-               fitPopulationIndexes.add(n);
-               System.out.println(n + "");
-            }
-            int s = fitPopulationIndexes.size();
-
-            // Mate fit members.
-            System.out.println("Mate:");
-            for (int k = 0, n = 0; k < POPULATION_SIZE &&
-                 FIT_POPULATION_SIZE > 1 && n < NUM_MATING_OFFSPRING; k++)
-            {
-               MorphMember member = nextPopulation.get(k);
-               if (member == null)
-               {
-                  int         n1      = fitPopulationIndexes.get(randomizer.nextInt(s));
-                  int         n2      = -1;
-                  MorphMember parent1 = nextPopulation.get(n1);
-                  MorphMember parent2 = null;
-                  while (parent2 == null)
-                  {
-                     n2 = fitPopulationIndexes.get(randomizer.nextInt(s));
-                     if (n1 != n2)
-                     {
-                        parent2 = nextPopulation.get(n2);
-                     }
-                  }
-                  nextPopulation.set(k, parent1.mate(parent2, MEMBER_FILE_NAME_PREFIX + "_" + k + ".dat"));
-                  System.out.println(n1 + "+" + n2 + "->" + k);
-                  n++;
-               }
-            }
-
-            // Mutate.
-            System.out.println("Mutate:");
-            for (int k = 0; k < POPULATION_SIZE; k++)
-            {
-               if (nextPopulation.get(k) == null)
-               {
-                  int         n      = fitPopulationIndexes.get(randomizer.nextInt(s));
-                  MorphMember member = nextPopulation.get(n);
-                  nextPopulation.set(k, member.mutate(MEMBER_FILE_NAME_PREFIX + "_" + k + ".dat"));
-                  System.out.println(n + "->" + k);
-               }
-            }
-            population = nextPopulation;
+            // Select fit members and breed next generation.
+            nextGeneration();
 
             // Fit members established?
             if (FIT_GENERATIONS != -1)
@@ -522,27 +782,23 @@ public class MorphEvolver
          }
       }
 
+      // Save population so a later run can resume.
+      checkpoint();
+
       System.out.println("Fittest:\nMember\tFitness");
-      int         fittestIndex  = -1;
-      MorphMember fittestMember = null;
-      for (int i = 0; i < population.size(); i++)
+      int fittestIndex = fittest();
+      if (NUM_ISLANDS > 1)
       {
-         MorphMember member = population.get(i);
-         if ((fittestIndex == -1) || (member.fitness > fittestMember.fitness))
-         {
-            fittestIndex  = i;
-            fittestMember = member;
-         }
+         spool("island_" + ISLAND_ID + ".finished", null);
       }
       if (fittestIndex != -1)
       {
+         MorphMember fittestMember = population.get(fittestIndex);
          System.out.println(fittestIndex + "\t" + fittestMember.fitness);
          fittestMember.printCells();
          System.out.println("Parameters:");
          Parameters.print();
-         Files.copy(new File(fittestMember.filename).toPath(),
-                    new File(FITTEST_FILE_NAME).toPath(),
-                    StandardCopyOption.REPLACE_EXISTING);
+         fittestMember.save(FITTEST_FILE_NAME);
          System.out.println("Organism saved to " + FITTEST_FILE_NAME);
       }
       else
@@ -552,6 +808,189 @@ public class MorphEvolver
    }
 
 
+   // Breed next generation by mating and mutating fit members.
+   public void breed(ArrayList<Integer> fitPopulationIndexes) throws IOException
+   {
+      System.out.println("Fit:");
+      for (int n : fitPopulationIndexes)
+      {
+         System.out.println(n + "");
+      }
+      int s = fitPopulationIndexes.size();
+
+      // Mate fit members.
+      System.out.println("Mate:");
+      for (int k = 0, n = 0; k < POPULATION_SIZE &&
+           FIT_POPULATION_SIZE > 1 && n < NUM_MATING_OFFSPRING; k++)
+      {
+         MorphMember member = population.get(k);
+         if (member == null)
+         {
+            int         n1      = fitPopulationIndexes.get(randomizer.nextInt(s));
+            int         n2      = -1;
+            MorphMember parent1 = population.get(n1);
+            MorphMember parent2 = null;
+            while (parent2 == null)
+            {
+               n2 = fitPopulationIndexes.get(randomizer.nextInt(s));
+               if (n1 != n2)
+               {
+                  parent2 = population.get(n2);
+               }
+            }
+            population.set(k, parent1.mate(parent2, MEMBER_FILE_NAME_PREFIX + "_" + k + ".dat"));
+            System.out.println(n1 + "+" + n2 + "->" + k);
+            n++;
+         }
+      }
+
+      // Mutate.
+      System.out.println("Mutate:");
+      for (int k = 0; k < POPULATION_SIZE; k++)
+      {
+         if (population.get(k) == null)
+         {
+            int         n      = fitPopulationIndexes.get(randomizer.nextInt(s));
+            MorphMember member = population.get(n);
+            population.set(k, member.mutate(MEMBER_FILE_NAME_PREFIX + "_" + k + ".dat"));
+            System.out.println(n + "->" + k);
+         }
+      }
+
+      // Migrate fit members between islands.
+      if ((NUM_ISLANDS > 1) && ((generation % MIGRATION_INTERVAL) == 0))
+      {
+         migrate(population, fitPopulationIndexes);
+      }
+   }
+
+
+   // Emigrate fittest members to the next island, and replace members
+   // that are not fit with immigrants from the previous island.
+   void migrate(ArrayList<MorphMember> population, ArrayList<Integer> fitPopulationIndexes) throws IOException
+   {
+      System.out.println("Migrate:");
+      for (int i = 0; i < NUM_MIGRANTS; i++)
+      {
+         MorphMember member = population.get(fitPopulationIndexes.get(i));
+         spool("island_" + ISLAND_ID + "_" + generation + "_" + i + ".dat", member.getGenome());
+         System.out.println(fitPopulationIndexes.get(i) + "->island " + ((ISLAND_ID + 1) % NUM_ISLANDS));
+      }
+      spool("island_" + ISLAND_ID + "_" + generation + ".done", null);
+
+      // Wait for immigrants.
+      int    source   = (ISLAND_ID + NUM_ISLANDS - 1) % NUM_ISLANDS;
+      String prefix   = "island_" + source + "_" + generation;
+      File   done     = new File(MIGRATION_SPOOL_DIRECTORY, prefix + ".done");
+      File   finished = new File(MIGRATION_SPOOL_DIRECTORY, "island_" + source + ".finished");
+      long   timeout  = System.currentTimeMillis() + (MIGRATION_TIMEOUT_SECONDS * 1000L);
+      while (!done.exists())
+      {
+         if (finished.exists() || (System.currentTimeMillis() > timeout))
+         {
+            System.out.println("island " + source + " unavailable");
+            return;
+         }
+         try
+         {
+            Thread.sleep(100);
+         }
+         catch (InterruptedException e)
+         {
+            throw new IOException("Migration interrupted");
+         }
+      }
+
+      // Replace unfit members from the end of the population.
+      for (int i = 0, k = population.size() - 1; i < NUM_MIGRANTS; i++, k--)
+      {
+         while (fitPopulationIndexes.contains(k))
+         {
+            k--;
+         }
+         File                 file       = new File(MIGRATION_SPOOL_DIRECTORY, prefix + "_" + i + ".dat");
+         ArrayList<Metamorph> metamorphs = new ArrayList<Metamorph>();
+         DataInputStream      reader     = null;
+         try
+         {
+            reader = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            Metamorph m;
+            while ((m = Metamorph.load(reader)) != null)
+            {
+               metamorphs.add(m);
+            }
+         }
+         catch (Exception e)
+         {
+            System.err.println("Cannot load file " + file.getPath() +
+                               ":" + e.getMessage());
+            throw new IOException("Cannot load file " + file.getPath() +
+                                  ":" + e.getMessage());
+         }
+         finally
+         {
+            if (reader != null)
+            {
+               reader.close();
+            }
+         }
+         file.delete();
+         MorphMember member = new MorphMember(MEMBER_FILE_NAME_PREFIX + "_" + k + ".dat");
+         member.metamorphs = metamorphs;
+         population.set(k, member);
+         System.out.println("island " + source + ":" + i + "->" + k);
+      }
+      done.delete();
+   }
+
+
+   // Atomically write metamorphs to spool directory file.
+   void spool(String filename, ArrayList<Metamorph> metamorphs) throws IOException
+   {
+      File             file   = new File(MIGRATION_SPOOL_DIRECTORY, filename);
+      File             temp   = new File(MIGRATION_SPOOL_DIRECTORY, filename + ".tmp");
+      DataOutputStream writer = null;
+
+      try
+      {
+         writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+         if (metamorphs != null)
+         {
+            for (Metamorph metamorph : metamorphs)
+            {
+               metamorph.save(writer);
+            }
+         }
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot save file " + temp.getPath() +
+                            ":" + e.getMessage());
+         throw new IOException("Cannot save file " + temp.getPath() +
+                               ":" + e.getMessage());
+      }
+      finally
+      {
+         if (writer != null)
+         {
+            writer.close();
+         }
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+   }
+
+
+   // Save population to member files.
+   public void checkpoint() throws IOException
+   {
+      for (MorphMember member : population)
+      {
+         member.save(member.filename);
+      }
+      System.out.println("Population saved to " + MEMBER_FILE_NAME_PREFIX + "_*.dat");
+   }
+
+
    // Main.
    public static void main(String[] args)
    {
@@ -703,6 +1142,114 @@ public class MorphEvolver
                return;
             }
          }
+         else if (args[i].equals("-numThreads"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            NUM_THREADS = Integer.parseInt(args[i]);
+            if (NUM_THREADS <= 0)
+            {
+               System.err.println("Number of threads must be positive");
+               System.err.println(usage);
+               return;
+            }
+         }
+         else if (args[i].equals("-checkpointInterval"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            CHECKPOINT_INTERVAL = Integer.parseInt(args[i]);
+            if (CHECKPOINT_INTERVAL < 0)
+            {
+               System.err.println("Invalid checkpoint interval");
+               System.err.println(usage);
+               return;
+            }
+         }
+         else if (args[i].equals("-targetTrajectoryFile"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            TARGET_TRAJECTORY_FILE_NAME = args[i];
+         }
+         else if (args[i].equals("-earlyAbandon"))
+         {
+            EARLY_ABANDON = true;
+         }
+         else if (args[i].equals("-island"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            ISLAND_ID = Integer.parseInt(args[i]);
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            NUM_ISLANDS = Integer.parseInt(args[i]);
+            if ((NUM_ISLANDS <= 0) || (ISLAND_ID < 0) || (ISLAND_ID >= NUM_ISLANDS))
+            {
+               System.err.println("Invalid island");
+               System.err.println(usage);
+               return;
+            }
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            MIGRATION_SPOOL_DIRECTORY = args[i];
+         }
+         else if (args[i].equals("-migrationInterval"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            MIGRATION_INTERVAL = Integer.parseInt(args[i]);
+            if (MIGRATION_INTERVAL <= 0)
+            {
+               System.err.println("Migration interval must be positive");
+               System.err.println(usage);
+               return;
+            }
+         }
+         else if (args[i].equals("-numMigrants"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            NUM_MIGRANTS = Integer.parseInt(args[i]);
+            if (NUM_MIGRANTS <= 0)
+            {
+               System.err.println("Number of migrants must be positive");
+               System.err.println(usage);
+               return;
+            }
+         }
          else if (args[i].equals("-resume"))
          {
             resume = true;
@@ -750,6 +1297,18 @@ public class MorphEvolver
          System.err.println(usage);
          return;
       }
+      if ((NUM_ISLANDS > 1) && ((NUM_MIGRANTS > FIT_POPULATION_SIZE) ||
+                                (NUM_MIGRANTS > (POPULATION_SIZE - FIT_POPULATION_SIZE))))
+      {
+         System.err.println("Too many migrants");
+         System.err.println(usage);
+         return;
+      }
+      if (NUM_ISLANDS > 1)
+      {
+         new File(MIGRATION_SPOOL_DIRECTORY).mkdirs();
+         new File(MIGRATION_SPOOL_DIRECTORY, "island_" + ISLAND_ID + ".finished").delete();
+      }
       if (Parameters.METAMORPH_RANDOM_BIAS > 0.0f)
       {
          Parameters.METAMORPH_RANDOM_BIAS = 0.0f;
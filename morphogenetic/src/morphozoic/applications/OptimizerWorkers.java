@@ -0,0 +1,174 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Optimizer member evaluation worker processes.
+ *
+ * Optimizer members are evaluated by setting the global parameters, so
+ * members are evaluated concurrently in worker processes, each with its
+ * own parameters and organisms. A worker runs the optimizer with its
+ * options and -worker: it reads an encoded member from each input line
+ * and writes the member's evaluation as an output line.
+ */
+
+package morphozoic.applications;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OptimizerWorkers
+{
+   // Worker option.
+   public static final String WORKER_OPTION = "-worker";
+
+   // Member evaluator run by worker.
+   public interface Evaluator
+   {
+      public float evaluate(String member) throws Exception;
+   }
+
+   // Worker processes.
+   Process[]        workers;
+   BufferedReader[] readers;
+   PrintWriter[]    writers;
+
+   // Constructor: start workers running optimizer class with options.
+   public OptimizerWorkers(String className, String[] options, int numWorkers) throws IOException
+   {
+      ArrayList<String> command = new ArrayList<String>();
+      command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+      command.add("-classpath");
+      command.add(System.getProperty("java.class.path"));
+      command.add(className);
+      for (String option : options)
+      {
+         command.add(option);
+      }
+      command.add(WORKER_OPTION);
+      ProcessBuilder builder = new ProcessBuilder(command);
+      builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+      workers = new Process[numWorkers];
+      readers = new BufferedReader[numWorkers];
+      writers = new PrintWriter[numWorkers];
+      for (int i = 0; i < numWorkers; i++)
+      {
+         workers[i] = builder.start();
+         readers[i] = new BufferedReader(new InputStreamReader(workers[i].getInputStream()));
+         writers[i] = new PrintWriter(new OutputStreamWriter(workers[i].getOutputStream()));
+      }
+   }
+
+
+   // Evaluate encoded members concurrently: return evaluations in member order.
+   public float[] evaluate(final ArrayList<String> members) throws IOException
+   {
+      final float[]       evaluations = new float[members.size()];
+      final AtomicInteger next        = new AtomicInteger(0);
+      final IOException[] errors      = new IOException[workers.length];
+      Thread[]            threads     = new Thread[workers.length];
+
+      for (int i = 0; i < workers.length; i++)
+      {
+         final int w = i;
+         Runnable task = new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  int m;
+                  while ((m = next.getAndIncrement()) < members.size())
+                  {
+                     writers[w].println(members.get(m));
+                     writers[w].flush();
+                     String line = readers[w].readLine();
+                     if (line == null)
+                     {
+                        throw new IOException("Worker " + w + " exited");
+                     }
+                     evaluations[m] = Float.parseFloat(line);
+                  }
+               }
+               catch (IOException e)
+               {
+                  errors[w] = e;
+               }
+               catch (NumberFormatException e)
+               {
+                  errors[w] = new IOException("Invalid worker " + w + " evaluation:" + e.getMessage());
+               }
+            }
+         };
+         threads[i] = new Thread(task);
+         threads[i].start();
+      }
+      for (int i = 0; i < workers.length; i++)
+      {
+         try
+         {
+            threads[i].join();
+         }
+         catch (InterruptedException e)
+         {
+            throw new IOException("Member evaluation interrupted");
+         }
+      }
+      for (int i = 0; i < workers.length; i++)
+      {
+         if (errors[i] != null)
+         {
+            throw errors[i];
+         }
+      }
+      return(evaluations);
+   }
+
+
+   // Stop workers: workers exit at end of input.
+   public void close()
+   {
+      for (int i = 0; i < workers.length; i++)
+      {
+         writers[i].close();
+         try
+         {
+            workers[i].waitFor();
+         }
+         catch (InterruptedException e)
+         {
+            workers[i].destroy();
+         }
+      }
+   }
+
+
+   // Serve member evaluations until end of input.
+   // Organism output is redirected to standard error.
+   public static void serve(Evaluator evaluator)
+   {
+      PrintStream    out    = System.out;
+      BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+
+      System.setOut(System.err);
+      try
+      {
+         String line;
+         while ((line = reader.readLine()) != null)
+         {
+            out.println(evaluator.evaluate(line));
+            out.flush();
+         }
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot evaluate member:" + e.getMessage());
+      }
+   }
+}
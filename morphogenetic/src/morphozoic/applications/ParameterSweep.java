@@ -0,0 +1,393 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Optimizer parameter sweep.
+ *
+ * Runs an optimizer at each point of a grid of option values within one
+ * process, rather than a process per point, writing each point's fittest
+ * result as a CSV row as it completes. A sweep sets one or more optimizer
+ * options to each of its values in turn, and the grid points are the
+ * combinations of the sweeps' values, the first sweep varying slowest.
+ * Other arguments are passed to the optimizer at every point.
+ *
+ * Optimizers configure the global parameters, so points are run in
+ * sequence, or concurrently in sweep worker processes that each run many
+ * points. Every point sets the same optimizer options and the global
+ * parameters are restored before each point, so a point's result is that
+ * of a separate optimizer run. Images are read once by each process.
+ */
+
+package morphozoic.applications;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import morphozoic.Parameters;
+
+public class ParameterSweep
+{
+   // Options.
+   public static final String OPTIONS =
+      "\n\t-optimizer <ImageRepairOptimizer | CellRegenerationOptimizer>"
+      + "\n\t-sweep <option>[,<option>...] <value>[,<value>...] (repeatable; options set to each value)"
+      + "\n\t[-csvFile <results file name> (default=sweep.csv)]"
+      + "\n\t[-numSweepWorkers <number of sweep worker processes (default=0: none)>]"
+      + "\n\t[<optimizer options>]";
+
+   // Optimizer.
+   public static String OPTIMIZER_NAME = null;
+
+   // Sweeps: options and their values.
+   public static ArrayList<String[]> SWEEP_OPTIONS = new ArrayList<String[]>();
+   public static ArrayList<String[]> SWEEP_VALUES  = new ArrayList<String[]>();
+
+   // Options passed to optimizer at every point.
+   public static ArrayList<String> OPTIMIZER_OPTIONS = new ArrayList<String>();
+
+   // Results file.
+   public static final String DEFAULT_CSV_FILE_NAME = "sweep.csv";
+   public static String       CSV_FILE_NAME         = DEFAULT_CSV_FILE_NAME;
+
+   // Number of sweep worker processes: 0 = run points in sweep process.
+   public static int NUM_SWEEP_WORKERS = 0;
+
+   // Sweep arguments passed to workers.
+   static String[] workerOptions;
+
+   // Global parameters before any point is run.
+   static byte[] parameters;
+
+   // Get number of grid points.
+   static int getNumPoints()
+   {
+      int n = 1;
+
+      for (String[] values : SWEEP_VALUES)
+      {
+         n *= values.length;
+      }
+      return(n);
+   }
+
+
+   // Get swept value indexes of grid point.
+   static int[] getPointValues(int point)
+   {
+      int[] indexes = new int[SWEEP_VALUES.size()];
+
+      for (int i = indexes.length - 1; i >= 0; i--)
+      {
+         int n = SWEEP_VALUES.get(i).length;
+         indexes[i] = point % n;
+         point     /= n;
+      }
+      return(indexes);
+   }
+
+
+   // Encode grid point optimizer arguments as a tab-separated line.
+   static String encodePoint(int point)
+   {
+      int[]  indexes = getPointValues(point);
+      String line    = "";
+
+      for (String option : OPTIMIZER_OPTIONS)
+      {
+         line += option + "\t";
+      }
+      for (int i = 0; i < indexes.length; i++)
+      {
+         String value = SWEEP_VALUES.get(i)[indexes[i]];
+         for (String option : SWEEP_OPTIONS.get(i))
+         {
+            line += option + "\t";
+            for (String arg : value.trim().split("\\s+"))
+            {
+               line += arg + "\t";
+            }
+         }
+      }
+      return(line.trim());
+   }
+
+
+   // Save global parameters to restore before each point.
+   static void saveParameters() throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      Parameters.save(new DataOutputStream(bytes));
+      parameters = bytes.toByteArray();
+   }
+
+
+   // Run optimizer with encoded grid point arguments: return fittest result.
+   // Optimizer output is discarded.
+   static float run(String point) throws IOException
+   {
+      // Restore global parameters.
+      Parameters.ORGANISM_DIMENSIONS = new Dimension();
+      Parameters.load(new DataInputStream(new ByteArrayInputStream(parameters)));
+
+      PrintStream  out     = System.out;
+      OutputStream discard = new OutputStream()
+      {
+         public void write(int b)
+         {
+         }
+      };
+      System.setOut(new PrintStream(discard));
+      try
+      {
+         String[] args = point.split("\t");
+         if (OPTIMIZER_NAME.equals("ImageRepairOptimizer"))
+         {
+            return(ImageRepairOptimizer.run(args));
+         }
+         else
+         {
+            return(CellRegenerationOptimizer.run(args));
+         }
+      }
+      finally
+      {
+         System.setOut(out);
+      }
+   }
+
+
+   // Run sweep.
+   static void sweep() throws Exception
+   {
+      PrintWriter      writer  = new PrintWriter(new FileWriter(CSV_FILE_NAME));
+      OptimizerWorkers workers = null;
+
+      try
+      {
+         // Write header.
+         String header = "";
+         for (String[] options : SWEEP_OPTIONS)
+         {
+            for (int i = 0; i < options.length; i++)
+            {
+               if (i > 0)
+               {
+                  header += "/";
+               }
+               header += options[i].substring(1);
+            }
+            header += ",";
+         }
+         if (OPTIMIZER_NAME.equals("ImageRepairOptimizer"))
+         {
+            header += "fitness";
+         }
+         else
+         {
+            header += "error";
+         }
+         writer.println(header);
+         writer.flush();
+         System.out.println(header);
+
+         // Start sweep workers.
+         if (NUM_SWEEP_WORKERS > 0)
+         {
+            workers = new OptimizerWorkers(ParameterSweep.class.getName(), workerOptions, NUM_SWEEP_WORKERS);
+         }
+
+         // Run points in batches, writing results in point order.
+         int numPoints = getNumPoints();
+         int batchSize = Math.max(NUM_SWEEP_WORKERS, 1);
+         for (int p = 0; p < numPoints; p += batchSize)
+         {
+            ArrayList<String> points = new ArrayList<String>();
+            for (int q = p; q < numPoints && q < p + batchSize; q++)
+            {
+               points.add(encodePoint(q));
+            }
+            float[] results;
+            if (workers == null)
+            {
+               results = new float[points.size()];
+               for (int i = 0; i < results.length; i++)
+               {
+                  results[i] = run(points.get(i));
+               }
+            }
+            else
+            {
+               results = workers.evaluate(points);
+            }
+            for (int i = 0; i < results.length; i++)
+            {
+               int[]  indexes = getPointValues(p + i);
+               String row     = "";
+               for (int j = 0; j < indexes.length; j++)
+               {
+                  row += SWEEP_VALUES.get(j)[indexes[j]].trim() + ",";
+               }
+               row += results[i];
+               writer.println(row);
+               System.out.println(row);
+            }
+            writer.flush();
+         }
+      }
+      finally
+      {
+         if (workers != null)
+         {
+            workers.close();
+         }
+         writer.close();
+      }
+      System.out.println("Results saved to " + CSV_FILE_NAME);
+   }
+
+
+   // Main.
+   public static void main(String[] args)
+   {
+      String  usage  = "Usage: java morphozoic.applications.ParameterSweep" + OPTIONS;
+      boolean worker = false;
+
+      // Get arguments.
+      for (int i = 0; i < args.length; i++)
+      {
+         if (args[i].equals("-optimizer"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            OPTIMIZER_NAME = args[i];
+            if (!OPTIMIZER_NAME.equals("ImageRepairOptimizer") &&
+                !OPTIMIZER_NAME.equals("CellRegenerationOptimizer"))
+            {
+               System.err.println("Invalid optimizer: " + OPTIMIZER_NAME);
+               System.err.println(usage);
+               return;
+            }
+         }
+         else if (args[i].equals("-sweep"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            String[] options = args[i].split(",");
+            for (String option : options)
+            {
+               if (!option.startsWith("-") || (option.length() == 1))
+               {
+                  System.err.println("Invalid sweep option: " + option);
+                  System.err.println(usage);
+                  return;
+               }
+            }
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            String[] values = args[i].split(",");
+            for (String value : values)
+            {
+               if (value.trim().isEmpty())
+               {
+                  System.err.println("Invalid sweep values: " + args[i]);
+                  System.err.println(usage);
+                  return;
+               }
+            }
+            SWEEP_OPTIONS.add(options);
+            SWEEP_VALUES.add(values);
+         }
+         else if (args[i].equals("-csvFile"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            CSV_FILE_NAME = args[i];
+         }
+         else if (args[i].equals("-numSweepWorkers"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            NUM_SWEEP_WORKERS = Integer.parseInt(args[i]);
+            if (NUM_SWEEP_WORKERS < 0)
+            {
+               System.err.println("Invalid number of sweep workers");
+               System.err.println(usage);
+               return;
+            }
+         }
+         else if (args[i].equals(OptimizerWorkers.WORKER_OPTION))
+         {
+            worker = true;
+         }
+         else
+         {
+            OPTIMIZER_OPTIONS.add(args[i]);
+         }
+      }
+      if (OPTIMIZER_NAME == null)
+      {
+         System.err.println("Optimizer required");
+         System.err.println(usage);
+         return;
+      }
+      if (SWEEP_OPTIONS.size() == 0)
+      {
+         System.err.println("Sweep required");
+         System.err.println(usage);
+         return;
+      }
+
+      try
+      {
+         saveParameters();
+
+         // Run as worker process?
+         if (worker)
+         {
+            OptimizerWorkers.Evaluator evaluator = new OptimizerWorkers.Evaluator()
+            {
+               public float evaluate(String point) throws Exception
+               {
+                  return(run(point));
+               }
+            };
+            OptimizerWorkers.serve(evaluator);
+            return;
+         }
+
+         workerOptions = args;
+         sweep();
+      }
+      catch (Exception e) {
+         System.err.println(e.getMessage());
+      }
+   }
+}
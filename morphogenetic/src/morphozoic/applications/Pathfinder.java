@@ -11,8 +11,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import rdtree.RDclient;
 import morphozoic.Cell;
 import morphozoic.Metamorph;
 import morphozoic.Organism;
@@ -200,7 +201,8 @@ public class Pathfinder extends Organism
       {
          try
          {
-            reader = new DataInputStream(new FileInputStream(execFilename));
+            CRC32 checksum = new CRC32();
+            reader = new DataInputStream(new CheckedInputStream(new FileInputStream(execFilename), checksum));
             Parameters.load(reader);
             init();
             int     x, y, t;
@@ -236,7 +238,15 @@ public class Pathfinder extends Organism
                   while ((m = Metamorph.load(reader)) != null)
                   {
                      metamorphs.add(m);
-                     metamorphSearch.insert((RDclient)m);
+                  }
+                  buildMetamorphSearch(checksum.getValue());
+                  break;
+
+               case PARTITIONED_SEARCH_TREE:
+                  while ((m = Metamorph.load(reader)) != null)
+                  {
+                     metamorphs.add(m);
+                     metamorphPartitions.insert(m);
                   }
                   break;
 
@@ -247,6 +257,15 @@ public class Pathfinder extends Organism
                   }
                   createMetamorphNNs();
                   break;
+
+               case VECTOR_SEARCH_TREE:
+                  while ((m = Metamorph.load(reader)) != null)
+                  {
+                     metamorphs.add(m);
+                  }
+                  buildMetamorphSearch(checksum.getValue());
+                  buildMetamorphVectorSearch();
+                  break;
                }
             }
          }
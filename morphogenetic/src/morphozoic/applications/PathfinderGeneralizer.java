@@ -7,13 +7,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
 import java.util.Random;
 import morphozoic.Cell;
 import morphozoic.Parameters;
 
 // Generalize path finder application.
-public class PathfinderGeneralizer
+public class PathfinderGeneralizer extends GeneticAlgorithm<PathfinderGeneralizer.PathfinderMember>
 {
    // Options.
    public static final String OPTIONS =
@@ -23,7 +22,8 @@ public class PathfinderGeneralizer
       + "\n\t[-numTrainingMorphs <number of training morphs>]"
       + "\n\t[-numSourceCells <number of source cells>]"
       + "\n\t[-numTargetCells <number of target cells>]"
-      + "\n\t[-numUpdateSteps <number of morph update steps>]";
+      + "\n\t[-numUpdateSteps <number of morph update steps>]"
+      + "\n\t[-numWorkers <number of member evaluation worker processes (default=0: none)>]";
 
    // Optimization parameters:
 
@@ -63,9 +63,15 @@ public class PathfinderGeneralizer
    public static final float MAX_METAMORPH_RANDOM_BIAS   = 0.01f;
    public static final float DELTA_METAMORPH_RANDOM_BIAS = 0.001f;
 
+   // Number of member evaluation worker processes: 0 = evaluate in this process.
+   public static int NUM_WORKERS = 0;
+
+   // Worker process options.
+   static String[] workerOptions = new String[0];
+
    // File names.
-   public static final String WORK_FILE_NAME    = "pathfinder_work.dat";
-   public static final String FITTEST_FILE_NAME = "pathfinder_fittest.dat";
+   public static final String WORK_FILE_NAME_PREFIX = "pathfinder_work";
+   public static final String FITTEST_FILE_NAME     = "pathfinder_fittest.dat";
 
    // Path finder population member.
    class PathfinderMember
@@ -73,6 +79,9 @@ public class PathfinderGeneralizer
       // Path finder.
       Pathfinder pathfinder;
 
+      // Work file name: members have their own, so they can run concurrently.
+      String workFileName;
+
       // Fitness.
       float fitness;
 
@@ -112,7 +121,7 @@ public class PathfinderGeneralizer
          Random r = new Random(trainingSeed);
          String[] args = new String[2];
          args[0]       = "-genMetamorphs";
-         args[1]       = WORK_FILE_NAME;
+         args[1]       = workFileName;
          for (int i = 0; i < NUM_TRAINING_MORPHS; i++)
          {
             pathfinder = new Pathfinder(args, 0);
@@ -140,7 +149,7 @@ public class PathfinderGeneralizer
 
          // Test.
          args[0]             = "-execMetamorphs";
-         args[1]             = WORK_FILE_NAME;
+         args[1]             = workFileName;
          pathfinder          = new Pathfinder(args, 0);
          int[][] shadowTypes = new int[Parameters.ORGANISM_DIMENSIONS.width][Parameters.ORGANISM_DIMENSIONS.height];
          for (int x = 0; x < Parameters.ORGANISM_DIMENSIONS.width; x++)
@@ -271,6 +280,47 @@ public class PathfinderGeneralizer
       }
 
 
+      // Encode work file name and parameters.
+      String encodeParameters()
+      {
+         StringBuilder parameters = new StringBuilder();
+
+         parameters.append(workFileName).append(" ");
+         parameters.append(NEIGHBORHOOD_DIMENSION).append(" ");
+         parameters.append(NUM_NEIGHBORHOODS).append(" ");
+         parameters.append(METAMORPH_DIMENSION).append(" ");
+         parameters.append(MAX_CELL_METAMORPHS).append(" ");
+         parameters.append(METAMORPH_RANDOM_BIAS).append(" ");
+         parameters.append(INHIBIT_COMPETING_MORPHOGENS).append(" ");
+         parameters.append(NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length);
+         for (float weight : NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS)
+         {
+            parameters.append(" ").append(weight);
+         }
+         return(parameters.toString());
+      }
+
+
+      // Decode work file name and parameters.
+      void decodeParameters(String parameters)
+      {
+         String[] values = parameters.trim().split(" ");
+
+         workFileName                 = values[0];
+         NEIGHBORHOOD_DIMENSION       = Integer.parseInt(values[1]);
+         NUM_NEIGHBORHOODS            = Integer.parseInt(values[2]);
+         METAMORPH_DIMENSION          = Integer.parseInt(values[3]);
+         MAX_CELL_METAMORPHS          = Integer.parseInt(values[4]);
+         METAMORPH_RANDOM_BIAS        = Float.parseFloat(values[5]);
+         INHIBIT_COMPETING_MORPHOGENS = Boolean.parseBoolean(values[6]);
+         NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[Integer.parseInt(values[7])];
+         for (int i = 0; i < NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; i++)
+         {
+            NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[i] = Float.parseFloat(values[8 + i]);
+         }
+      }
+
+
       // Set parameters.
       void setParameters()
       {
@@ -341,7 +391,8 @@ public class PathfinderGeneralizer
       void save() throws IOException
       {
          // Copy work to fittest.
-         Files.copy(new File(WORK_FILE_NAME).toPath(), new File(FITTEST_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING);
+         setParameters();
+         Files.copy(new File(workFileName).toPath(), new File(FITTEST_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING);
 
          // Configure test cells with accumulated metamorphs.
          String[] args = new String[2];
@@ -370,108 +421,161 @@ public class PathfinderGeneralizer
       }
    }
 
-   // Path finder population.
-   ArrayList<PathfinderMember> population;
-
-   // Random numbers.
-   Random randomizer;
-   int    trainingSeed;
-   int    testingSeed;
+   // Training and testing random seeds.
+   int trainingSeed;
+   int testingSeed;
 
-   // Constructor.
-   public PathfinderGeneralizer() throws IllegalArgumentException, IOException
+   // Constructor: a worker only evaluates members.
+   public PathfinderGeneralizer(boolean worker) throws IllegalArgumentException, IOException
    {
       // Random numbers.
-      randomizer   = new Random(Parameters.RANDOM_SEED);
+      super(1, SELECTION.IN_PLACE, Parameters.RANDOM_SEED);
       trainingSeed = randomizer.nextInt();
       testingSeed  = randomizer.nextInt();
 
+      // Encode members for workers.
+      MemberEncoder<PathfinderMember> encoder = new MemberEncoder<PathfinderMember>()
+      {
+         public String encode(PathfinderMember member)
+         {
+            return(member.encodeParameters());
+         }
+         public PathfinderMember decode(String parameters)
+         {
+            PathfinderMember member = new PathfinderMember();
+            member.decodeParameters(parameters);
+            return(member);
+         }
+         public float getEvaluation(PathfinderMember member)
+         {
+            return(member.fitness);
+         }
+         public void setEvaluation(PathfinderMember member, float fitness)
+         {
+            member.fitness = fitness;
+         }
+      };
+      setEncoder(encoder);
+      if (worker)
+      {
+         return;
+      }
+
+      // Start member evaluation workers.
+      startWorkers(PathfinderGeneralizer.class.getName(), workerOptions, NUM_WORKERS);
+
       // Create path finder population.
-      population = new ArrayList<PathfinderMember>();
       for (int i = 0; i < POPULATION_SIZE; i++)
       {
-         PathfinderMember member = new PathfinderMember();
+         PathfinderMember member = randomMember();
+         member.workFileName = WORK_FILE_NAME_PREFIX + "_" + i + ".dat";
          population.add(member);
-         member.pathfinder = null;
-         member.fitness    = 0.0f;
+      }
+   }
+
 
-         // Generate member parameters.
-         member.NEIGHBORHOOD_DIMENSION = randomizer.nextInt(MAX_NEIGHBORHOOD_DIMENSION - MIN_NEIGHBORHOOD_DIMENSION + 1) + MIN_NEIGHBORHOOD_DIMENSION;
-         if ((member.NEIGHBORHOOD_DIMENSION % 2) != 1)
+   // Generate random member.
+   PathfinderMember randomMember()
+   {
+      PathfinderMember member = new PathfinderMember();
+      member.pathfinder = null;
+      member.fitness    = 0.0f;
+
+      // Generate member parameters.
+      member.NEIGHBORHOOD_DIMENSION = randomizer.nextInt(MAX_NEIGHBORHOOD_DIMENSION - MIN_NEIGHBORHOOD_DIMENSION + 1) + MIN_NEIGHBORHOOD_DIMENSION;
+      if ((member.NEIGHBORHOOD_DIMENSION % 2) != 1)
+      {
+         if (randomizer.nextBoolean())
          {
-            if (randomizer.nextBoolean())
-            {
-               member.NEIGHBORHOOD_DIMENSION--;
-            }
-            else
-            {
-               member.NEIGHBORHOOD_DIMENSION++;
-            }
+            member.NEIGHBORHOOD_DIMENSION--;
          }
-         member.NUM_NEIGHBORHOODS = randomizer.nextInt(MAX_NUM_NEIGHBORHOODS - MIN_NUM_NEIGHBORHOODS + 1) + MIN_NUM_NEIGHBORHOODS;
-         member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[member.NUM_NEIGHBORHOODS];
-         float f = 0.0f;
-         for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+         else
          {
-            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = randomizer.nextFloat();
-            f += member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j];
+            member.NEIGHBORHOOD_DIMENSION++;
          }
-         for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      }
+      member.NUM_NEIGHBORHOODS = randomizer.nextInt(MAX_NUM_NEIGHBORHOODS - MIN_NUM_NEIGHBORHOODS + 1) + MIN_NUM_NEIGHBORHOODS;
+      member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS = new float[member.NUM_NEIGHBORHOODS];
+      float f = 0.0f;
+      for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      {
+         member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = randomizer.nextFloat();
+         f += member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j];
+      }
+      for (int j = 0; j < member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length; j++)
+      {
+         if (f > 0.0f)
          {
-            if (f > 0.0f)
-            {
-               member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] /= f;
-            }
-            else
-            {
-               member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = 1.0f / member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length;
-            }
+            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] /= f;
          }
-         member.METAMORPH_DIMENSION = randomizer.nextInt(MAX_METAMORPH_DIMENSION - MIN_METAMORPH_DIMENSION + 1) + MIN_METAMORPH_DIMENSION;
-         if ((member.METAMORPH_DIMENSION % 2) != 1)
+         else
          {
-            if (randomizer.nextBoolean())
-            {
-               member.METAMORPH_DIMENSION--;
-            }
-            else
-            {
-               member.METAMORPH_DIMENSION++;
-            }
+            member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS[j] = 1.0f / member.NESTED_NEIGHBORHOOD_IMPORTANCE_WEIGHTS.length;
          }
-         member.MAX_CELL_METAMORPHS          = randomizer.nextInt(MAX_MAX_CELL_METAMORPHS - MIN_MAX_CELL_METAMORPHS + 1) + MIN_MAX_CELL_METAMORPHS;
-         member.METAMORPH_RANDOM_BIAS        = (randomizer.nextFloat() * (MAX_METAMORPH_RANDOM_BIAS - MIN_METAMORPH_RANDOM_BIAS)) + MIN_METAMORPH_RANDOM_BIAS;
-         member.INHIBIT_COMPETING_MORPHOGENS = randomizer.nextBoolean();
       }
+      member.METAMORPH_DIMENSION = randomizer.nextInt(MAX_METAMORPH_DIMENSION - MIN_METAMORPH_DIMENSION + 1) + MIN_METAMORPH_DIMENSION;
+      if ((member.METAMORPH_DIMENSION % 2) != 1)
+      {
+         if (randomizer.nextBoolean())
+         {
+            member.METAMORPH_DIMENSION--;
+         }
+         else
+         {
+            member.METAMORPH_DIMENSION++;
+         }
+      }
+      member.MAX_CELL_METAMORPHS          = randomizer.nextInt(MAX_MAX_CELL_METAMORPHS - MIN_MAX_CELL_METAMORPHS + 1) + MIN_MAX_CELL_METAMORPHS;
+      member.METAMORPH_RANDOM_BIAS        = (randomizer.nextFloat() * (MAX_METAMORPH_RANDOM_BIAS - MIN_METAMORPH_RANDOM_BIAS)) + MIN_METAMORPH_RANDOM_BIAS;
+      member.INHIBIT_COMPETING_MORPHOGENS = randomizer.nextBoolean();
+
+      return(member);
+   }
+
+
+   // Member fitness.
+   public float getFitness(PathfinderMember member)
+   {
+      return(member.fitness);
+   }
+
+
+   // Run member.
+   // Members are run by setting the global parameters, so they run
+   // concurrently only in worker processes.
+   public void evaluate(PathfinderMember member) throws IOException
+   {
+      member.run();
    }
 
 
    // Run optimization.
-   public void run() throws IOException
+   public void run() throws Exception
    {
-      // Run members.
+      try
+      {
+         // Run members.
+         evaluate(population, NUM_UPDATE_STEPS);
+      }
+      finally
+      {
+         shutdown();
+      }
       System.out.println("Member\tFitness");
-      PathfinderMember fittestMember = null;
-      int              fittestIndex  = -1;
-      for (int i = 0; i < population.size(); i++)
+      for (int i = 0, j = population.size(); i < j; i++)
       {
-         PathfinderMember member = population.get(i);
-         member.run();
-         System.out.println(i + "\t" + member.fitness + "\n");
-         if ((fittestMember == null) || (member.fitness > fittestMember.fitness))
-         {
-            fittestIndex  = i;
-            fittestMember = member;
-            fittestMember.save();
-         }
+         System.out.println(i + "\t" + population.get(i).fitness);
       }
 
+      // Save fittest member.
       System.out.println("Fittest member:\nMember\tFitness");
+      int fittestIndex = fittest();
       if (fittestIndex != -1)
       {
+         PathfinderMember fittestMember = population.get(fittestIndex);
+         fittestMember.save();
          System.out.println(fittestIndex + "\t" + fittestMember.fitness);
          System.out.println("Parameters:");
-         fittestMember.setParameters();
          Parameters.print();
          System.out.println("Pathfinder saved to " + FITTEST_FILE_NAME);
       }
@@ -479,13 +583,18 @@ public class PathfinderGeneralizer
       {
          System.out.println("Unavailable");
       }
+      for (PathfinderMember member : population)
+      {
+         new File(member.workFileName).delete();
+      }
    }
 
 
    // Main.
    public static void main(String[] args)
    {
-      String usage = "Usage: java morphozoic.applications.PathfinderGeneralizer" + OPTIONS;
+      String  usage  = "Usage: java morphozoic.applications.PathfinderGeneralizer" + OPTIONS;
+      boolean worker = false;
 
       // Get arguments.
       for (int i = 0; i < args.length; i++)
@@ -610,6 +719,26 @@ public class PathfinderGeneralizer
                return;
             }
          }
+         else if (args[i].equals("-numWorkers"))
+         {
+            i++;
+            if (i == args.length)
+            {
+               System.err.println(usage);
+               return;
+            }
+            NUM_WORKERS = Integer.parseInt(args[i]);
+            if (NUM_WORKERS < 0)
+            {
+               System.err.println("Invalid number of workers");
+               System.err.println(usage);
+               return;
+            }
+         }
+         else if (args[i].equals(OptimizerWorkers.WORKER_OPTION))
+         {
+            worker = true;
+         }
          else
          {
             System.out.println(usage);
@@ -619,12 +748,29 @@ public class PathfinderGeneralizer
       if (Parameters.NUM_CELL_TYPES != 3)
       {
          Parameters.NUM_CELL_TYPES = 3;
-         System.out.println("Setting NUM_CELL_TYPES = " + Parameters.NUM_CELL_TYPES);
+         if (!worker)
+         {
+            System.out.println("Setting NUM_CELL_TYPES = " + Parameters.NUM_CELL_TYPES);
+         }
+      }
+
+      // Run as worker process?
+      if (worker)
+      {
+         try
+         {
+            new PathfinderGeneralizer(true).serve();
+         }
+         catch (Exception e) {
+            System.err.println(e.getMessage());
+         }
+         return;
       }
 
       try
       {
-         PathfinderGeneralizer generalizer = new PathfinderGeneralizer();
+         workerOptions = args;
+         PathfinderGeneralizer generalizer = new PathfinderGeneralizer(false);
          generalizer.run();
       }
       catch (Exception e) {
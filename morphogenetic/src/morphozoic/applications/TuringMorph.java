@@ -8,8 +8,9 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import rdtree.RDclient;
 import morphozoic.Metamorph;
 import morphozoic.Organism;
 import morphozoic.Parameters;
@@ -104,7 +105,8 @@ public class TuringMorph extends Organism
       {
          try
          {
-            reader = new DataInputStream(new FileInputStream(execFilename));
+            CRC32 checksum = new CRC32();
+            reader = new DataInputStream(new CheckedInputStream(new FileInputStream(execFilename), checksum));
             Parameters.load(reader);
             init();
             Metamorph m;
@@ -121,7 +123,15 @@ public class TuringMorph extends Organism
                while ((m = Metamorph.load(reader)) != null)
                {
                   metamorphs.add(m);
-                  metamorphSearch.insert((RDclient)m);
+               }
+               buildMetamorphSearch(checksum.getValue());
+               break;
+
+            case PARTITIONED_SEARCH_TREE:
+               while ((m = Metamorph.load(reader)) != null)
+               {
+                  metamorphs.add(m);
+                  metamorphPartitions.insert(m);
                }
                break;
 
@@ -132,6 +142,15 @@ public class TuringMorph extends Organism
                }
                createMetamorphNNs();
                break;
+
+            case VECTOR_SEARCH_TREE:
+               while ((m = Metamorph.load(reader)) != null)
+               {
+                  metamorphs.add(m);
+               }
+               buildMetamorphSearch(checksum.getValue());
+               buildMetamorphVectorSearch();
+               break;
             }
          }
          catch (Exception e)
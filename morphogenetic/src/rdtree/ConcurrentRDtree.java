@@ -0,0 +1,228 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Relative distance tree supporting concurrent searches and inserts.
+ *
+ * Updates are made to a private working tree under a lock. Searches run
+ * lock-free on an immutable snapshot of the working tree, which is copied
+ * and published on the first search following an update. A batch of
+ * updates therefore costs a single copy, and searches made while no
+ * updates are pending never lock.
+ */
+
+package rdtree;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class ConcurrentRDtree
+{
+   // Working tree: guarded by lock.
+   private RDtree working;
+
+   // Published snapshot.
+   private volatile RDtree snapshot;
+
+   // Working tree has unpublished updates?
+   private volatile boolean dirty;
+
+   // Update lock.
+   private Object lock = new Object();
+
+   // Constructors.
+   public ConcurrentRDtree()
+   {
+      working  = new RDtree();
+      snapshot = working.copy();
+      dirty    = false;
+   }
+
+
+   public ConcurrentRDtree(float radius)
+   {
+      working  = new RDtree(radius);
+      snapshot = working.copy();
+      dirty    = false;
+   }
+
+
+   private ConcurrentRDtree(RDtree tree)
+   {
+      working  = tree;
+      snapshot = null;
+      dirty    = true;
+   }
+
+
+   // Insert pattern.
+   public void insert(RDclient client)
+   {
+      synchronized (lock)
+      {
+         working.insert(client);
+         dirty = true;
+      }
+   }
+
+
+   // Build from clients, replacing contents.
+   public <T extends RDclient> void build(List<T> clients, Comparator<? super T> comparator)
+   {
+      synchronized (lock)
+      {
+         working.build(clients, comparator);
+         dirty = true;
+      }
+   }
+
+
+   // Remove pattern.
+   public void remove(RDclient client)
+   {
+      synchronized (lock)
+      {
+         working.remove(client);
+         dirty = true;
+      }
+   }
+
+
+   // Replace pattern.
+   public void replace(RDclient oldClient, RDclient newClient)
+   {
+      synchronized (lock)
+      {
+         working.replace(oldClient, newClient);
+         dirty = true;
+      }
+   }
+
+
+   // Fork tree, substituting clients.
+   public ConcurrentRDtree fork(Map<? extends RDclient, ? extends RDclient> substitutes)
+   {
+      synchronized (lock)
+      {
+         return(new ConcurrentRDtree(working.fork(substitutes)));
+      }
+   }
+
+
+   // Set number of pivots.
+   public void setPivots(int numPivots)
+   {
+      synchronized (lock)
+      {
+         working.setPivots(numPivots);
+         dirty = true;
+      }
+   }
+
+
+   // Save tree structure as an index.
+   public void saveIndex(DataOutputStream writer, List<? extends RDclient> clients) throws IOException
+   {
+      synchronized (lock)
+      {
+         working.saveIndex(writer, clients);
+      }
+   }
+
+
+   // Load tree structure from index, replacing contents.
+   public void loadIndex(ByteBuffer buffer, List<? extends RDclient> clients) throws IOException
+   {
+      synchronized (lock)
+      {
+         working.loadIndex(buffer, clients);
+         dirty = true;
+      }
+   }
+
+
+   // Get current snapshot, publishing pending updates.
+   // The snapshot must not be modified.
+   public RDtree getSnapshot()
+   {
+      if (dirty)
+      {
+         synchronized (lock)
+         {
+            if (dirty)
+            {
+               snapshot = working.copy();
+               dirty    = false;
+            }
+         }
+      }
+      return(snapshot);
+   }
+
+
+   // Get statistics, shared by the working tree and its snapshots.
+   public RDtreeStats getStats()
+   {
+      return(getSnapshot().stats);
+   }
+
+
+   // Get statistics snapshot, with shape of the current snapshot.
+   public RDtreeStats.Snapshot getStatsSnapshot()
+   {
+      return(getSnapshot().getStatsSnapshot());
+   }
+
+
+   // Create search context.
+   public RDtree.SearchContext newSearchContext()
+   {
+      return(getSnapshot().newSearchContext());
+   }
+
+
+   // Create lookup context.
+   public RDtree.LookupContext newLookupContext()
+   {
+      return(getSnapshot().newLookupContext());
+   }
+
+
+   // Search for patterns closest to the given client pattern.
+   public RDtree.RDsearch search(RDclient client, int maxFind, int maxSearch)
+   {
+      return(getSnapshot().search(client, maxFind, maxSearch));
+   }
+
+
+   // Search using thread-confined context.
+   public int search(RDtree.SearchContext ctx, RDclient client, int maxFind, int maxSearch)
+   {
+      return(getSnapshot().search(ctx, client, maxFind, maxSearch));
+   }
+
+
+   // Search for closest patterns within distance using thread-confined context.
+   public int search(RDtree.SearchContext ctx, RDclient client, int maxFind, int maxSearch, float maxDist)
+   {
+      return(getSnapshot().search(ctx, client, maxFind, maxSearch, maxDist));
+   }
+
+
+   // Look up batch of patterns, searching once per distinct query, using thread-confined context.
+   public int lookupBatch(RDtree.LookupContext batch, RDclient[] queries, int numQueries,
+                          int maxFind, int maxSearch, float maxDist)
+   {
+      return(getSnapshot().lookupBatch(batch, queries, numQueries, maxFind, maxSearch, maxDist));
+   }
+
+
+   // Search for patterns within distance using thread-confined context.
+   public int searchRadius(RDtree.SearchContext ctx, RDclient client, float maxDist, int maxSearch)
+   {
+      return(getSnapshot().searchRadius(ctx, client, maxDist, maxSearch));
+   }
+}
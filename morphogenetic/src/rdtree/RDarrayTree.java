@@ -0,0 +1,832 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Relative distance tree with nodes stored in parallel primitive arrays.
+ *
+ * This is the RDtree algorithm with node links held as int indices and
+ * parent distances as floats, so a traversal touches a few arrays rather
+ * than chasing node objects across the heap. A node's index is also its
+ * client id. Search elements and the search stack are likewise arrays
+ * held in a reusable search context.
+ */
+
+package rdtree;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class RDarrayTree
+{
+   // No node/search element.
+   public static final int NONE = -1;
+
+   // Empty search element.
+   static final int EMPTY = -2;
+
+   // Search states.
+   static final byte DISTPENDING = 0;
+   static final byte DISTDONE    = 1;
+   static final byte EXPANDED    = 2;
+   static final byte SRCHDONE    = 3;
+
+   // Tree configuration parameter.
+   public float RADIUS = RDtree.DEFAULT_RADIUS;
+
+   // Tree root.
+   public int root;
+
+   // Number of nodes.
+   public int size;
+
+   // Nodes.
+   public RDclient[] clients;
+   public int[]      childlist;
+   public int[]      childlast;
+   public int[]      sibnext;
+   public int[]      sibback;
+   public float[]    distance;
+
+   // Initial capacity.
+   public static int INITIAL_CAPACITY = 1024;
+
+   // Statistics (null=disabled).
+   public RDtreeStats stats = new RDtreeStats();
+
+   // Insert distance evaluations.
+   int insertDists;
+
+   // Constructors.
+   public RDarrayTree()
+   {
+      init();
+   }
+
+
+   public RDarrayTree(float radius)
+   {
+      RADIUS = radius;
+      init();
+   }
+
+
+   // Initialize.
+   void init()
+   {
+      root      = NONE;
+      size      = 0;
+      clients   = new RDclient[0];
+      childlist = new int[0];
+      childlast = new int[0];
+      sibnext   = new int[0];
+      sibback   = new int[0];
+      distance  = new float[0];
+      grow(INITIAL_CAPACITY);
+   }
+
+
+   // Grow node capacity.
+   protected void grow(int capacity)
+   {
+      RDclient[] c = new RDclient[capacity];
+      System.arraycopy(clients, 0, c, 0, size);
+      clients = c;
+      childlist = copyOf(childlist, capacity);
+      childlast = copyOf(childlast, capacity);
+      sibnext   = copyOf(sibnext, capacity);
+      sibback   = copyOf(sibback, capacity);
+      float[] d = new float[capacity];
+      System.arraycopy(distance, 0, d, 0, size);
+      distance = d;
+   }
+
+
+   int[] copyOf(int[] a, int capacity)
+   {
+      int[] b = new int[capacity];
+
+      System.arraycopy(a, 0, b, 0, size);
+      return(b);
+   }
+
+
+   // Add unlinked node for client.
+   protected int addNode(RDclient client)
+   {
+      if (size == clients.length)
+      {
+         grow(clients.length * 2);
+      }
+      int node = size++;
+      clients[node]   = client;
+      childlist[node] = childlast[node] = NONE;
+      sibnext[node]   = sibback[node] = NONE;
+      distance[node]  = 0.0f;
+      return(node);
+   }
+
+
+   // Get client.
+   public RDclient getClient(int node)
+   {
+      return(clients[node]);
+   }
+
+
+   // Distance between nodes.
+   protected float nodeDist(int node1, int node2)
+   {
+      return(clients[node1].dist(clients[node2]));
+   }
+
+
+   // Prepare search context for query.
+   protected void prepareQuery(SearchContext ctx, RDclient client)
+   {
+      ctx.query = client;
+   }
+
+
+   // Distance from node to query.
+   protected float queryDist(SearchContext ctx, int node)
+   {
+      return(clients[node].dist(ctx.query));
+   }
+
+
+   // Load structure of tree, replacing contents.
+   // Nodes are stored breadth first so that siblings are contiguous.
+   public void load(RDtree tree)
+   {
+      init();
+      if (tree.root == null)
+      {
+         return;
+      }
+      ArrayList<RDtree.RDnode> nodes = new ArrayList<RDtree.RDnode>();
+      nodes.add(tree.root);
+      root = addNode(tree.root.client);
+      for (int i = 0; i < nodes.size(); i++)
+      {
+         RDtree.RDnode node = nodes.get(i);
+         for (RDtree.RDnode p = node.childlist; p != null; p = p.sibnext)
+         {
+            int child = addNode(p.client);
+            distance[child] = p.distance;
+            sibback[child]  = childlast[i];
+            if (childlast[i] != NONE)
+            {
+               sibnext[childlast[i]] = child;
+            }
+            else
+            {
+               childlist[i] = child;
+            }
+            childlast[i] = child;
+            nodes.add(p);
+         }
+      }
+   }
+
+
+   // Build from clients, replacing contents.
+   public <T extends RDclient> void build(List<T> clients, Comparator<? super T> comparator)
+   {
+      RDtree tree = new RDtree(RADIUS);
+
+      tree.build(clients, comparator);
+      load(tree);
+   }
+
+
+   // Insert pattern.
+   public int insert(RDclient client)
+   {
+      int node = addNode(client);
+
+      insertDists = 0;
+      insert(root, node);
+      if (stats != null)
+      {
+         stats.recordInsert(insertDists);
+      }
+      return(node);
+   }
+
+
+   // Insert node.
+   void insert(int current, int node)
+   {
+      int   p, p2, p3;
+      float dcn, dnn;
+
+      /* clear node */
+      childlist[node] = NONE;
+      childlast[node] = NONE;
+      sibnext[node]   = NONE;
+      sibback[node]   = NONE;
+      distance[node]  = 0.0f;
+
+      /* new root? */
+      if (current == NONE)
+      {
+         root = node;
+         return;
+      }
+
+      /* add pattern to first acceptable branch */
+      dcn = nodeDist(node, current);
+      insertDists++;
+      while (true)
+      {
+         for (p = childlist[current]; p != NONE; p = sibnext[p])
+         {
+            /* check relative distances */
+            dnn = nodeDist(node, p);
+            insertDists++;
+            if (dnn <= (distance[p] * RADIUS))
+            {
+               /* change current fragment */
+               current = p;
+               dcn     = dnn;
+               break;
+            }
+         }
+         if (p == NONE)
+         {
+            break;
+         }
+      }
+
+      /* link new as child of current pattern */
+      distance[node] = dcn;
+      sibnext[node]  = NONE;
+      sibback[node]  = childlast[current];
+      if (childlast[current] != NONE)
+      {
+         sibnext[childlast[current]] = node;
+      }
+      else
+      {
+         childlist[current] = node;
+      }
+      childlast[current] = node;
+
+      /*
+       * check if previously added patterns should be unlinked from the
+       * current pattern and linked as children of the new pattern.
+       */
+      for (p = childlist[current]; p != node && p != NONE; )
+      {
+         dnn = nodeDist(node, p);
+         insertDists++;
+
+         /* if should be linked to new pattern */
+         if (dnn <= (distance[node] * RADIUS))
+         {
+            /* re-link children */
+            p2 = sibnext[p];
+            if (sibback[p] != NONE)
+            {
+               sibnext[sibback[p]] = p2;
+            }
+            else
+            {
+               childlist[current] = p2;
+            }
+            if (p2 != NONE)
+            {
+               sibback[p2] = sibback[p];
+            }
+
+            /* convert child sub-tree to list */
+            for (p2 = p3 = p, sibnext[p] = NONE; ; p3 = sibnext[p3])
+            {
+               for ( ; sibnext[p2] != NONE; p2 = sibnext[p2])
+               {
+               }
+               for ( ; p3 != NONE && childlist[p3] == NONE; p3 = sibnext[p3])
+               {
+               }
+               if (p3 == NONE)
+               {
+                  break;
+               }
+               sibnext[p2] = childlist[p3];
+            }
+
+            /* add list to current pattern */
+            for (p2 = p; p2 != NONE; p2 = p3)
+            {
+               p3 = sibnext[p2];
+               insert(current, p2);
+            }
+
+            /* restart check (since child configuration may have changed) */
+            for (p = childlist[current]; p != node && p != NONE; p = sibnext[p])
+            {
+            }
+            if (p == NONE)
+            {
+               break;
+            }
+            p = childlist[current];
+         }
+         else
+         {
+            p = sibnext[p];
+         }
+      }
+   }
+
+
+   // Search context.
+   // Search elements, search stack and results of a search, reused by
+   // subsequent searches. A context must be confined to one thread.
+   public static class SearchContext
+   {
+      // Query.
+      protected RDclient query;
+
+      // Search elements.
+      int[]   srchNode;                    /* node */
+      float[] srchDist;                    /* comparison distance */
+      int[]   srchNext;                    /* next on search return list */
+      float[] workDist;                    /* work distance */
+      byte[]  state;                       /* search state */
+      int[]   srchChild;                   /* children */
+      int[]   srchSib;                     /* next sibling */
+      int[]   srchBack;                    /* previous sibling */
+      int     numSrch;
+
+      // Search stack.
+      int[] stkCurr;
+      int[] stkChild;
+      int[] stkChildNext;
+      int   stkIdx;
+
+      // Search control.
+      int srchList;                        /* search results */
+      int cutoff;                          /* cut off element */
+      int numFound;                        /* number found */
+      int maxFind;                         /* max number of results */
+      int maxSearch;                       /* max nodes to search (-1=unlimited) */
+      float maxDist;                       /* max distance of patterns found */
+      int   numDists;                      /* distance evaluations */
+      int   numExpanded;                   /* nodes expanded */
+      int   maxStkIdx;                     /* max stack index reached */
+
+      // Search results, ordered as on the search return list (farthest first).
+      public int     numResults;
+      public int[]   resultIds;
+      public float[] resultDistances;
+
+      // Constructor.
+      public SearchContext()
+      {
+         growSearch(RDtree.SrchPoolSz);
+         stkCurr         = new int[RDtree.SrchStkSz];
+         stkChild        = new int[RDtree.SrchStkSz];
+         stkChildNext    = new int[RDtree.SrchStkSz];
+         resultIds       = new int[0];
+         resultDistances = new float[0];
+      }
+
+
+      // Prepare for search.
+      void reset(int maxFind, int maxSearch, float maxDist)
+      {
+         this.maxFind   = maxFind;
+         this.maxSearch = maxSearch;
+         this.maxDist   = maxDist;
+         numSrch        = 0;
+         stkIdx         = 0;
+         srchList       = NONE;
+         cutoff         = NONE;
+         numFound       = 0;
+         numResults     = 0;
+         numDists       = 0;
+         numExpanded    = 0;
+         maxStkIdx      = 0;
+      }
+
+
+      // Ensure result capacity.
+      void ensureResults(int n)
+      {
+         if (resultIds.length < n)
+         {
+            resultIds       = new int[n];
+            resultDistances = new float[n];
+         }
+      }
+
+
+      // Grow search elements.
+      void growSearch(int capacity)
+      {
+         int n = numSrch;
+
+         srchNode  = copyOf(srchNode, capacity, n);
+         srchDist  = copyOf(srchDist, capacity, n);
+         srchNext  = copyOf(srchNext, capacity, n);
+         workDist  = copyOf(workDist, capacity, n);
+         srchChild = copyOf(srchChild, capacity, n);
+         srchSib   = copyOf(srchSib, capacity, n);
+         srchBack  = copyOf(srchBack, capacity, n);
+         byte[] s = new byte[capacity];
+         if (state != null)
+         {
+            System.arraycopy(state, 0, s, 0, n);
+         }
+         state = s;
+      }
+
+
+      static int[] copyOf(int[] a, int capacity, int n)
+      {
+         int[] b = new int[capacity];
+
+         if (a != null)
+         {
+            System.arraycopy(a, 0, b, 0, n);
+         }
+         return(b);
+      }
+
+
+      static float[] copyOf(float[] a, int capacity, int n)
+      {
+         float[] b = new float[capacity];
+
+         if (a != null)
+         {
+            System.arraycopy(a, 0, b, 0, n);
+         }
+         return(b);
+      }
+
+
+      // New search element for node.
+      int newSearch(int node)
+      {
+         if (numSrch == srchNode.length)
+         {
+            growSearch(srchNode.length * 2);
+         }
+         int sw = numSrch++;
+         srchNode[sw]  = node;
+         srchDist[sw]  = 0.0f;
+         srchNext[sw]  = NONE;
+         workDist[sw]  = 0.0f;
+         state[sw]     = DISTPENDING;
+         srchChild[sw] = srchSib[sw] = srchBack[sw] = NONE;
+         return(sw);
+      }
+
+
+      // Push search stack.
+      void push()
+      {
+         stkIdx++;
+         if (stkIdx == stkCurr.length)
+         {
+            int n = stkCurr.length;
+            stkCurr      = copyOf(stkCurr, n * 2, n);
+            stkChild     = copyOf(stkChild, n * 2, n);
+            stkChildNext = copyOf(stkChildNext, n * 2, n);
+         }
+      }
+   }
+
+   // Create search context.
+   public SearchContext newSearchContext()
+   {
+      return(new SearchContext());
+   }
+
+
+   /* Search space for patterns closest to the given client pattern */
+   /* Results are returned in the context; return number of results */
+   public int search(SearchContext ctx, RDclient client, int maxFind, int maxSearch)
+   {
+      return(search(ctx, client, maxFind, maxSearch, Float.POSITIVE_INFINITY));
+   }
+
+
+   /* Search space for patterns within the given distance of the client pattern */
+   /* Results are returned in the context; return number of results */
+   public int searchRadius(SearchContext ctx, RDclient client, float maxDist, int maxSearch)
+   {
+      return(search(ctx, client, Integer.MAX_VALUE, maxSearch, maxDist));
+   }
+
+
+   /* Search space for patterns closest to the given client pattern */
+   /* and within the given distance of it, pruning by the distance */
+   /* Results are returned in the context; return number of results */
+   public int search(SearchContext ctx, RDclient client, int maxFind, int maxSearch, float maxDist)
+   {
+      int sw, i;
+
+      ctx.reset(maxFind, maxSearch, maxDist);
+      if (root == NONE)
+      {
+         return(0);
+      }
+      prepareQuery(ctx, client);
+
+      /* search tree */
+      search(ctx);
+
+      /* extract search results */
+      ctx.ensureResults(ctx.numFound);
+      for (sw = ctx.srchList, i = 0; sw != NONE; sw = ctx.srchNext[sw], i++)
+      {
+         ctx.resultIds[i]       = ctx.srchNode[sw];
+         ctx.resultDistances[i] = ctx.srchDist[sw];
+      }
+      ctx.numResults = i;
+      ctx.query      = null;
+      if (stats != null)
+      {
+         stats.recordSearch(ctx.numDists, 0, 0, ctx.numExpanded, ctx.maxStkIdx + 1,
+                            ctx.resultDistances, ctx.numResults);
+      }
+      return(ctx.numResults);
+   }
+
+
+   // Get statistics snapshot, with tree shape.
+   public RDtreeStats.Snapshot getStatsSnapshot()
+   {
+      if (stats == null)
+      {
+         return(null);
+      }
+      return(stats.snapshot(getShape()));
+   }
+
+
+   // Get tree shape.
+   public RDtreeStats.Shape getShape()
+   {
+      int[] nodes   = new int[size];
+      int[] depths  = new int[size];
+      int[] fanouts = new int[size];
+      int   n       = 0;
+
+      /* breadth first: children follow in order */
+      if (root != NONE)
+      {
+         nodes[n++] = root;
+      }
+      for (int i = 0; i < n; i++)
+      {
+         for (int p = childlist[nodes[i]]; p != NONE; p = sibnext[p])
+         {
+            depths[n]  = depths[i] + 1;
+            nodes[n++] = p;
+            fanouts[i]++;
+         }
+      }
+      return(new RDtreeStats.Shape(n, depths, fanouts));
+   }
+
+
+   /* search space for patterns closest to the query */
+   /* put best matches on search list */
+   void search(SearchContext ctx)
+   {
+      int numSearch, stkIdx, cur, p, sw, sw2, bsw, bsw2;
+
+      /* initialize */
+      numSearch = 0;
+      if ((ctx.maxSearch >= 0) && (numSearch >= ctx.maxSearch))
+      {
+         return;
+      }
+      cur = ctx.newSearch(root);
+      ctx.stkCurr[0]      = cur;
+      ctx.stkChild[0]     = ctx.stkChildNext[0] = NONE;
+      ctx.srchDist[cur]   = queryDist(ctx, root);
+      ctx.state[cur]      = DISTDONE;
+      ctx.numDists++;
+      foundPatt(ctx, cur);
+      numSearch++;
+      if ((ctx.maxSearch >= 0) && (numSearch >= ctx.maxSearch))
+      {
+         return;
+      }
+
+      /* for each level of recursion */
+      while (ctx.stkIdx >= 0)
+      {
+         /* find best and next best distances for current search branch */
+         for (stkIdx = ctx.stkIdx; stkIdx >= 0; stkIdx--)
+         {
+            cur = ctx.stkCurr[stkIdx];
+
+            /* expand pattern? */
+            if (ctx.state[cur] == DISTDONE)
+            {
+               for (p = childlist[ctx.srchNode[cur]], sw2 = NONE; p != NONE; p = sibnext[p])
+               {
+                  sw = ctx.newSearch(p);
+                  if (sw2 == NONE)
+                  {
+                     ctx.srchChild[cur] = sw;
+                  }
+                  else
+                  {
+                     ctx.srchSib[sw2] = sw;
+                     ctx.srchBack[sw] = sw2;
+                  }
+                  sw2 = sw;
+               }
+               ctx.stkChild[stkIdx] = ctx.stkChildNext[stkIdx] = NONE;
+               ctx.state[cur]       = EXPANDED;
+               ctx.numExpanded++;
+            }
+
+            /* best and next best distances must be (re)computed? */
+            int child     = ctx.stkChild[stkIdx];
+            int childnext = ctx.stkChildNext[stkIdx];
+            if ((child == NONE) ||
+                ((ctx.workDist[child] > 0.0f) &&
+                 (childnext == EMPTY)) ||
+                ((childnext != NONE) &&
+                 (childnext != EMPTY) &&
+                 (ctx.workDist[child] > ctx.workDist[childnext])))
+            {
+               bsw = bsw2 = NONE;
+               for (sw = ctx.srchChild[cur]; sw != NONE; sw = sw2)
+               {
+                  sw2 = ctx.srchSib[sw];
+
+                  /* have best possible child? */
+                  if ((bsw != NONE) && (ctx.workDist[bsw] == 0.0f))
+                  {
+                     if (sw2 == NONE)
+                     {
+                        bsw2 = NONE;
+                     }
+                     else
+                     {
+                        bsw2 = EMPTY;
+                     }
+                     break;
+                  }
+
+                  /* compute distance? */
+                  if (ctx.state[sw] == DISTPENDING)
+                  {
+                     p = ctx.srchNode[sw];
+                     ctx.srchDist[sw] = queryDist(ctx, p);
+                     ctx.numDists++;
+                     if ((ctx.workDist[sw] = ctx.srchDist[sw] -
+                                             (distance[p] * RADIUS)) < 0.0f)
+                     {
+                        ctx.workDist[sw] = 0.0f;
+                     }
+                     ctx.state[sw] = DISTDONE;
+
+                     /* save pattern on return list */
+                     foundPatt(ctx, sw);
+                     numSearch++;
+
+                     /* check for termination of search */
+                     if ((ctx.maxSearch >= 0) && (numSearch >= ctx.maxSearch))
+                     {
+                        return;
+                     }
+                  }
+
+                  /* cut off infeasible or finished branch */
+                  if ((ctx.state[sw] == SRCHDONE) ||
+                      ((ctx.cutoff != NONE) && (ctx.workDist[sw] >= ctx.srchDist[ctx.cutoff])) ||
+                      (ctx.workDist[sw] > ctx.maxDist))
+                  {
+                     /* cut off */
+                     ctx.state[sw] = SRCHDONE;
+                     if (ctx.srchBack[sw] == NONE)
+                     {
+                        ctx.srchChild[cur] = ctx.srchSib[sw];
+                     }
+                     else
+                     {
+                        ctx.srchSib[ctx.srchBack[sw]] = ctx.srchSib[sw];
+                     }
+                     if (ctx.srchSib[sw] != NONE)
+                     {
+                        ctx.srchBack[ctx.srchSib[sw]] = ctx.srchBack[sw];
+                     }
+                     continue;
+                  }
+
+                  /* find best and next best child branches */
+                  if ((bsw == NONE) || (ctx.workDist[bsw] > ctx.workDist[sw]))
+                  {
+                     bsw2 = bsw;
+                     bsw  = sw;
+                     continue;
+                  }
+                  if ((bsw2 == NONE) || (ctx.workDist[bsw2] > ctx.workDist[sw]))
+                  {
+                     bsw2 = sw;
+                     continue;
+                  }
+               }
+
+               /* change to better branch level? */
+               if (ctx.stkChild[stkIdx] != bsw)
+               {
+                  ctx.stkIdx = stkIdx;
+               }
+               ctx.stkChild[stkIdx]     = bsw;
+               ctx.stkChildNext[stkIdx] = bsw2;
+            }
+
+            /* finished with this level? */
+            if (ctx.stkChild[stkIdx] == NONE)
+            {
+               ctx.state[cur] = SRCHDONE;
+               ctx.stkIdx     = stkIdx - 1;
+               if (stkIdx > 0)
+               {
+                  ctx.stkChild[stkIdx - 1] = NONE;
+               }
+            }
+            else
+            {
+               /* set new best distance for branch */
+               float w = ctx.workDist[ctx.stkChild[stkIdx]];
+               for (int i = stkIdx; i >= 0; i--)
+               {
+                  ctx.workDist[ctx.stkCurr[i]] = w;
+               }
+            }
+         }
+
+         /* expand search deeper */
+         if (ctx.stkIdx >= 0)
+         {
+            ctx.push();
+            stkIdx                   = ctx.stkIdx;
+            if (stkIdx > ctx.maxStkIdx)
+            {
+               ctx.maxStkIdx = stkIdx;
+            }
+            ctx.stkCurr[stkIdx]      = ctx.stkChild[stkIdx - 1];
+            ctx.stkChild[stkIdx]     = ctx.stkChildNext[stkIdx] = NONE;
+         }
+      }
+   }
+
+
+   /* add pattern to the found list */
+   void foundPatt(SearchContext ctx, int swfound)
+   {
+      int sw, sw2;
+
+      if (ctx.srchDist[swfound] > ctx.maxDist)
+      {
+         return;
+      }
+
+      for (sw = ctx.srchList, sw2 = NONE; sw != NONE; sw2 = sw, sw = ctx.srchNext[sw])
+      {
+         if (ctx.srchDist[sw] <= ctx.srchDist[swfound])
+         {
+            break;
+         }
+      }
+      if (sw2 == NONE)
+      {
+         if (ctx.numFound < ctx.maxFind)
+         {
+            ctx.numFound++;
+            ctx.srchNext[swfound] = ctx.srchList;
+            ctx.srchList          = swfound;
+         }
+      }
+      else
+      {
+         ctx.srchNext[swfound] = ctx.srchNext[sw2];
+         ctx.srchNext[sw2]     = swfound;
+         if (ctx.numFound < ctx.maxFind)
+         {
+            ctx.numFound++;
+         }
+         else
+         {
+            ctx.srchList = ctx.srchNext[ctx.srchList];
+         }
+      }
+      if (ctx.numFound == ctx.maxFind)
+      {
+         /* set cut off */
+         ctx.cutoff = ctx.srchList;
+      }
+   }
+}
@@ -44,7 +44,19 @@
 
 package rdtree;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class RDtree
 {
@@ -55,32 +67,61 @@ public class RDtree
    // Tree root.
    public RDnode root;
 
+   // Next node identifier.
+   public int nextNodeId = 0;
+
+   // Pivots: node distances to pivots give lower bounds on search distances.
+   public int        numPivots = 0;
+   public RDclient[] pivots    = null;
+
+   // Client nodes: built on first use by updates.
+   IdentityHashMap<RDclient, RDnode> clientNodes = null;
+
+   // Statistics (null=disabled): shared by copies.
+   public RDtreeStats stats = new RDtreeStats();
+
+   // Insert distance evaluations.
+   int insertDists;
+
    // Tree node.
    public class RDnode
    {
       public RDclient client;         /* client link */
+      public RDnode   parent;         /* parent pattern */
       public RDnode   childlist;      /* child pattern list */
       public RDnode   childlast;      /* last child */
       public RDnode   sibnext;        /* next sibling */
       public RDnode   sibback;        /* previous sibling */
       public float    distance;       /* distance from child to parent */
+      public int      id;             /* identifier in insertion order */
+      public float[]  pivotDist;      /* distances to pivots */
+      public int      size;           /* descendants when built */
+      public int      changes;        /* descendant updates since built */
 
       // Constructors.
       public RDnode(RDclient client)
       {
          this.client = client;
+         id          = -1;
+         parent      = null;
          childlist   = childlast = null;
          sibnext     = sibback = null;
          distance    = 0.0f;
+         size        = 0;
+         changes     = 0;
       }
 
 
       public RDnode()
       {
          client    = null;
+         id        = -1;
+         parent    = null;
          childlist = childlast = null;
          sibnext   = sibback = null;
          distance  = 0.0f;
+         size      = 0;
+         changes   = 0;
       }
    };
 
@@ -98,12 +139,507 @@ public class RDtree
    }
 
 
+   // Bulk build subtree size at or above which subtrees are built in parallel.
+   public static int BUILD_PARALLEL_SIZE = 1000;
+
+   // Build tree from clients, replacing its contents.
+   // Clients are ordered by the comparator, if given, making the tree
+   // structure independent of client list order.
+   public <T extends RDclient> void build(List<T> clients, Comparator<? super T> comparator)
+   {
+      ArrayList<T> list = new ArrayList<T>(clients);
+
+      if (comparator != null)
+      {
+         Collections.sort(list, comparator);
+      }
+      root        = null;
+      nextNodeId  = 0;
+      pivots      = null;
+      clientNodes = null;
+      int n = list.size();
+      if (n == 0)
+      {
+         return;
+      }
+      RDnode[] nodes = new RDnode[n - 1];
+      root      = new RDnode(list.get(0));
+      root.id   = nextNodeId++;
+      root.size = n - 1;
+      for (int i = 1; i < n; i++)
+      {
+         nodes[i - 1]    = new RDnode(list.get(i));
+         nodes[i - 1].id = nextNodeId++;
+      }
+      BuildTask task = new BuildTask(root, nodes);
+      if (n > BUILD_PARALLEL_SIZE)
+      {
+         ForkJoinPool.commonPool().invoke(task);
+      }
+      else
+      {
+         task.compute();
+      }
+      setPivots(numPivots);
+   }
+
+
+   // Build subtree of parent node from member nodes.
+   // Members are taken in order of descending distance from the parent:
+   // each member not yet placed becomes a child, and takes as its own
+   // members those remaining within RADIUS of its distance to the parent.
+   class BuildTask extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      RDnode   parent;
+      RDnode[] members;
+
+      BuildTask(RDnode parent, RDnode[] members)
+      {
+         this.parent  = parent;
+         this.members = members;
+      }
+
+
+      @Override
+      protected void compute()
+      {
+         int n = members.length;
+
+         /* order by descending distance, then position */
+         float[] dists = new float[n];
+         long[]  order = new long[n];
+         for (int i = 0; i < n; i++)
+         {
+            dists[i] = members[i].client.dist(parent.client);
+            order[i] = ((long)(Integer.MAX_VALUE - Float.floatToIntBits(dists[i])) << 32) | i;
+         }
+         Arrays.sort(order);
+         boolean[]            placed   = new boolean[n];
+         ArrayList<BuildTask> subtasks = new ArrayList<BuildTask>();
+         ArrayList<RDnode>    group    = new ArrayList<RDnode>();
+         for (int k = 0; k < n; k++)
+         {
+            int i = (int)order[k];
+            if (placed[i])
+            {
+               continue;
+            }
+            placed[i] = true;
+
+            /* link child */
+            RDnode child = members[i];
+            child.parent   = parent;
+            child.distance = dists[i];
+            child.sibback  = parent.childlast;
+            if (parent.childlast != null)
+            {
+               parent.childlast.sibnext = child;
+            }
+            else
+            {
+               parent.childlist = child;
+            }
+            parent.childlast = child;
+
+            /* gather child members */
+            float radius = child.distance * RADIUS;
+            group.clear();
+            for (int k2 = k + 1; k2 < n; k2++)
+            {
+               int j = (int)order[k2];
+               if (!placed[j] && (members[j].client.dist(child.client) <= radius))
+               {
+                  placed[j] = true;
+                  group.add(members[j]);
+               }
+            }
+            child.size = group.size();
+            if (group.size() > 0)
+            {
+               BuildTask task = new BuildTask(child, group.toArray(new RDnode[group.size()]));
+               if (group.size() >= BUILD_PARALLEL_SIZE)
+               {
+                  subtasks.add(task);
+               }
+               else
+               {
+                  task.compute();
+               }
+            }
+         }
+         if (subtasks.size() > 0)
+         {
+            invokeAll(subtasks);
+         }
+      }
+   }
+
+
+   // Index magic number.
+   public static final int INDEX_MAGIC = 0x52445449;
+
+   // Save tree structure as an index.
+   // Nodes are numbered breadth first, with the root first, and stored as
+   // client record, id, parent, first child and next sibling numbers
+   // (-1 if none) and distance. Clients are recorded by list position.
+   public void saveIndex(DataOutputStream writer, List<? extends RDclient> clients) throws IOException
+   {
+      IdentityHashMap<RDclient, Integer> records = new IdentityHashMap<RDclient, Integer>();
+      for (int i = 0; i < clients.size(); i++)
+      {
+         records.put(clients.get(i), i);
+      }
+      ArrayList<RDnode> nodes = new ArrayList<RDnode>();
+      ArrayList<Integer> parents = new ArrayList<Integer>();
+      IdentityHashMap<RDnode, Integer> numbers = new IdentityHashMap<RDnode, Integer>();
+      if (root != null)
+      {
+         nodes.add(root);
+         parents.add(-1);
+      }
+      for (int i = 0; i < nodes.size(); i++)
+      {
+         RDnode node = nodes.get(i);
+         numbers.put(node, i);
+         for (RDnode p = node.childlist; p != null; p = p.sibnext)
+         {
+            nodes.add(p);
+            parents.add(i);
+         }
+      }
+      writer.writeInt(INDEX_MAGIC);
+      writer.writeFloat(RADIUS);
+      writer.writeInt(nextNodeId);
+      writer.writeInt(nodes.size());
+      for (int i = 0; i < nodes.size(); i++)
+      {
+         RDnode  node   = nodes.get(i);
+         Integer record = records.get(node.client);
+         if (record == null)
+         {
+            throw new IOException("Tree client not in client list");
+         }
+         writer.writeInt(record);
+         writer.writeInt(node.id);
+         writer.writeInt(parents.get(i));
+         if (node.childlist != null)
+         {
+            writer.writeInt(numbers.get(node.childlist));
+         }
+         else
+         {
+            writer.writeInt(-1);
+         }
+         if (node.sibnext != null)
+         {
+            writer.writeInt(numbers.get(node.sibnext));
+         }
+         else
+         {
+            writer.writeInt(-1);
+         }
+         writer.writeFloat(node.distance);
+      }
+   }
+
+
+   // Load tree structure from index, replacing contents.
+   public void loadIndex(ByteBuffer buffer, List<? extends RDclient> clients) throws IOException
+   {
+      if (buffer.getInt() != INDEX_MAGIC)
+      {
+         throw new IOException("Invalid tree index");
+      }
+      float radius = buffer.getFloat();
+      int   nextId = buffer.getInt();
+      int   n      = buffer.getInt();
+      if ((n < 0) || (n > clients.size()))
+      {
+         throw new IOException("Invalid tree index size");
+      }
+      RDnode[] nodes    = new RDnode[n];
+      int[]    parents  = new int[n];
+      int[]    children = new int[n];
+      int[]    siblings = new int[n];
+      for (int i = 0; i < n; i++)
+      {
+         int record = buffer.getInt();
+         if ((record < 0) || (record >= clients.size()))
+         {
+            throw new IOException("Invalid tree index record");
+         }
+         nodes[i]    = new RDnode(clients.get(record));
+         nodes[i].id = buffer.getInt();
+         parents[i]  = buffer.getInt();
+         children[i] = buffer.getInt();
+         siblings[i] = buffer.getInt();
+         nodes[i].distance = buffer.getFloat();
+         if ((parents[i] >= i) || ((i > 0) && (parents[i] < 0)) ||
+             (children[i] >= n) || ((children[i] != -1) && (children[i] <= i)) ||
+             (siblings[i] >= n) || ((siblings[i] != -1) && (siblings[i] <= i)))
+         {
+            throw new IOException("Invalid tree index link");
+         }
+      }
+
+      /* link nodes */
+      for (int i = 0; i < n; i++)
+      {
+         if (children[i] != -1)
+         {
+            nodes[i].childlist = nodes[children[i]];
+         }
+         if (siblings[i] != -1)
+         {
+            nodes[i].sibnext = nodes[siblings[i]];
+         }
+      }
+      for (int i = 0; i < n; i++)
+      {
+         RDnode node = nodes[i];
+         for (RDnode p = node.childlist, p2 = null; p != null; p2 = p, p = p.sibnext)
+         {
+            p.parent       = node;
+            p.sibback      = p2;
+            node.childlast = p;
+         }
+      }
+
+      /* subtree sizes: children follow parents */
+      for (int i = n - 1; i > 0; i--)
+      {
+         nodes[parents[i]].size += nodes[i].size + 1;
+      }
+      RADIUS      = radius;
+      nextNodeId  = nextId;
+      clientNodes = null;
+      if (n > 0)
+      {
+         root = nodes[0];
+      }
+      else
+      {
+         root = null;
+      }
+      setPivots(numPivots);
+   }
+
+
+   // Set number of pivots, choosing pivots from the tree clients and
+   // computing node pivot distances. Pivots are chosen farthest first:
+   // the root, then repeatedly the client farthest from its nearest pivot.
+   public void setPivots(int numPivots)
+   {
+      RDclient[] oldPivots = pivots;
+
+      this.numPivots = numPivots;
+      pivots         = null;
+      if ((numPivots <= 0) || (root == null))
+      {
+         if (oldPivots != null)
+         {
+            clearPivotDist();
+         }
+         return;
+      }
+      ArrayList<RDnode> nodes = getNodes();
+      int n = nodes.size();
+      if (numPivots > n)
+      {
+         numPivots = n;
+      }
+      pivots = new RDclient[numPivots];
+      float[][] dists = new float[n][numPivots];
+      float[] minDist = new float[n];
+      int     next    = 0;
+      for (int i = 0; i < numPivots; i++)
+      {
+         pivots[i] = nodes.get(next).client;
+         int farthest = 0;
+         for (int j = 0; j < n; j++)
+         {
+            float d = nodes.get(j).client.dist(pivots[i]);
+            dists[j][i] = d;
+            if ((i == 0) || (d < minDist[j]))
+            {
+               minDist[j] = d;
+            }
+            if (minDist[j] > minDist[farthest])
+            {
+               farthest = j;
+            }
+         }
+         next = farthest;
+      }
+      for (int j = 0; j < n; j++)
+      {
+         nodes.get(j).pivotDist = dists[j];
+      }
+   }
+
+
+   // Clear node pivot distances.
+   void clearPivotDist()
+   {
+      if (root != null)
+      {
+         for (RDnode node : getNodes())
+         {
+            node.pivotDist = null;
+         }
+      }
+   }
+
+
+   // Get client distances to pivots.
+   public float[] getPivotDist(RDclient client)
+   {
+      float[] dists = new float[pivots.length];
+
+      for (int i = 0; i < pivots.length; i++)
+      {
+         dists[i] = client.dist(pivots[i]);
+      }
+      return(dists);
+   }
+
+
+   // Get statistics snapshot, with tree shape.
+   public RDtreeStats.Snapshot getStatsSnapshot()
+   {
+      if (stats == null)
+      {
+         return(null);
+      }
+      return(stats.snapshot(getShape()));
+   }
+
+
+   // Get tree shape.
+   public RDtreeStats.Shape getShape()
+   {
+      ArrayList<RDnode> nodes = getNodes();
+      int n = nodes.size();
+      int[] depths  = new int[n];
+      int[] fanouts = new int[n];
+
+      /* children follow in breadth first order */
+      for (int i = 0, j = 1; i < n; i++)
+      {
+         for (RDnode p = nodes.get(i).childlist; p != null; p = p.sibnext, j++)
+         {
+            depths[j] = depths[i] + 1;
+            fanouts[i]++;
+         }
+      }
+      return(new RDtreeStats.Shape(n, depths, fanouts));
+   }
+
+
+   // Get nodes breadth first.
+   ArrayList<RDnode> getNodes()
+   {
+      ArrayList<RDnode> nodes = new ArrayList<RDnode>();
+
+      if (root != null)
+      {
+         nodes.add(root);
+      }
+      for (int i = 0; i < nodes.size(); i++)
+      {
+         for (RDnode p = nodes.get(i).childlist; p != null; p = p.sibnext)
+         {
+            nodes.add(p);
+         }
+      }
+      return(nodes);
+   }
+
+
+   // Copy tree structure, sharing clients.
+   public RDtree copy()
+   {
+      RDtree tree = new RDtree(RADIUS);
+
+      tree.nextNodeId = nextNodeId;
+      tree.numPivots  = numPivots;
+      tree.pivots     = pivots;
+      tree.stats      = stats;
+      if (root == null)
+      {
+         return(tree);
+      }
+      tree.root = tree.copyNode(root);
+      ArrayList<RDnode> from = new ArrayList<RDnode>();
+      ArrayList<RDnode> to   = new ArrayList<RDnode>();
+      from.add(root);
+      to.add(tree.root);
+      while (from.size() > 0)
+      {
+         RDnode p  = from.remove(from.size() - 1);
+         RDnode p2 = to.remove(to.size() - 1);
+         for (RDnode c = p.childlist; c != null; c = c.sibnext)
+         {
+            RDnode c2 = tree.copyNode(c);
+            c2.parent  = p2;
+            c2.sibback = p2.childlast;
+            if (p2.childlast != null)
+            {
+               p2.childlast.sibnext = c2;
+            }
+            else
+            {
+               p2.childlist = c2;
+            }
+            p2.childlast = c2;
+            from.add(c);
+            to.add(c2);
+         }
+      }
+      return(tree);
+   }
+
+
+   // Copy node without links.
+   RDnode copyNode(RDnode node)
+   {
+      RDnode node2 = new RDnode(node.client);
+
+      node2.id        = node.id;
+      node2.distance  = node.distance;
+      node2.pivotDist = node.pivotDist;
+      node2.size      = node.size;
+      node2.changes   = node.changes;
+      return(node2);
+   }
+
+
    // Insert pattern.
    public void insert(RDclient client)
    {
       RDnode node = new RDnode(client);
 
+      node.id = nextNodeId++;
+      if (pivots != null)
+      {
+         node.pivotDist = getPivotDist(client);
+      }
+      insertDists = 0;
       insert(root, node);
+      if (stats != null)
+      {
+         stats.recordInsert(insertDists);
+      }
+      if (clientNodes != null)
+      {
+         clientNodes.put(client, node);
+      }
+      if (node.parent != null)
+      {
+         noteUpdate(node.parent);
+      }
    }
 
 
@@ -114,11 +650,14 @@ public class RDtree
       float  dcn, dnn;
 
       /* clear node */
+      node.parent    = null;
       node.childlist = null;
       node.childlast = null;
       node.sibnext   = null;
       node.sibback   = null;
       node.distance  = 0.0f;
+      node.size      = 0;
+      node.changes   = 0;
 
       /* new root? */
       if (current == null)
@@ -129,12 +668,14 @@ public class RDtree
 
       /* add pattern to first acceptable branch */
       dcn = node.client.dist(current.client);
+      insertDists++;
       while (true)
       {
          for (p = current.childlist; p != null; p = p.sibnext)
          {
             /* check relative distances */
             dnn = node.client.dist(p.client);
+            insertDists++;
             if (dnn <= (p.distance * RADIUS))
             {
                /* change current fragment */
@@ -150,6 +691,7 @@ public class RDtree
       }
 
       /* link new as child of current pattern */
+      node.parent   = current;
       node.distance = dcn;
       node.sibnext  = null;
       node.sibback  = current.childlast;
@@ -170,6 +712,7 @@ public class RDtree
       for (p = current.childlist; p != node && p != null; )
       {
          dnn = node.client.dist(p.client);
+         insertDists++;
 
          /* if should be linked to new pattern */
          if (dnn <= (node.distance * RADIUS))
@@ -231,35 +774,50 @@ public class RDtree
 
 
    // Remove node for client.
+   // The node is found directly if the client is in the tree, otherwise
+   // by descending to a pattern at zero distance from the client.
    public void remove(RDclient client)
    {
-      RDnode current, node, p, p2, p3;
+      RDnode current, node, parent, p, p2, p3;
       float  d;
 
-      if ((current = node = root) == null)
+      if (root == null)
       {
          return;
       }
-      d = current.client.dist(client);
-      while (d > 0.0f)
+      if ((node = getClientNode(client)) != null)
       {
-         for (node = current.childlist; node != null; node = node.sibnext)
+         current = node.parent;
+         if (current == null)
          {
-            d = node.client.dist(client);
-            if (d <= (node.distance * RADIUS))
+            current = root;
+         }
+      }
+      else
+      {
+         current = node = root;
+         d       = current.client.dist(client);
+         while (d > 0.0f)
+         {
+            for (node = current.childlist; node != null; node = node.sibnext)
             {
-               if (d > 0.0f)
+               d = node.client.dist(client);
+               if (d <= (node.distance * RADIUS))
                {
-                  current = node;
+                  if (d > 0.0f)
+                  {
+                     current = node;
+                  }
+                  break;
                }
-               break;
             }
-         }
-         if (node == null)
-         {
-            return;
+            if (node == null)
+            {
+               return;
+            }
          }
       }
+      parent = node.parent;
 
       /* unlink pattern */
       if (node == root)
@@ -315,6 +873,152 @@ public class RDtree
             current = root;
          }
       }
+      node.parent    = null;
+      node.childlist = node.childlast = null;
+      clientNodes.remove(node.client);
+      if (parent != null)
+      {
+         noteUpdate(parent);
+      }
+   }
+
+
+   // Replace client pattern.
+   // A client at zero distance from the one it replaces takes its place,
+   // leaving the tree structure unchanged; otherwise the old client is
+   // removed and the new one inserted.
+   public void replace(RDclient oldClient, RDclient newClient)
+   {
+      RDnode node = getClientNode(oldClient);
+
+      if ((node != null) && (oldClient.dist(newClient) == 0.0f))
+      {
+         clientNodes.remove(oldClient);
+         node.client = newClient;
+         clientNodes.put(newClient, node);
+         return;
+      }
+      remove(oldClient);
+      insert(newClient);
+   }
+
+
+   // Fork tree: copy tree structure, substituting clients.
+   // Clients not in the substitution map are shared with this tree.
+   public RDtree fork(Map<? extends RDclient, ? extends RDclient> substitutes)
+   {
+      RDtree              tree  = copy();
+      ArrayList<RDclient> moved = new ArrayList<RDclient>();
+
+      if (stats != null)
+      {
+         tree.stats = new RDtreeStats();
+      }
+
+      for (RDnode node : tree.getNodes())
+      {
+         RDclient client = substitutes.get(node.client);
+         if ((client != null) && (client != node.client))
+         {
+            if (client.dist(node.client) == 0.0f)
+            {
+               node.client = client;
+            }
+            else
+            {
+               moved.add(node.client);
+            }
+         }
+      }
+      for (RDclient client : moved)
+      {
+         tree.replace(client, substitutes.get(client));
+      }
+      return(tree);
+   }
+
+
+   // Get node for client.
+   RDnode getClientNode(RDclient client)
+   {
+      if (clientNodes == null)
+      {
+         clientNodes = new IdentityHashMap<RDclient, RDnode>();
+         for (RDnode node : getNodes())
+         {
+            clientNodes.put(node.client, node);
+         }
+      }
+      return(clientNodes.get(client));
+   }
+
+
+   // Local rebuild: a built subtree is rebuilt when the updates made within
+   // it since it was built exceed REBUILD_FRACTION of its size when built.
+   // Subtrees smaller than REBUILD_MIN_SIZE are left to degrade.
+   public static float REBUILD_FRACTION = 0.25f;
+   public static int   REBUILD_MIN_SIZE = 32;
+
+   // Note update below node, rebuilding the largest degraded subtree
+   // containing it.
+   void noteUpdate(RDnode node)
+   {
+      RDnode degraded = null;
+
+      for (RDnode p = node; p != null; p = p.parent)
+      {
+         p.changes++;
+         if ((p.size >= REBUILD_MIN_SIZE) && (p.changes > (int)(p.size * REBUILD_FRACTION)))
+         {
+            degraded = p;
+         }
+      }
+      if (degraded != null)
+      {
+         rebuild(degraded);
+      }
+   }
+
+
+   // Rebuild subtree of node.
+   public void rebuild(RDnode node)
+   {
+      ArrayList<RDnode> members = new ArrayList<RDnode>();
+
+      for (RDnode p = node.childlist; p != null; p = p.sibnext)
+      {
+         members.add(p);
+      }
+      for (int i = 0; i < members.size(); i++)
+      {
+         for (RDnode p = members.get(i).childlist; p != null; p = p.sibnext)
+         {
+            members.add(p);
+         }
+      }
+      for (RDnode p : members)
+      {
+         p.parent    = null;
+         p.childlist = p.childlast = null;
+         p.sibnext   = p.sibback = null;
+         p.size      = 0;
+         p.changes   = 0;
+      }
+      node.childlist = node.childlast = null;
+      node.size      = members.size();
+      node.changes   = 0;
+      if (members.size() > 0)
+      {
+         BuildTask task = new BuildTask(node, members.toArray(new RDnode[members.size()]));
+         if (members.size() > BUILD_PARALLEL_SIZE)
+         {
+            ForkJoinPool.commonPool().invoke(task);
+         }
+         else
+         {
+            task.compute();
+         }
+      }
    }
 
 
@@ -370,29 +1074,148 @@ public class RDtree
       }
    };
 
-   // Search control.
-   public class SrchCtl
-   {
-      RDsearch srchList;                    /* search results */
-      RDsearch srchBest;                    /* best search result */
-      int      maxFind;                     /* max number of results */
-      int      maxSearch;                   /* max nodes to search (-1=unlimited) */
-      int      searchCount;                 /* search counter */
-      int      bestSearch;                  /* best result search counter */
-      SrchStk[]             srchStk;        /* search stack */
-      int srchStkIdx;                       /* stack index */
+   // Search element pool initial size.
+   public static int SrchPoolSz = 1000;
+
+   // Search context.
+   // Holds the search stack, search elements and results so that they
+   // can be reused by subsequent searches. A context must be confined to
+   // one thread, but may be used to search any tree.
+   public class SearchContext
+   {
+      RDsearch   srchList;                  /* search results */
+      RDsearch   srchBest;                  /* best search result */
+      int        maxFind;                   /* max number of results */
+      int        maxSearch;                 /* max nodes to search (-1=unlimited) */
+      int        searchCount;               /* search counter */
+      int        bestSearch;                /* best result search counter */
+      SrchStk[]  srchStk;                   /* search stack */
+      int        srchStkIdx;                /* stack index */
+      int        numFound;                  /* number of patterns found */
+      RDsearch   cutoff;                    /* cut off pattern */
+      float      maxDist;                   /* max distance of patterns found */
+      RDsearch[] srchPool;                  /* search element pool */
+      int        srchPoolIdx;               /* pool index */
+      float[]    pivotDist;                 /* query distances to pivots */
+      RDclient[] pivots;                    /* pivots of searched tree */
+      int        numDists;                  /* distance evaluations */
+      int        numPivotSkips;             /* distances skipped by pivots */
+      int        numExpanded;               /* nodes expanded */
+      int        maxStkIdx;                 /* max stack index reached */
+
+      // Search results, ordered as on the search return list (farthest first).
+      public int        numResults;
+      public RDclient[] resultClients;
+      public int[]      resultIds;
+      public float[]    resultDistances;
+      RDnode[]          resultNodes;
+
+      // Constructor.
+      public SearchContext()
+      {
+         srchStk = new SrchStk[SrchStkSz];
+         for (int i = 0; i < SrchStkSz; i++)
+         {
+            srchStk[i] = new SrchStk();
+         }
+         srchPool = new RDsearch[SrchPoolSz];
+         for (int i = 0; i < SrchPoolSz; i++)
+         {
+            srchPool[i] = new RDsearch();
+         }
+         numResults      = 0;
+         resultClients   = new RDclient[0];
+         resultIds       = new int[0];
+         resultDistances = new float[0];
+         resultNodes     = new RDnode[0];
+      }
+
+
+      // Prepare for search.
+      void reset(int maxFind, int maxSearch, float maxDist)
+      {
+         srchList       = null;
+         srchBest       = null;
+         this.maxFind   = maxFind;
+         this.maxSearch = maxSearch;
+         this.maxDist   = maxDist;
+         searchCount    = bestSearch = 0;
+         srchStkIdx     = 0;
+         numFound       = 0;
+         cutoff         = null;
+         srchPoolIdx    = 0;
+         numResults     = 0;
+         numDists       = 0;
+         numPivotSkips  = 0;
+         numExpanded    = 0;
+         maxStkIdx      = 0;
+      }
+
+
+      // Ensure result capacity.
+      void ensureResults(int n)
+      {
+         if (resultClients.length < n)
+         {
+            resultClients   = new RDclient[n];
+            resultIds       = new int[n];
+            resultDistances = new float[n];
+            resultNodes     = new RDnode[n];
+         }
+      }
+
+
+      // Get search element from pool.
+      RDsearch newSearch()
+      {
+         if (srchPoolIdx == srchPool.length)
+         {
+            RDsearch[] pool = new RDsearch[srchPool.length * 2];
+            System.arraycopy(srchPool, 0, pool, 0, srchPool.length);
+            for (int i = srchPool.length; i < pool.length; i++)
+            {
+               pool[i] = new RDsearch();
+            }
+            srchPool = pool;
+         }
+         RDsearch sw = srchPool[srchPoolIdx++];
+         sw.node      = null;
+         sw.distance  = 0.0f;
+         sw.srchnext  = null;
+         sw.workdist  = 0.0f;
+         sw.state     = SearchState.DISTPENDING;
+         sw.childlist = sw.sibnext = sw.sibback = null;
+         return(sw);
+      }
+
+
+      // Grow search stack.
+      void growStack()
+      {
+         SrchStk[] stk = new SrchStk[srchStk.length * 2];
+         System.arraycopy(srchStk, 0, stk, 0, srchStk.length);
+         for (int i = srchStk.length; i < stk.length; i++)
+         {
+            stk[i] = new SrchStk();
+         }
+         srchStk = stk;
+      }
    };
 
-   // Search bounds.
-   class SrchBounds
+   // Create search context.
+   public SearchContext newSearchContext()
    {
-      int      numFound;
-      RDsearch cutoff;
+      return(new SearchContext());
+   }
 
-      SrchBounds()
+
+   // Per-thread search context for the list search.
+   private ThreadLocal<SearchContext> threadSearchContext = new ThreadLocal<SearchContext>()
+   {
+      @Override
+      protected SearchContext initialValue()
       {
-         numFound = 0;
-         cutoff   = null;
+         return(new SearchContext());
       }
    };
 
@@ -400,64 +1223,224 @@ public class RDtree
    /* Return best matches */
    public RDsearch search(RDclient client, int maxFind, int maxSearch)
    {
-      RDsearch sw, sw2, sw3;
+      RDsearch sw, sw2 = null;
       RDsearch srchList = null;
 
+      SearchContext ctx = threadSearchContext.get();
+      search(ctx, client, maxFind, maxSearch);
+      for (int i = 0, j = ctx.numResults; i < j; i++)
+      {
+         sw          = new RDsearch();
+         sw.node     = ctx.resultNodes[i];
+         sw.distance = ctx.resultDistances[i];
+         sw.srchnext = null;
+         if (i == 0)
+         {
+            srchList = sw;
+         }
+         else
+         {
+            sw2.srchnext = sw;
+         }
+         sw2 = sw;
+      }
+      return(srchList);
+   }
+
+
+   /* Search space for patterns closest to the given client pattern */
+   /* Results are returned in the context; return number of results */
+   public int search(SearchContext ctx, RDclient client, int maxFind, int maxSearch)
+   {
+      return(search(ctx, client, maxFind, maxSearch, Float.POSITIVE_INFINITY));
+   }
+
+
+   /* Search space for patterns within the given distance of the client pattern */
+   /* Results are returned in the context; return number of results */
+   public int searchRadius(SearchContext ctx, RDclient client, float maxDist, int maxSearch)
+   {
+      return(search(ctx, client, Integer.MAX_VALUE, maxSearch, maxDist));
+   }
+
+
+   /* Search space for patterns closest to the given client pattern */
+   /* and within the given distance of it, pruning by the distance */
+   /* Results are returned in the context; return number of results */
+   public int search(SearchContext ctx, RDclient client, int maxFind, int maxSearch, float maxDist)
+   {
+      RDsearch sw;
+      int      i;
+
+      ctx.reset(maxFind, maxSearch, maxDist);
       if (root == null)
       {
-         return(srchList);
+         return(0);
       }
 
-      /* prepare for search */
-      SrchCtl srchCtl = new SrchCtl();
-      srchCtl.srchList    = null;
-      srchCtl.srchBest    = null;
-      srchCtl.maxFind     = maxFind;
-      srchCtl.maxSearch   = maxSearch;
-      srchCtl.searchCount = srchCtl.bestSearch = 0;
-      srchCtl.srchStk     = new SrchStk[SrchStkSz];
-      for (int i = 0; i < SrchStkSz; i++)
+      /* query pivot distances */
+      ctx.pivots = pivots;
+      if (pivots != null)
       {
-         srchCtl.srchStk[i] = new SrchStk();
+         if ((ctx.pivotDist == null) || (ctx.pivotDist.length < pivots.length))
+         {
+            ctx.pivotDist = new float[pivots.length];
+         }
+         for (i = 0; i < pivots.length; i++)
+         {
+            ctx.pivotDist[i] = client.dist(pivots[i]);
+         }
       }
-      srchCtl.srchStkIdx = 0;
-      RDnode node = new RDnode(client);
 
       /* search tree */
-      search(srchCtl, node);
+      search(ctx, client);
 
       /* extract search results */
-      for (sw = srchCtl.srchList, sw3 = null; sw != null; sw = sw.srchnext)
+      ctx.ensureResults(ctx.numFound);
+      for (sw = ctx.srchList, i = 0; sw != null; sw = sw.srchnext, i++)
+      {
+         ctx.resultNodes[i]     = sw.node;
+         ctx.resultClients[i]   = sw.node.client;
+         ctx.resultIds[i]       = sw.node.id;
+         ctx.resultDistances[i] = sw.distance;
+      }
+      ctx.numResults = i;
+      if (stats != null)
+      {
+         int numPivotDists = 0;
+         if (pivots != null)
+         {
+            numPivotDists = pivots.length;
+         }
+         stats.recordSearch(ctx.numDists, numPivotDists, ctx.numPivotSkips, ctx.numExpanded,
+                            ctx.maxStkIdx + 1, ctx.resultDistances, ctx.numResults);
+      }
+
+      /* release references */
+      for (i = 0; i < ctx.srchPoolIdx; i++)
+      {
+         sw          = ctx.srchPool[i];
+         sw.node     = null;
+         sw.srchnext = sw.childlist = sw.sibnext = sw.sibback = null;
+      }
+      return(ctx.numResults);
+   }
+
+
+   // Lookup context.
+   // Holds the results of a batch lookup: the results of query q are
+   // at positions resultOffsets[q] up to resultOffsets[q + 1], ordered as
+   // for a single search. A context must be confined to one thread.
+   public class LookupContext
+   {
+      public int        numQueries;
+      public int        numSearches;        /* distinct queries searched */
+      public int[]      resultOffsets;
+      public RDclient[] resultClients;
+      public int[]      resultIds;
+      public float[]    resultDistances;
+      SearchContext     ctx;
+      IdentityHashMap<RDclient, Integer> searched;
+
+      // Constructor.
+      public LookupContext()
+      {
+         resultOffsets   = new int[1];
+         resultClients   = new RDclient[0];
+         resultIds       = new int[0];
+         resultDistances = new float[0];
+         ctx             = new SearchContext();
+         searched        = new IdentityHashMap<RDclient, Integer>();
+      }
+
+
+      // Ensure result capacity.
+      void ensureResults(int n)
+      {
+         if (resultClients.length < n)
+         {
+            n = Math.max(n, resultClients.length * 2);
+            RDclient[] c = new RDclient[n];
+            System.arraycopy(resultClients, 0, c, 0, resultClients.length);
+            resultClients = c;
+            int[] ids = new int[n];
+            System.arraycopy(resultIds, 0, ids, 0, resultIds.length);
+            resultIds = ids;
+            float[] d = new float[n];
+            System.arraycopy(resultDistances, 0, d, 0, resultDistances.length);
+            resultDistances = d;
+         }
+      }
+   };
+
+   // Create lookup context.
+   public LookupContext newLookupContext()
+   {
+      return(new LookupContext());
+   }
+
+
+   /* Look up each of a batch of client patterns by a single search per */
+   /* distinct query: queries given as the same client object are searched */
+   /* once and share results. Each search is a separate traversal, so the */
+   /* results are those of searching each query alone. */
+   /* Results are returned in the context; return total number of results */
+   public int lookupBatch(LookupContext batch, RDclient[] queries, int numQueries,
+                          int maxFind, int maxSearch, float maxDist)
+   {
+      int n = 0;
+
+      batch.numQueries  = numQueries;
+      batch.numSearches = 0;
+      if (batch.resultOffsets.length < (numQueries + 1))
+      {
+         batch.resultOffsets = new int[numQueries + 1];
+      }
+      batch.searched.clear();
+      for (int q = 0; q < numQueries; q++)
       {
-         sw2          = new RDsearch();
-         sw2.node     = sw.node;
-         sw2.distance = sw.distance;
-         if (sw3 == null)
+         batch.resultOffsets[q] = n;
+         Integer first = batch.searched.get(queries[q]);
+         if (first != null)
          {
-            srchList = sw2;
+            /* copy results of identical query */
+            int i = batch.resultOffsets[first];
+            int j = batch.resultOffsets[first + 1];
+            batch.ensureResults(n + j - i);
+            System.arraycopy(batch.resultClients, i, batch.resultClients, n, j - i);
+            System.arraycopy(batch.resultIds, i, batch.resultIds, n, j - i);
+            System.arraycopy(batch.resultDistances, i, batch.resultDistances, n, j - i);
+            n += j - i;
          }
          else
          {
-            sw3.srchnext = sw2;
+            SearchContext ctx = batch.ctx;
+            int           k   = search(ctx, queries[q], maxFind, maxSearch, maxDist);
+            batch.ensureResults(n + k);
+            System.arraycopy(ctx.resultClients, 0, batch.resultClients, n, k);
+            System.arraycopy(ctx.resultIds, 0, batch.resultIds, n, k);
+            System.arraycopy(ctx.resultDistances, 0, batch.resultDistances, n, k);
+            n += k;
+            batch.searched.put(queries[q], q);
+            batch.numSearches++;
          }
-         sw3 = sw2;
+         batch.resultOffsets[q + 1] = n;
       }
-      return(srchList);
+      batch.searched.clear();
+      return(n);
    }
 
 
    /* search space for patterns closest to the given pattern */
    /* put best matches on srchList */
-   void search(SrchCtl srchCtl, RDnode srchNode)
+   void search(SearchContext srchCtl, RDclient srchClient)
    {
-      int        numSearch, stkIdx, stkpIdx;
-      RDnode     p;
-      RDsearch   sw, sw2, bsw, bsw2;
-      SrchBounds srchBounds;
+      int      numSearch, stkIdx, stkpIdx;
+      RDnode   p;
+      RDsearch sw, sw2, bsw, bsw2;
 
       /* initialize */
-      numSearch  = 0;
-      srchBounds = new SrchBounds();
+      numSearch = 0;
       if ((srchCtl.maxSearch >= 0) && (numSearch >= srchCtl.maxSearch))
       {
          return;
@@ -467,11 +1450,13 @@ public class RDtree
          return;
       }
       SrchStk stkp = srchCtl.srchStk[srchCtl.srchStkIdx];
-      stkp.currsrch          = new RDsearch();
+      stkp.child             = stkp.childnext = null;
+      stkp.currsrch          = srchCtl.newSearch();
       stkp.currsrch.node     = root;
-      stkp.currsrch.distance = stkp.currsrch.node.client.dist(srchNode.client);
+      stkp.currsrch.distance = stkp.currsrch.node.client.dist(srchClient);
       stkp.currsrch.state    = SearchState.DISTDONE;
-      foundPatt(srchCtl, stkp.currsrch, srchBounds);
+      srchCtl.numDists++;
+      foundPatt(srchCtl, stkp.currsrch);
       numSearch++;
       if ((srchCtl.maxSearch >= 0) && (numSearch >= srchCtl.maxSearch))
       {
@@ -492,7 +1477,7 @@ public class RDtree
             {
                for (p = stkp.currsrch.node.childlist, sw2 = null; p != null; p = p.sibnext)
                {
-                  sw       = new RDsearch();
+                  sw       = srchCtl.newSearch();
                   sw.node  = p;
                   sw.state = SearchState.DISTPENDING;
                   if (sw2 == null)
@@ -508,6 +1493,7 @@ public class RDtree
                }
                stkp.child          = stkp.childnext = null;
                stkp.currsrch.state = SearchState.EXPANDED;
+               srchCtl.numExpanded++;
             }
 
             /* best and next best distances must be (re)computed? */
@@ -540,9 +1526,30 @@ public class RDtree
                   }
 
                   /* compute distance? */
+                  if ((sw.state == SearchState.DISTPENDING) &&
+                      (srchCtl.pivots != null) && (sw.node.pivotDist != null))
+                  {
+                     /*
+                      * skip distance if the pivot lower bound shows the pattern
+                      * would neither be found nor have its branch searched.
+                      */
+                     float bound = pivotBound(srchCtl, sw.node) - (sw.node.distance * RADIUS);
+                     if (((srchCtl.cutoff != null) && (bound >= srchCtl.cutoff.distance)) ||
+                         (bound > srchCtl.maxDist))
+                     {
+                        sw.state = SearchState.SRCHDONE;
+                        srchCtl.numPivotSkips++;
+                        numSearch++;
+                        if ((srchCtl.maxSearch >= 0) && (numSearch >= srchCtl.maxSearch))
+                        {
+                           return;
+                        }
+                     }
+                  }
                   if (sw.state == SearchState.DISTPENDING)
                   {
-                     sw.distance = sw.node.client.dist(srchNode.client);
+                     sw.distance = sw.node.client.dist(srchClient);
+                     srchCtl.numDists++;
                      if ((sw.workdist = sw.distance -
                                         (sw.node.distance * RADIUS)) < 0.0f)
                      {
@@ -551,7 +1558,7 @@ public class RDtree
                      sw.state = SearchState.DISTDONE;
 
                      /* save pattern on return list */
-                     foundPatt(srchCtl, sw, srchBounds);
+                     foundPatt(srchCtl, sw);
                      numSearch++;
 
                      /* check for termination of search */
@@ -563,7 +1570,8 @@ public class RDtree
 
                   /* cut off infeasible or finished branch */
                   if ((sw.state == SearchState.SRCHDONE) ||
-                      ((srchBounds.cutoff != null) && (sw.workdist >= srchBounds.cutoff.distance)))
+                      ((srchCtl.cutoff != null) && (sw.workdist >= srchCtl.cutoff.distance)) ||
+                      (sw.workdist > srchCtl.maxDist))
                   {
                      /* cut off */
                      sw.state = SearchState.SRCHDONE;
@@ -629,10 +1637,13 @@ public class RDtree
          if (srchCtl.srchStkIdx >= 0)
          {
             srchCtl.srchStkIdx++;
-            if (srchCtl.srchStkIdx == SrchStkSz)
+            if (srchCtl.srchStkIdx == srchCtl.srchStk.length)
+            {
+               srchCtl.growStack();
+            }
+            if (srchCtl.srchStkIdx > srchCtl.maxStkIdx)
             {
-               System.err.println("Search stack overflow!");
-               System.exit(1);
+               srchCtl.maxStkIdx = srchCtl.srchStkIdx;
             }
             stkpIdx       = srchCtl.srchStkIdx;
             stkp          = srchCtl.srchStk[stkpIdx];
@@ -643,11 +1654,37 @@ public class RDtree
    }
 
 
+   /* pivot lower bound on distance from query to node */
+   float pivotBound(SearchContext srchCtl, RDnode node)
+   {
+      float bound = 0.0f;
+
+      for (int i = 0; i < srchCtl.pivots.length; i++)
+      {
+         float d = srchCtl.pivotDist[i] - node.pivotDist[i];
+         if (d < 0.0f)
+         {
+            d = -d;
+         }
+         if (d > bound)
+         {
+            bound = d;
+         }
+      }
+      return(bound);
+   }
+
+
    /* add pattern to the found list */
-   void foundPatt(SrchCtl srchCtl, RDsearch swfound, SrchBounds srchBounds)
+   void foundPatt(SearchContext srchCtl, RDsearch swfound)
    {
       RDsearch sw, sw2;
 
+      if (swfound.distance > srchCtl.maxDist)
+      {
+         return;
+      }
+
       for (sw = srchCtl.srchList, sw2 = null; sw != null; sw2 = sw, sw = sw.srchnext)
       {
          if (sw.distance <= swfound.distance)
@@ -662,9 +1699,9 @@ public class RDtree
       }
       if (sw2 == null)
       {
-         if (srchBounds.numFound < srchCtl.maxFind)
+         if (srchCtl.numFound < srchCtl.maxFind)
          {
-            srchBounds.numFound++;
+            srchCtl.numFound++;
             swfound.srchnext = srchCtl.srchList;
             srchCtl.srchList = swfound;
          }
@@ -673,19 +1710,19 @@ public class RDtree
       {
          swfound.srchnext = sw2.srchnext;
          sw2.srchnext     = swfound;
-         if (srchBounds.numFound < srchCtl.maxFind)
+         if (srchCtl.numFound < srchCtl.maxFind)
          {
-            srchBounds.numFound++;
+            srchCtl.numFound++;
          }
          else
          {
             srchCtl.srchList = (srchCtl.srchList).srchnext;
          }
       }
-      if (srchBounds.numFound == srchCtl.maxFind)
+      if (srchCtl.numFound == srchCtl.maxFind)
       {
          /* set cut off */
-         srchBounds.cutoff = srchCtl.srchList;
+         srchCtl.cutoff = srchCtl.srchList;
       }
    }
 
@@ -695,6 +1732,7 @@ public class RDtree
    public static int NUM_PATTERNS = 100000;
    public static int MAX_FIND     = 1;
    public static int NUM_SEARCH   = NUM_PATTERNS;
+   public static int NUM_BATCH    = 1000;
 
    public static class TestClient implements RDclient
    {
@@ -778,6 +1816,65 @@ public class RDtree
       System.out.println("Result:");
       PrintPattern((TestClient)searchList.node.client);
       System.out.println("Distance=" + searchList.distance);
+
+      /* batch lookup must match single searches */
+      RDclient[] queries = new RDclient[NUM_BATCH];
+      for (i = 0; i < NUM_BATCH; i++)
+      {
+         if ((i > 0) && ((randomizer.nextInt() % 10) == 0))
+         {
+            queries[i] = queries[randomizer.nextInt(i)];
+            continue;
+         }
+         p = new float[NUM_VALS];
+         for (j = 0; j < NUM_VALS; j++)
+         {
+            p[j] = s[j];
+            if ((randomizer.nextInt() % 3) == 0)
+            {
+               p[j] += randomizer.nextInt() % 9;
+            }
+         }
+         queries[i] = new TestClient(p);
+      }
+      System.out.println("Batch lookup:");
+      CheckBatch(tree, queries, 5, 1000, Float.POSITIVE_INFINITY);
+      CheckBatch(tree, queries, 20, 5000, 150.0f);
+      tree.setPivots(8);
+      CheckBatch(tree, queries, 5, 1000, Float.POSITIVE_INFINITY);
+      CheckBatch(tree, queries, 20, 5000, 150.0f);
+   }
+
+
+   /* check batch lookup results against single searches */
+   private static void CheckBatch(RDtree tree, RDclient[] queries, int maxFind, int maxSearch, float maxDist)
+   {
+      LookupContext batch      = tree.newLookupContext();
+      SearchContext ctx        = tree.newSearchContext();
+      int           mismatches = 0;
+
+      tree.lookupBatch(batch, queries, queries.length, maxFind, maxSearch, maxDist);
+      for (int q = 0; q < queries.length; q++)
+      {
+         int n = tree.search(ctx, queries[q], maxFind, maxSearch, maxDist);
+         int i = batch.resultOffsets[q];
+         if ((batch.resultOffsets[q + 1] - i) != n)
+         {
+            mismatches++;
+            continue;
+         }
+         for (int j = 0; j < n; j++, i++)
+         {
+            if ((batch.resultIds[i] != ctx.resultIds[j]) ||
+                (batch.resultDistances[i] != ctx.resultDistances[j]))
+            {
+               mismatches++;
+               break;
+            }
+         }
+      }
+      System.out.println("maxFind=" + maxFind + " maxSearch=" + maxSearch + " maxDist=" + maxDist +
+                         " searches=" + batch.numSearches + " mismatches=" + mismatches);
    }
 
 
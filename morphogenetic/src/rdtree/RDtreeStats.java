@@ -0,0 +1,485 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Relative distance tree statistics.
+ *
+ * Searches count their work in the search context and add it to the
+ * statistics once per search, so counting costs a few adds per search
+ * and may be left enabled. Counters are safe for concurrent searches.
+ * Tree shape is computed by the tree when a snapshot is taken.
+ */
+
+package rdtree;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class RDtreeStats implements RDtreeStatsMBean
+{
+   // Number of histogram buckets.
+   public static final int NUM_BUCKETS = 32;
+
+   // Result distance histogram bucket width: the last bucket takes greater distances.
+   public static float RESULT_DISTANCE_BUCKET_WIDTH = 0.05f;
+
+   // JMX domain.
+   public static final String JMX_DOMAIN = "rdtree";
+
+   // Search counters.
+   LongAdder       searches;
+   LongAdder       distanceEvaluations;
+   LongAdder       pivotDistanceEvaluations;
+   LongAdder       pivotSkips;
+   LongAdder       nodesExpanded;
+   LongAdder       stackDepths;
+   LongAccumulator maxStackDepth;
+   LongAdder       results;
+
+   // Histograms: distance evaluations per search in powers of two, and result distances.
+   LongAdder[] distanceEvaluationHistogram;
+   LongAdder[] resultDistanceHistogram;
+
+   // Insert counters.
+   LongAdder inserts;
+   LongAdder insertDistanceEvaluations;
+
+   // Tree shape as of the last snapshot.
+   volatile Shape shape;
+
+   // Registered JMX name.
+   ObjectName jmxName;
+
+   // Maximum operator.
+   static final LongBinaryOperator MAX = new LongBinaryOperator()
+   {
+      public long applyAsLong(long a, long b)
+      {
+         return(Math.max(a, b));
+      }
+   };
+
+   // Tree shape.
+   public static class Shape
+   {
+      public int    nodes;
+      public int    maxDepth;
+      public double meanDepth;
+      public int    maxFanout;
+      public double meanFanout;               /* children per non-leaf node */
+
+      public Shape()
+      {
+         nodes      = 0;
+         maxDepth   = 0;
+         meanDepth  = 0.0;
+         maxFanout  = 0;
+         meanFanout = 0.0;
+      }
+
+
+      // Shape from node depths and child counts.
+      public Shape(int nodes, int[] depths, int[] fanouts)
+      {
+         long depthSum = 0;
+         long childSum = 0;
+         int  parents  = 0;
+
+         this.nodes = nodes;
+         maxDepth   = 0;
+         maxFanout  = 0;
+         for (int i = 0; i < nodes; i++)
+         {
+            depthSum += depths[i];
+            if (depths[i] > maxDepth)
+            {
+               maxDepth = depths[i];
+            }
+            if (fanouts[i] > 0)
+            {
+               parents++;
+               childSum += fanouts[i];
+               if (fanouts[i] > maxFanout)
+               {
+                  maxFanout = fanouts[i];
+               }
+            }
+         }
+         meanDepth  = 0.0;
+         meanFanout = 0.0;
+         if (nodes > 0)
+         {
+            meanDepth = (double)depthSum / (double)nodes;
+         }
+         if (parents > 0)
+         {
+            meanFanout = (double)childSum / (double)parents;
+         }
+      }
+   }
+
+   // Statistics snapshot.
+   public static class Snapshot
+   {
+      public long   searches;
+      public long   distanceEvaluations;
+      public long   pivotDistanceEvaluations;
+      public long   pivotSkips;
+      public long   nodesExpanded;
+      public long   stackDepths;
+      public long   maxStackDepth;
+      public long   results;
+      public long[] distanceEvaluationHistogram;
+      public long[] resultDistanceHistogram;
+      public long   inserts;
+      public long   insertDistanceEvaluations;
+      public Shape  shape;
+
+      // Mean distance evaluations per search.
+      public double getMeanDistanceEvaluations()
+      {
+         return(mean(distanceEvaluations, searches));
+      }
+
+
+      // Mean stack depth reached per search.
+      public double getMeanStackDepth()
+      {
+         return(mean(stackDepths, searches));
+      }
+
+
+      // Mean distance evaluations per insert.
+      public double getMeanInsertDistanceEvaluations()
+      {
+         return(mean(insertDistanceEvaluations, inserts));
+      }
+
+
+      // Print.
+      public void print()
+      {
+         System.out.println("Searches=" + searches +
+                            " distance evaluations=" + distanceEvaluations +
+                            " (mean=" + getMeanDistanceEvaluations() + ")" +
+                            " pivot distance evaluations=" + pivotDistanceEvaluations +
+                            " pivot skips=" + pivotSkips);
+         System.out.println("Nodes expanded=" + nodesExpanded +
+                            " stack depth: max=" + maxStackDepth +
+                            " mean=" + getMeanStackDepth() +
+                            " results=" + results);
+         System.out.print("Distance evaluations per search histogram (powers of 2):");
+         printHistogram(distanceEvaluationHistogram);
+         System.out.print("Result distance histogram (width=" + RESULT_DISTANCE_BUCKET_WIDTH + "):");
+         printHistogram(resultDistanceHistogram);
+         System.out.println("Inserts=" + inserts +
+                            " distance evaluations=" + insertDistanceEvaluations +
+                            " (mean=" + getMeanInsertDistanceEvaluations() + ")");
+         System.out.println("Tree nodes=" + shape.nodes +
+                            " depth: max=" + shape.maxDepth +
+                            " mean=" + shape.meanDepth +
+                            " fanout: max=" + shape.maxFanout +
+                            " mean=" + shape.meanFanout);
+      }
+
+
+      // Print histogram through its last non-empty bucket.
+      static void printHistogram(long[] histogram)
+      {
+         int n = histogram.length;
+
+         while ((n > 0) && (histogram[n - 1] == 0))
+         {
+            n--;
+         }
+         for (int i = 0; i < n; i++)
+         {
+            System.out.print(" " + histogram[i]);
+         }
+         System.out.println();
+      }
+   }
+
+   // Constructor.
+   public RDtreeStats()
+   {
+      searches                 = new LongAdder();
+      distanceEvaluations      = new LongAdder();
+      pivotDistanceEvaluations = new LongAdder();
+      pivotSkips               = new LongAdder();
+      nodesExpanded            = new LongAdder();
+      stackDepths              = new LongAdder();
+      maxStackDepth            = new LongAccumulator(MAX, 0);
+      results                  = new LongAdder();
+      distanceEvaluationHistogram = newHistogram();
+      resultDistanceHistogram     = newHistogram();
+      inserts                   = new LongAdder();
+      insertDistanceEvaluations = new LongAdder();
+      shape                     = new Shape();
+   }
+
+
+   static LongAdder[] newHistogram()
+   {
+      LongAdder[] histogram = new LongAdder[NUM_BUCKETS];
+
+      for (int i = 0; i < NUM_BUCKETS; i++)
+      {
+         histogram[i] = new LongAdder();
+      }
+      return(histogram);
+   }
+
+
+   // Record search.
+   public void recordSearch(int numDists, int numPivotDists, int numPivotSkips, int numExpanded,
+                            int stackDepth, float[] resultDistances, int numResults)
+   {
+      searches.increment();
+      distanceEvaluations.add(numDists);
+      pivotDistanceEvaluations.add(numPivotDists);
+      pivotSkips.add(numPivotSkips);
+      nodesExpanded.add(numExpanded);
+      stackDepths.add(stackDepth);
+      maxStackDepth.accumulate(stackDepth);
+      results.add(numResults);
+      distanceEvaluationHistogram[32 - Integer.numberOfLeadingZeros(numDists)].increment();
+      for (int i = 0; i < numResults; i++)
+      {
+         int b = (int)(resultDistances[i] / RESULT_DISTANCE_BUCKET_WIDTH);
+         if ((b < 0) || (b >= NUM_BUCKETS))
+         {
+            b = NUM_BUCKETS - 1;
+         }
+         resultDistanceHistogram[b].increment();
+      }
+   }
+
+
+   // Record insert.
+   public void recordInsert(int numDists)
+   {
+      inserts.increment();
+      insertDistanceEvaluations.add(numDists);
+   }
+
+
+   // Take snapshot with tree shape.
+   public Snapshot snapshot(Shape shape)
+   {
+      Snapshot snapshot = new Snapshot();
+
+      this.shape                        = shape;
+      snapshot.searches                 = searches.sum();
+      snapshot.distanceEvaluations      = distanceEvaluations.sum();
+      snapshot.pivotDistanceEvaluations = pivotDistanceEvaluations.sum();
+      snapshot.pivotSkips               = pivotSkips.sum();
+      snapshot.nodesExpanded            = nodesExpanded.sum();
+      snapshot.stackDepths              = stackDepths.sum();
+      snapshot.maxStackDepth            = maxStackDepth.get();
+      snapshot.results                  = results.sum();
+      snapshot.distanceEvaluationHistogram = sum(distanceEvaluationHistogram);
+      snapshot.resultDistanceHistogram     = sum(resultDistanceHistogram);
+      snapshot.inserts                   = inserts.sum();
+      snapshot.insertDistanceEvaluations = insertDistanceEvaluations.sum();
+      snapshot.shape = shape;
+      return(snapshot);
+   }
+
+
+   static long[] sum(LongAdder[] histogram)
+   {
+      long[] counts = new long[histogram.length];
+
+      for (int i = 0; i < histogram.length; i++)
+      {
+         counts[i] = histogram[i].sum();
+      }
+      return(counts);
+   }
+
+
+   static double mean(long sum, long count)
+   {
+      if (count == 0)
+      {
+         return(0.0);
+      }
+      return((double)sum / (double)count);
+   }
+
+
+   // Register as JMX bean with name, replacing any bean of that name.
+   public void register(String name)
+   {
+      try
+      {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName  oname  = new ObjectName(JMX_DOMAIN + ":type=RDtreeStats,name=" + ObjectName.quote(name));
+         unregister();
+         if (server.isRegistered(oname))
+         {
+            server.unregisterMBean(oname);
+         }
+         server.registerMBean(this, oname);
+         jmxName = oname;
+      }
+      catch (Exception e)
+      {
+         System.err.println("Cannot register tree statistics " + name + ":" + e.getMessage());
+      }
+   }
+
+
+   // Unregister JMX bean.
+   public void unregister()
+   {
+      if (jmxName != null)
+      {
+         try
+         {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(jmxName);
+         }
+         catch (Exception e) {}
+         jmxName = null;
+      }
+   }
+
+
+   // RDtreeStatsMBean.
+   public long getSearches()
+   {
+      return(searches.sum());
+   }
+
+
+   public long getDistanceEvaluations()
+   {
+      return(distanceEvaluations.sum());
+   }
+
+
+   public double getMeanDistanceEvaluations()
+   {
+      return(mean(distanceEvaluations.sum(), searches.sum()));
+   }
+
+
+   public long getPivotDistanceEvaluations()
+   {
+      return(pivotDistanceEvaluations.sum());
+   }
+
+
+   public long getPivotSkips()
+   {
+      return(pivotSkips.sum());
+   }
+
+
+   public long getNodesExpanded()
+   {
+      return(nodesExpanded.sum());
+   }
+
+
+   public long getMaxStackDepth()
+   {
+      return(maxStackDepth.get());
+   }
+
+
+   public double getMeanStackDepth()
+   {
+      return(mean(stackDepths.sum(), searches.sum()));
+   }
+
+
+   public long getResults()
+   {
+      return(results.sum());
+   }
+
+
+   public long[] getDistanceEvaluationHistogram()
+   {
+      return(sum(distanceEvaluationHistogram));
+   }
+
+
+   public long[] getResultDistanceHistogram()
+   {
+      return(sum(resultDistanceHistogram));
+   }
+
+
+   public long getInserts()
+   {
+      return(inserts.sum());
+   }
+
+
+   public long getInsertDistanceEvaluations()
+   {
+      return(insertDistanceEvaluations.sum());
+   }
+
+
+   public double getMeanInsertDistanceEvaluations()
+   {
+      return(mean(insertDistanceEvaluations.sum(), inserts.sum()));
+   }
+
+
+   public int getNodes()
+   {
+      return(shape.nodes);
+   }
+
+
+   public int getMaxDepth()
+   {
+      return(shape.maxDepth);
+   }
+
+
+   public double getMeanDepth()
+   {
+      return(shape.meanDepth);
+   }
+
+
+   public int getMaxFanout()
+   {
+      return(shape.maxFanout);
+   }
+
+
+   public double getMeanFanout()
+   {
+      return(shape.meanFanout);
+   }
+
+
+   public void reset()
+   {
+      searches.reset();
+      distanceEvaluations.reset();
+      pivotDistanceEvaluations.reset();
+      pivotSkips.reset();
+      nodesExpanded.reset();
+      stackDepths.reset();
+      maxStackDepth.reset();
+      results.reset();
+      for (int i = 0; i < NUM_BUCKETS; i++)
+      {
+         distanceEvaluationHistogram[i].reset();
+         resultDistanceHistogram[i].reset();
+      }
+      inserts.reset();
+      insertDistanceEvaluations.reset();
+   }
+}
@@ -0,0 +1,38 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Relative distance tree statistics management interface.
+ */
+
+package rdtree;
+
+public interface RDtreeStatsMBean
+{
+   // Searches.
+   public long getSearches();
+   public long getDistanceEvaluations();
+   public double getMeanDistanceEvaluations();
+   public long getPivotDistanceEvaluations();
+   public long getPivotSkips();
+   public long getNodesExpanded();
+   public long getMaxStackDepth();
+   public double getMeanStackDepth();
+   public long getResults();
+   public long[] getDistanceEvaluationHistogram();
+   public long[] getResultDistanceHistogram();
+
+   // Inserts.
+   public long getInserts();
+   public long getInsertDistanceEvaluations();
+   public double getMeanInsertDistanceEvaluations();
+
+   // Tree shape, as of the last statistics snapshot.
+   public int getNodes();
+   public int getMaxDepth();
+   public double getMeanDepth();
+   public int getMaxFanout();
+   public double getMeanFanout();
+
+   // Reset counters.
+   public void reset();
+}
@@ -0,0 +1,16 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Client pattern of fixed length vector tree.
+ */
+
+package rdtree;
+
+public interface RDvectorClient extends RDclient
+{
+   // Copy pattern vector into vector at offset.
+   public void getVector(float[] vector, int offset);
+
+   // Get pattern key: patterns with equal keys are at zero distance.
+   public int getVectorKey();
+}
@@ -0,0 +1,175 @@
+// For conditions of distribution and use, see copyright notice in Morphozoic.java
+
+/*
+ * Relative distance tree specialized for fixed length float vector patterns.
+ *
+ * Client vectors are copied into a contiguous buffer in node order, and
+ * distances are computed by an inlined weighted L1 kernel over the buffer
+ * rather than dispatched to the clients. A vector is divided into equal
+ * length segments: the distance is the sum of the segment L1 distances,
+ * each multiplied by its segment weight, or divided by the number of
+ * segments if unweighted. Patterns with equal keys are at zero distance.
+ * Client distances must agree with this metric, since the tree is built
+ * with them.
+ */
+
+package rdtree;
+
+public class RDvectorTree extends RDarrayTree
+{
+   // Vector layout.
+   public int numSegments;
+   public int segmentLength;
+   public int vectorLength;
+
+   // Segment weights (null=equal).
+   public float[] segmentWeights;
+
+   // Node vectors and keys.
+   public float[] vectors;
+   public int[]   keys;
+
+   // Constructors.
+   public RDvectorTree(int numSegments, int segmentLength, float[] segmentWeights)
+   {
+      this.numSegments    = numSegments;
+      this.segmentLength  = segmentLength;
+      this.segmentWeights = segmentWeights;
+      vectorLength        = numSegments * segmentLength;
+      init();
+   }
+
+
+   public RDvectorTree(int numSegments, int segmentLength, float[] segmentWeights, float radius)
+   {
+      this.numSegments    = numSegments;
+      this.segmentLength  = segmentLength;
+      this.segmentWeights = segmentWeights;
+      vectorLength        = numSegments * segmentLength;
+      RADIUS              = radius;
+      init();
+   }
+
+
+   // Grow node capacity.
+   @Override
+   protected void grow(int capacity)
+   {
+      float[] v = new float[capacity * vectorLength];
+      int[]   k = new int[capacity];
+
+      if (vectors != null)
+      {
+         System.arraycopy(vectors, 0, v, 0, size * vectorLength);
+         System.arraycopy(keys, 0, k, 0, size);
+      }
+      vectors = v;
+      keys    = k;
+      super.grow(capacity);
+   }
+
+
+   // Add unlinked node for client.
+   @Override
+   protected int addNode(RDclient client)
+   {
+      int            node         = super.addNode(client);
+      RDvectorClient vectorClient = (RDvectorClient)client;
+
+      vectorClient.getVector(vectors, node * vectorLength);
+      keys[node] = vectorClient.getVectorKey();
+      return(node);
+   }
+
+
+   // Distance between nodes.
+   @Override
+   protected float nodeDist(int node1, int node2)
+   {
+      if (keys[node1] == keys[node2])
+      {
+         return(0.0f);
+      }
+      return(dist(vectors, node1 * vectorLength, vectors, node2 * vectorLength));
+   }
+
+
+   // Vector search context: holds query vector.
+   public static class VectorSearchContext extends RDarrayTree.SearchContext
+   {
+      float[] queryVector;
+      int     queryKey;
+
+      public VectorSearchContext()
+      {
+         super();
+         queryVector = new float[0];
+      }
+   }
+
+   // Create search context.
+   @Override
+   public SearchContext newSearchContext()
+   {
+      return(new VectorSearchContext());
+   }
+
+
+   // Prepare search context for query.
+   // The context must have been created by this tree.
+   @Override
+   protected void prepareQuery(SearchContext ctx, RDclient client)
+   {
+      VectorSearchContext vctx         = (VectorSearchContext)ctx;
+      RDvectorClient      vectorClient = (RDvectorClient)client;
+
+      if (vctx.queryVector.length != vectorLength)
+      {
+         vctx.queryVector = new float[vectorLength];
+      }
+      vectorClient.getVector(vctx.queryVector, 0);
+      vctx.queryKey = vectorClient.getVectorKey();
+   }
+
+
+   // Distance from node to query.
+   @Override
+   protected float queryDist(SearchContext ctx, int node)
+   {
+      VectorSearchContext vctx = (VectorSearchContext)ctx;
+
+      if (keys[node] == vctx.queryKey)
+      {
+         return(0.0f);
+      }
+      return(dist(vectors, node * vectorLength, vctx.queryVector, 0));
+   }
+
+
+   // Weighted L1 distance between vectors at offsets.
+   float dist(float[] vector1, int offset1, float[] vector2, int offset2)
+   {
+      float delta = 0.0f;
+
+      for (int i = 0; i < numSegments; i++)
+      {
+         float sdelta = 0.0f;
+         for (int j = 0; j < segmentLength; j++)
+         {
+            sdelta += Math.abs(vector1[offset1 + j] - vector2[offset2 + j]);
+         }
+         if (segmentWeights != null)
+         {
+            sdelta *= segmentWeights[i];
+         }
+         else
+         {
+            sdelta /= (float)numSegments;
+         }
+         delta   += sdelta;
+         offset1 += segmentLength;
+         offset2 += segmentLength;
+      }
+      return(delta);
+   }
+}
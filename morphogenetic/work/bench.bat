@@ -0,0 +1,12 @@
+rem Benchmarks.
+rem Run: bench.bat [JMH options], e.g. bench.bat -rf csv -rff baseline.csv MorphogenBenchmark
+rem Compare with baseline: bench.bat -compare baseline.csv results.csv
+set JMH=../lib/jmh-core.jar;../lib/jmh-generator-annprocess.jar;../lib/jopt-simple.jar;../lib/commons-math3.jar
+if not exist bench mkdir bench
+javac -classpath "../lib/weka.jar;../lib/opencv-310.jar;%JMH%" -processor org.openjdk.jmh.generators.BenchmarkProcessor -d bench ../src/morphozoic/*.java ../src/morphozoic/applications/*.java ../src/morphozoic/compression/*.java ../src/rdtree/*.java ../bench/morphozoic/bench/*.java || exit /b 1
+copy ..\res\images\*.jpg bench\morphozoic\applications
+if "%1"=="-compare" (
+   java -classpath bench morphozoic.bench.BenchmarkCompare %2 %3
+) else (
+   java -classpath "bench;../lib/weka.jar;../lib/opencv-310.jar;%JMH%" org.openjdk.jmh.Main %*
+)
@@ -0,0 +1,13 @@
+# Benchmarks.
+# Run: bench.sh [JMH options], e.g. bench.sh -rf csv -rff baseline.csv MorphogenBenchmark
+# Compare with baseline: bench.sh -compare baseline.csv results.csv
+JMH="../lib/jmh-core.jar:../lib/jmh-generator-annprocess.jar:../lib/jopt-simple.jar:../lib/commons-math3.jar"
+mkdir -p bench
+javac -classpath "../lib/weka.jar:../lib/opencv-310.jar:$JMH" -processor org.openjdk.jmh.generators.BenchmarkProcessor -d bench ../src/morphozoic/*.java ../src/morphozoic/applications/*.java ../src/morphozoic/compression/*.java ../src/rdtree/*.java ../bench/morphozoic/bench/*.java || exit 1
+cp ../res/images/*.jpg bench/morphozoic/applications
+if [ "$1" = "-compare" ]
+then
+   java -classpath bench morphozoic.bench.BenchmarkCompare $2 $3
+else
+   java -classpath "bench:../lib/weka.jar:../lib/opencv-310.jar:$JMH" org.openjdk.jmh.Main "$@"
+fi
@@ -35,6 +35,7 @@
     	-maxMetamorphRandomBias 0.0 \
     	-deltaMetamorphRandomBias 0.0 \
     	-inhibitCompetingMorphogens false \
+    	-fitnessCacheFile img_cmp_cache.txt \
     	-numHoles $num_holes  \
   	-maxHoleSize $max_hole_size #> img_cmp_nh${num_holes}_hs${max_hole_size}_nd${neighborhood_dim}_nn${num_neighborhoods}.txt
    done
@@ -61,6 +62,7 @@
     	-maxMetamorphRandomBias 0.0 \
     	-deltaMetamorphRandomBias 0.0 \
     	-inhibitCompetingMorphogens false \
+    	-fitnessCacheFile img_cmp_cache.txt \
     	-numHoles $num_holes  \
  	-maxHoleSize $max_hole_size #> img_cmp_nh${num_holes}_hs${max_hole_size}_nd${neighborhood_dim}_nn${num_neighborhoods}.txt
    done
@@ -0,0 +1,25 @@
+# Image repair neighborhood sweep in one JVM: img_cmp.sh grid with results in img_sweep.csv.
+
+java -Xms1024m -classpath morphozoic.jar morphozoic.applications.ParameterSweep \
+	-optimizer ImageRepairOptimizer \
+	-csvFile img_sweep.csv \
+	-sweep -numHoles 100 \
+	-sweep -maxHoleSize 21 \
+	-sweep -minNeighborhoodDimension,-maxNeighborhoodDimension 3,9 \
+	-sweep -minNumNeighborhoods,-maxNumNeighborhoods 1,3 \
+	-organismDimensions 50 50 \
+	-numCellTypes 3 \
+	-randomSeed 4517 \
+	-populationSize 25 \
+	-fitPopulationSize 5 \
+	-numGenerations 0 \
+	-numUpdateSteps 5 \
+	-minMetamorphDimension 1 \
+	-maxMetamorphDimension 1 \
+	-minMaxCellMetamorphs 1 \
+	-maxMaxCellMetamorphs 1 \
+	-minMetamorphRandomBias 0.0 \
+	-maxMetamorphRandomBias 0.0 \
+	-deltaMetamorphRandomBias 0.0 \
+	-inhibitCompetingMorphogens false \
+	-fitnessCacheFile img_cmp_cache.txt
@@ -0,0 +1,19 @@
+rem Island model evolution: islands.bat <number of islands> [MorphEvolver options]
+rem Each island runs in directory island_<id>, migrating through directory spool.
+setlocal enabledelayedexpansion
+set n=%1
+shift
+set options=
+:options
+if "%1"=="" goto run
+set options=!options! %1
+shift
+goto options
+:run
+if exist spool rmdir /s /q spool
+mkdir spool
+set /a last=n-1
+for /L %%i in (0,1,%last%) do (
+   if not exist island_%%i mkdir island_%%i
+   start "island %%i" /D island_%%i cmd /c "java -classpath ../morphozoic.jar morphozoic.applications.MorphEvolver -island %%i %n% ../spool!options! > evolve.log 2>&1"
+)
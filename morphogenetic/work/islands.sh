@@ -0,0 +1,17 @@
+# Island model evolution: islands.sh <number of islands> [MorphEvolver options]
+# Each island runs in directory island_<id>, migrating through directory spool.
+n=$1
+shift
+rm -rf spool
+mkdir -p spool
+for ((i = 0; i < n; i++))
+do
+   mkdir -p island_$i
+   (cd island_$i && java -classpath ../morphozoic.jar morphozoic.applications.MorphEvolver -island $i $n ../spool "$@" > evolve.log 2>&1) &
+done
+wait
+for ((i = 0; i < n; i++))
+do
+   echo "island $i:"
+   grep -A 1 "^Member" island_$i/evolve.log | tail -1
+done
@@ -0,0 +1,5 @@
+rem Scenario benchmark: scenarios.bat [options], e.g. scenarios.bat -sizes small,medium -ticks 20
+if not exist bench mkdir bench
+javac -classpath "../lib/weka.jar;../lib/opencv-310.jar" -d bench ../src/morphozoic/*.java ../src/morphozoic/applications/*.java ../src/morphozoic/compression/*.java ../src/rdtree/*.java ../bench/morphozoic/bench/ScenarioBenchmark.java || exit /b 1
+copy ..\res\images\*.jpg bench\morphozoic\applications
+java -Djava.awt.headless=true -classpath "bench;../lib/weka.jar;../lib/opencv-310.jar" morphozoic.bench.ScenarioBenchmark %*
@@ -0,0 +1,5 @@
+# Scenario benchmark: scenarios.sh [options], e.g. scenarios.sh -sizes small,medium -ticks 20
+mkdir -p bench
+javac -classpath "../lib/weka.jar:../lib/opencv-310.jar" -d bench ../src/morphozoic/*.java ../src/morphozoic/applications/*.java ../src/morphozoic/compression/*.java ../src/rdtree/*.java ../bench/morphozoic/bench/ScenarioBenchmark.java || exit 1
+cp ../res/images/*.jpg bench/morphozoic/applications
+java -Djava.awt.headless=true -classpath "bench:../lib/weka.jar:../lib/opencv-310.jar" morphozoic.bench.ScenarioBenchmark "$@"